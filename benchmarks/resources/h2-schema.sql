@@ -0,0 +1,21 @@
+-- The accounts and account_deletions tables from db/schema.sql in DDL that H2 (MySQL mode) accepts.
+CREATE TABLE IF NOT EXISTS accounts (
+  id INT PRIMARY KEY AUTO_INCREMENT,
+  email VARCHAR(255) NOT NULL,
+  website VARCHAR(255) NOT NULL,
+  password_encrypted BLOB NOT NULL,
+  iv VARBINARY(64) NOT NULL,
+  enc_version INT NOT NULL,
+  created_at TIMESTAMP DEFAULT CURRENT_TIMESTAMP,
+  updated_at TIMESTAMP DEFAULT CURRENT_TIMESTAMP,
+  CONSTRAINT uq_accounts_email_website UNIQUE (email, website)
+);
+CREATE INDEX IF NOT EXISTS idx_website ON accounts (website);
+CREATE INDEX IF NOT EXISTS idx_accounts_enc_version ON accounts (enc_version, id);
+CREATE INDEX IF NOT EXISTS idx_accounts_updated_at ON accounts (updated_at);
+CREATE TABLE IF NOT EXISTS account_deletions (
+  id BIGINT PRIMARY KEY AUTO_INCREMENT,
+  account_id INT NOT NULL,
+  deleted_at TIMESTAMP DEFAULT CURRENT_TIMESTAMP
+);
+CREATE INDEX IF NOT EXISTS idx_account_deletions_deleted_at ON account_deletions (deleted_at);
@@ -0,0 +1,85 @@
+package com.doof.passwordmanager.bench;
+
+import com.doof.passwordmanager.util.PasswordEncryptor;
+
+import javax.crypto.Cipher;
+import javax.crypto.SecretKey;
+import javax.crypto.spec.GCMParameterSpec;
+import javax.crypto.spec.SecretKeySpec;
+import java.lang.management.ManagementFactory;
+import java.nio.ByteBuffer;
+import java.security.SecureRandom;
+
+/**
+ * Per-call throughput and heap allocation of AES-GCM encrypt+decrypt: a fresh Cipher per call
+ * (the old PasswordEncryptor), the pooled byte[] API, and the ByteBuffer API writing into
+ * reused direct buffers. Usage: CipherReuseBenchmark [operations] [passwordBytes]
+ */
+public class CipherReuseBenchmark {
+
+    private static final com.sun.management.ThreadMXBean THREADS =
+            (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+
+    public static void main(String[] args) throws Exception {
+        int operations = args.length > 0 ? Integer.parseInt(args[0]) : 200_000;
+        int passwordBytes = args.length > 1 ? Integer.parseInt(args[1]) : 24;
+
+        byte[] keyBytes = new byte[32];
+        new SecureRandom().nextBytes(keyBytes);
+        SecretKey key = new SecretKeySpec(keyBytes, "AES");
+        byte[] plaintext = new byte[passwordBytes];
+        byte[][] ivs = new byte[1024][];
+        for (int i = 0; i < ivs.length; i++) ivs[i] = PasswordEncryptor.generateIV();
+
+        ByteBuffer plainIn = ByteBuffer.allocateDirect(passwordBytes);
+        ByteBuffer cipherOut = ByteBuffer.allocateDirect(PasswordEncryptor.ciphertextLength(passwordBytes));
+        ByteBuffer plainOut = ByteBuffer.allocateDirect(passwordBytes);
+
+        Op freshCipher = i -> {
+            byte[] iv = ivs[i & 1023];
+            Cipher enc = Cipher.getInstance("AES/GCM/NoPadding");
+            enc.init(Cipher.ENCRYPT_MODE, key, new GCMParameterSpec(128, iv));
+            byte[] ct = enc.doFinal(plaintext);
+            Cipher dec = Cipher.getInstance("AES/GCM/NoPadding");
+            dec.init(Cipher.DECRYPT_MODE, key, new GCMParameterSpec(128, iv));
+            return dec.doFinal(ct).length;
+        };
+        Op pooledArrays = i -> {
+            byte[] iv = ivs[i & 1023];
+            byte[] ct = PasswordEncryptor.encrypt(plaintext.clone(), key, iv);
+            return PasswordEncryptor.decrypt(ct, key, iv).length;
+        };
+        Op pooledBuffers = i -> {
+            byte[] iv = ivs[i & 1023];
+            plainIn.clear();
+            cipherOut.clear();
+            PasswordEncryptor.encrypt(plainIn, cipherOut, key, iv);
+            cipherOut.flip();
+            plainOut.clear();
+            return PasswordEncryptor.decrypt(cipherOut, plainOut, key, iv);
+        };
+
+        System.out.printf("operations=%d, password=%d bytes (one op = encrypt + decrypt)%n", operations, passwordBytes);
+        System.out.printf("%-28s %14s %14s%n", "variant", "ops/s", "bytes/op");
+        run("Cipher.getInstance per call", freshCipher, operations);
+        run("pooled Cipher, byte[]", pooledArrays, operations);
+        run("pooled Cipher, ByteBuffer", pooledBuffers, operations);
+    }
+
+    private static void run(String label, Op op, int operations) throws Exception {
+        for (int i = 0; i < operations / 4; i++) op.run(i);
+        long tid = Thread.currentThread().threadId();
+        long allocBefore = THREADS.getThreadAllocatedBytes(tid);
+        long start = System.nanoTime();
+        long sink = 0;
+        for (int i = 0; i < operations; i++) sink += op.run(i);
+        long elapsed = System.nanoTime() - start;
+        long allocated = THREADS.getThreadAllocatedBytes(tid) - allocBefore;
+        System.out.printf("%-28s %14.0f %14d%s%n", label, operations / (elapsed / 1e9), allocated / operations,
+                sink == 42 ? " " : "");
+    }
+
+    private interface Op {
+        int run(int i) throws Exception;
+    }
+}
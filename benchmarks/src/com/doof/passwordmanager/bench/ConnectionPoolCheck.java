@@ -0,0 +1,172 @@
+package com.doof.passwordmanager.bench;
+
+import com.doof.passwordmanager.db.ConnectionPool;
+import com.doof.passwordmanager.db.PoolStats;
+
+import java.sql.Connection;
+import java.sql.DatabaseMetaData;
+import java.sql.DriverManager;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.SQLTimeoutException;
+import java.sql.Statement;
+import java.util.Objects;
+
+/**
+ * Exercises ConnectionPool against embedded H2: borrow timeout, validation of a connection killed
+ * while idle, lifetime and idle eviction, session reset on return, and that no handle leaks the
+ * physical connection. Exits non-zero on the first failed check. Usage: ConnectionPoolCheck
+ */
+public class ConnectionPoolCheck {
+
+    private static final String URL = "jdbc:h2:mem:pool-check;DB_CLOSE_DELAY=-1";
+
+    public static void main(String[] args) throws Exception {
+        checkTimeout();
+        checkValidation();
+        checkMaxLifetime();
+        checkIdleEviction();
+        checkSessionReset();
+        checkNoPhysicalLeak();
+        System.out.println("all connection pool checks passed");
+    }
+
+    private static void checkTimeout() throws Exception {
+        try (ConnectionPool pool = new ConnectionPool(URL, "sa", "", 1, 100, 0, 0);
+             Connection held = pool.borrow()) {
+            check(!held.isClosed(), "held connection is closed");
+            long start = System.nanoTime();
+            try {
+                pool.borrow().close();
+                throw new IllegalStateException("second borrow from a full pool should time out");
+            } catch (SQLTimeoutException expected) {
+                long waitedMs = (System.nanoTime() - start) / 1_000_000;
+                check(waitedMs >= 90, "timed out after only " + waitedMs + " ms");
+            }
+            check(pool.getStats().getTimeoutCount() == 1, "timeout not counted: " + pool.getStats());
+        }
+        System.out.println("timeout ok");
+    }
+
+    private static void checkValidation() throws Exception {
+        try (ConnectionPool pool = new ConnectionPool(URL, "sa", "", 1, 1000, 0, 0)) {
+            int session;
+            try (Connection c = pool.borrow(); Statement st = c.createStatement();
+                 ResultSet rs = st.executeQuery("SELECT SESSION_ID()")) {
+                rs.next();
+                session = rs.getInt(1);
+            }
+            try (Connection admin = DriverManager.getConnection(URL, "sa", "");
+                 PreparedStatement ps = admin.prepareStatement("SELECT ABORT_SESSION(?)")) {
+                ps.setInt(1, session);
+                ps.executeQuery().close();
+            }
+            // Connections returned within the validation interval are trusted without a round trip.
+            Thread.sleep(600);
+            try (Connection c = pool.borrow(); Statement st = c.createStatement()) {
+                st.execute("SELECT 1");
+            }
+            PoolStats stats = pool.getStats();
+            check(stats.getValidationFailures() == 1, "dead connection not rejected: " + stats);
+            check(stats.getCreatedCount() == 2, "dead connection not replaced: " + stats);
+        }
+        System.out.println("validation ok");
+    }
+
+    private static void checkMaxLifetime() throws Exception {
+        try (ConnectionPool pool = new ConnectionPool(URL, "sa", "", 1, 1000, 0, 200)) {
+            Connection c = pool.borrow();
+            Thread.sleep(250);
+            c.close();
+            PoolStats stats = pool.getStats();
+            check(stats.getDestroyedCount() == 1 && stats.getTotalConnections() == 0,
+                    "expired connection went back to the pool: " + stats);
+        }
+        System.out.println("max lifetime ok");
+    }
+
+    private static void checkIdleEviction() throws Exception {
+        try (ConnectionPool pool = new ConnectionPool(URL, "sa", "", 2, 1000, 300, 0)) {
+            pool.borrow().close();
+            check(pool.getStats().getIdleConnections() == 1, "connection not pooled: " + pool.getStats());
+            long deadline = System.currentTimeMillis() + 5_000;
+            while (pool.getStats().getIdleConnections() > 0 && System.currentTimeMillis() < deadline) {
+                Thread.sleep(50);
+            }
+            PoolStats stats = pool.getStats();
+            check(stats.getIdleConnections() == 0 && stats.getDestroyedCount() == 1,
+                    "idle connection not evicted: " + stats);
+        }
+        System.out.println("idle eviction ok");
+    }
+
+    private static void checkSessionReset() throws Exception {
+        try (ConnectionPool pool = new ConnectionPool(URL, "sa", "", 1, 1000, 0, 0)) {
+            boolean readOnly;
+            int isolation;
+            String catalog;
+            try (Connection c = pool.borrow()) {
+                readOnly = c.isReadOnly();
+                isolation = c.getTransactionIsolation();
+                catalog = c.getCatalog();
+                c.setAutoCommit(false);
+                c.setReadOnly(!readOnly);
+                c.setTransactionIsolation(isolation == Connection.TRANSACTION_SERIALIZABLE
+                        ? Connection.TRANSACTION_READ_COMMITTED : Connection.TRANSACTION_SERIALIZABLE);
+            }
+            try (Connection c = pool.borrow()) {
+                check(c.getAutoCommit(), "autocommit not restored");
+                check(c.isReadOnly() == readOnly, "readOnly not restored");
+                check(c.getTransactionIsolation() == isolation, "isolation not restored");
+                check(Objects.equals(c.getCatalog(), catalog), "catalog not restored");
+            }
+            check(pool.getStats().getCreatedCount() == 1, "connection was not reused: " + pool.getStats());
+        }
+        System.out.println("session reset ok");
+    }
+
+    private static void checkNoPhysicalLeak() throws Exception {
+        Class<?> driverConnection = Class.forName("org.h2.jdbc.JdbcConnection");
+        Class<?> driverStatement = Class.forName("org.h2.jdbc.JdbcStatement");
+        try (ConnectionPool pool = new ConnectionPool(URL, "sa", "", 1, 1000, 0, 0)) {
+            Statement leakedStatement;
+            try (Connection c = pool.borrow()) {
+                leakedStatement = c.createStatement();
+                PreparedStatement ps = c.prepareStatement("SELECT 1");
+                DatabaseMetaData meta = c.getMetaData();
+                check(leakedStatement.getConnection() == c, "Statement.getConnection leaked the physical connection");
+                check(ps.getConnection() == c, "PreparedStatement.getConnection leaked the physical connection");
+                check(meta.getConnection() == c, "DatabaseMetaData.getConnection leaked the physical connection");
+                try (ResultSet rs = ps.executeQuery()) {
+                    check(rs.getStatement() == ps, "ResultSet.getStatement leaked the physical statement");
+                }
+                try (ResultSet rs = meta.getTables(null, null, "%", null)) {
+                    Statement owner = rs.getStatement();
+                    check(owner == null || owner.getConnection() == c, "metadata ResultSet leaked the physical connection");
+                }
+                check(c.unwrap(Connection.class) == c, "unwrap(Connection) leaked the physical connection");
+                check(!c.isWrapperFor(driverConnection), "isWrapperFor exposed the driver class");
+                check(!leakedStatement.isWrapperFor(driverStatement), "Statement.isWrapperFor exposed the driver class");
+                try {
+                    c.unwrap(driverConnection);
+                    throw new IllegalStateException("unwrap to the driver connection should fail");
+                } catch (SQLException expected) {
+                }
+            }
+            check(leakedStatement.isClosed(), "statement still open after its connection was returned");
+            try {
+                leakedStatement.executeQuery("SELECT 1");
+                throw new IllegalStateException("statement still usable after its connection was returned");
+            } catch (SQLException expected) {
+            }
+        }
+        System.out.println("no physical leak ok");
+    }
+
+    private static void check(boolean condition, String message) {
+        if (!condition) {
+            throw new IllegalStateException(message);
+        }
+    }
+}
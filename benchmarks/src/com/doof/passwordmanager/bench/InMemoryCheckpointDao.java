@@ -0,0 +1,40 @@
+package com.doof.passwordmanager.bench;
+
+import com.doof.passwordmanager.dao.CheckpointDao;
+import com.doof.passwordmanager.model.Checkpoint;
+
+import java.time.LocalDateTime;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Process-local checkpoints for benchmarks that do not need a database.
+ */
+class InMemoryCheckpointDao implements CheckpointDao {
+
+    private final Map<String, Checkpoint> checkpoints = new HashMap<>();
+
+    @Override
+    public synchronized Checkpoint find(String name) {
+        Checkpoint c = checkpoints.get(name);
+        return c == null ? null : copyOf(c);
+    }
+
+    @Override
+    public synchronized void save(Checkpoint checkpoint) {
+        Checkpoint c = copyOf(checkpoint);
+        c.setUpdatedAt(LocalDateTime.now());
+        checkpoints.put(c.getName(), c);
+    }
+
+    @Override
+    public synchronized void delete(String name) {
+        checkpoints.remove(name);
+    }
+
+    private static Checkpoint copyOf(Checkpoint c) {
+        Checkpoint copy = new Checkpoint(c.getName(), c.getPosition(), c.getPayload());
+        copy.setUpdatedAt(c.getUpdatedAt());
+        return copy;
+    }
+}
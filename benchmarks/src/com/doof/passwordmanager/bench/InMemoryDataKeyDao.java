@@ -0,0 +1,83 @@
+package com.doof.passwordmanager.bench;
+
+import com.doof.passwordmanager.dao.DataKeyDao;
+import com.doof.passwordmanager.model.DataKey;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * Process-local data keys for benchmarks whose accounts are not persisted either.
+ */
+class InMemoryDataKeyDao implements DataKeyDao {
+
+    private final TreeMap<Integer, DataKey> keys = new TreeMap<>();
+    private int nextId = 1;
+
+    @Override
+    public synchronized void insert(DataKey dataKey) {
+        DataKey stored = copyOf(dataKey);
+        stored.setId(nextId++);
+        stored.setCreatedAt(LocalDateTime.now());
+        keys.put(stored.getId(), stored);
+        dataKey.setId(stored.getId());
+    }
+
+    @Override
+    public synchronized DataKey find(int id) {
+        DataKey k = keys.get(id);
+        return k == null ? null : copyOf(k);
+    }
+
+    @Override
+    public synchronized DataKey findLatest() {
+        Map.Entry<Integer, DataKey> last = keys.lastEntry();
+        return last == null ? null : copyOf(last.getValue());
+    }
+
+    @Override
+    public synchronized List<DataKey> findAll() {
+        List<DataKey> all = new ArrayList<>(keys.size());
+        for (DataKey k : keys.values()) all.add(copyOf(k));
+        return all;
+    }
+
+    @Override
+    public synchronized void updateAll(List<DataKey> dataKeys) {
+        for (DataKey k : dataKeys) {
+            if (!keys.containsKey(k.getId())) {
+                throw new RuntimeException("Update failed: data key with id " + k.getId() + " does not exist.");
+            }
+        }
+        for (DataKey k : dataKeys) {
+            DataKey stored = keys.get(k.getId());
+            stored.setWrappedKey(k.getWrappedKey().clone());
+            stored.setIv(k.getIv().clone());
+        }
+    }
+
+    @Override
+    public synchronized void importAll(List<DataKey> dataKeys) {
+        for (DataKey k : dataKeys) {
+            if (keys.containsKey(k.getId())) {
+                throw new RuntimeException("Import failed: data key with id " + k.getId() + " already exists.");
+            }
+        }
+        for (DataKey k : dataKeys) {
+            DataKey stored = copyOf(k);
+            if (stored.getCreatedAt() == null) stored.setCreatedAt(LocalDateTime.now());
+            keys.put(stored.getId(), stored);
+            nextId = Math.max(nextId, stored.getId() + 1);
+        }
+    }
+
+    private static DataKey copyOf(DataKey k) {
+        return new DataKey(k.getId(),
+                k.getWrappedKey() == null ? null : k.getWrappedKey().clone(),
+                k.getIv() == null ? null : k.getIv().clone(),
+                k.getCreatedAt());
+    }
+}
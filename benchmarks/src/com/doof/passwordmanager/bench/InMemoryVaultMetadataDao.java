@@ -0,0 +1,36 @@
+package com.doof.passwordmanager.bench;
+
+import com.doof.passwordmanager.dao.VaultMetadataDao;
+import com.doof.passwordmanager.model.VaultMetadata;
+
+class InMemoryVaultMetadataDao implements VaultMetadataDao {
+    private VaultMetadata metadata;
+
+    @Override
+    public synchronized void insert(VaultMetadata metadata) {
+        if (this.metadata != null) {
+            throw new RuntimeException("Inserting vault metadata failed, no rows affected.");
+        }
+        this.metadata = copy(metadata);
+        this.metadata.setId(1);
+    }
+
+    @Override
+    public synchronized VaultMetadata find() {
+        return metadata == null ? null : copy(metadata);
+    }
+
+    @Override
+    public synchronized void update(VaultMetadata metadata) {
+        if (this.metadata == null) {
+            throw new RuntimeException("Updating vault metadata failed, no rows affected.");
+        }
+        this.metadata = copy(metadata);
+        this.metadata.setId(1);
+    }
+
+    private static VaultMetadata copy(VaultMetadata m) {
+        return new VaultMetadata(m.getId(), m.getKdfSalt().clone(), m.getKdfParams(), m.getMasterHash().clone(),
+                m.getEncVersion(), m.getCreatedAt(), m.getUpdatedAt());
+    }
+}
@@ -0,0 +1,83 @@
+package com.doof.passwordmanager.bench;
+
+import com.doof.passwordmanager.util.InputValidator;
+
+import java.lang.management.ManagementFactory;
+import java.net.MalformedURLException;
+import java.net.URL;
+import java.util.regex.Pattern;
+
+/**
+ * Per-call time and heap allocation of the email, password and website validators: the previous
+ * regex / java.net.URL checks against the single-pass InputValidator methods, on a mix of valid and
+ * invalid inputs. Usage: InputValidatorBenchmark [operations]
+ */
+public class InputValidatorBenchmark {
+
+    private static final com.sun.management.ThreadMXBean THREADS =
+            (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+
+    private static final Pattern LEGACY_EMAIL =
+            Pattern.compile("^[A-Za-z0-9+_.-]+@[A-Za-z0-9.-]+\\.[A-Za-z]{2,}$");
+    private static final Pattern LEGACY_PASSWORD =
+            Pattern.compile("^(?=.*[a-z])(?=.*[A-Z])(?=.*\\d).{8,}$");
+
+    private static final String[] EMAILS = {
+            "alice.smith+vault@example.com", "bob@mail.example.co.uk", "not-an-email", "carol@host.c0m",
+    };
+    private static final char[][] PASSWORDS = {
+            "Tr0ub4dor&3xyz".toCharArray(), "correcthorsebatterystaple".toCharArray(),
+            "Sh0rt".toCharArray(), "NoDigitsHereAtAll".toCharArray(),
+    };
+    private static final String[] WEBSITES = {
+            "accounts.example.com", "https://login.example.org:8443/sso?next=%2F", "bad host.com", "example.com:99999",
+    };
+
+    public static void main(String[] args) throws Exception {
+        int operations = args.length > 0 ? Integer.parseInt(args[0]) : 2_000_000;
+
+        Op legacyEmail = i -> LEGACY_EMAIL.matcher(EMAILS[i & 3].trim()).matches() ? 1 : 0;
+        Op newEmail = i -> InputValidator.isValidEmail(EMAILS[i & 3]) ? 1 : 0;
+        Op legacyPassword = i -> LEGACY_PASSWORD.matcher(new String(PASSWORDS[i & 3])).matches() ? 1 : 0;
+        Op newPassword = i -> InputValidator.isValidPassword(PASSWORDS[i & 3]) ? 1 : 0;
+        Op legacyWebsite = i -> legacyIsValidWebsite(WEBSITES[i & 3]) ? 1 : 0;
+        Op newWebsite = i -> InputValidator.isValidWebsite(WEBSITES[i & 3]) ? 1 : 0;
+
+        System.out.printf("operations=%d (inputs cycle through 2 valid and 2 invalid values)%n", operations);
+        System.out.printf("%-20s %12s %12s%n", "variant", "ns/op", "bytes/op");
+        run("email, regex", legacyEmail, operations);
+        run("email, single pass", newEmail, operations);
+        run("password, regex", legacyPassword, operations);
+        run("password, single pass", newPassword, operations);
+        run("website, URL", legacyWebsite, operations);
+        run("website, single pass", newWebsite, operations);
+    }
+
+    /** The old check, replayed as it was; the URL constructor is deprecated since JDK 20. */
+    @SuppressWarnings("deprecation")
+    private static boolean legacyIsValidWebsite(String website) {
+        try {
+            new URL("https://" + website.trim());
+            return true;
+        } catch (MalformedURLException e) {
+            return false;
+        }
+    }
+
+    private static void run(String label, Op op, int operations) throws Exception {
+        for (int i = 0; i < operations / 4; i++) op.run(i);
+        long tid = Thread.currentThread().threadId();
+        long allocBefore = THREADS.getThreadAllocatedBytes(tid);
+        long start = System.nanoTime();
+        long sink = 0;
+        for (int i = 0; i < operations; i++) sink += op.run(i);
+        long elapsed = System.nanoTime() - start;
+        long allocated = THREADS.getThreadAllocatedBytes(tid) - allocBefore;
+        System.out.printf("%-20s %12.1f %12d%s%n", label, (double) elapsed / operations, allocated / operations,
+                sink == 42 ? " " : "");
+    }
+
+    private interface Op {
+        int run(int i) throws Exception;
+    }
+}
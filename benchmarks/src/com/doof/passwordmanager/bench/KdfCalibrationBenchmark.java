@@ -0,0 +1,36 @@
+package com.doof.passwordmanager.bench;
+
+import com.doof.passwordmanager.util.KdfParams;
+import com.doof.passwordmanager.util.PasswordHasher;
+
+import java.util.Arrays;
+
+/**
+ * Calibrates PBKDF2 for a few unlock-time targets and checks how long a full derivation at the
+ * chosen cost really takes on this machine. Usage: KdfCalibrationBenchmark [targetMillis...]
+ */
+public class KdfCalibrationBenchmark {
+
+    public static void main(String[] args) {
+        long[] targets = args.length == 0 ? new long[]{100, 250, 500} : new long[args.length];
+        for (int i = 0; i < args.length; i++) targets[i] = Long.parseLong(args[i]);
+
+        char[] password = "BenchMaster1".toCharArray();
+        byte[] salt = PasswordHasher.generateSalt();
+        for (long target : targets) {
+            long calibrateStart = System.nanoTime();
+            KdfParams params = KdfParams.calibrated(target);
+            long calibrateNanos = System.nanoTime() - calibrateStart;
+
+            long[] samples = new long[5];
+            for (int i = 0; i < samples.length; i++) {
+                long start = System.nanoTime();
+                PasswordHasher.deriveKeys(password, salt, params).wipe();
+                samples[i] = System.nanoTime() - start;
+            }
+            Arrays.sort(samples);
+            System.out.printf("target=%4d ms  iterations=%,10d  unlock p50=%6.1f ms  max=%6.1f ms  (calibration took %.0f ms)%n",
+                    target, params.getIterations(), samples[2] / 1e6, samples[4] / 1e6, calibrateNanos / 1e6);
+        }
+    }
+}
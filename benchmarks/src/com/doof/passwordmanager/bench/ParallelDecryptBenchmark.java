@@ -0,0 +1,64 @@
+package com.doof.passwordmanager.bench;
+
+import com.doof.passwordmanager.service.AccountService.AccountInput;
+import com.doof.passwordmanager.service.AccountService.AccountView;
+import com.doof.passwordmanager.service.ApplicationConnector;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Times getAllAccountsDecrypted sequentially and with parallel decrypt across vault sizes.
+ * Usage: ParallelDecryptBenchmark [iterations] [size...]
+ */
+public class ParallelDecryptBenchmark {
+
+    public static void main(String[] args) {
+        int iterations = args.length > 0 ? Integer.parseInt(args[0]) : 10;
+        int[] sizes = args.length > 1
+                ? Arrays.stream(args, 1, args.length).mapToInt(Integer::parseInt).toArray()
+                : new int[]{1_000, 10_000, 50_000};
+
+        System.out.printf("cores=%d, iterations=%d%n", Runtime.getRuntime().availableProcessors(), iterations);
+        System.out.printf("%10s %16s %16s %10s%n", "rows", "sequential ms", "parallel ms", "speedup");
+        for (int size : sizes) {
+            SimulatedLatencyAccountDao accountDao = new SimulatedLatencyAccountDao(0);
+            ApplicationConnector connector = new ApplicationConnector(new InMemoryVaultMetadataDao(), accountDao,
+                    new InMemoryCheckpointDao(), new InMemoryDataKeyDao());
+            connector.createVault("BenchMaster1".toCharArray());
+            List<AccountInput> inputs = new ArrayList<>(size);
+            for (int i = 0; i < size; i++) {
+                inputs.add(new AccountInput("user" + i + "@example.com", "site" + i + ".example.com",
+                        ("Passw0rd-" + i).toCharArray()));
+            }
+            connector.addAccounts(inputs);
+            connector.setParallelDecryptThreshold(1);
+
+            connector.setParallelDecrypt(false);
+            double sequential = median(connector, iterations);
+            connector.setParallelDecrypt(true);
+            double parallel = median(connector, iterations);
+
+            System.out.printf("%10d %16.2f %16.2f %9.2fx%n", size, sequential, parallel, sequential / parallel);
+            connector.lockVault();
+        }
+    }
+
+    private static double median(ApplicationConnector connector, int iterations) {
+        for (int i = 0; i < 3; i++) wipe(connector.getAllAccountsDecrypted());
+        long[] samples = new long[iterations];
+        for (int i = 0; i < iterations; i++) {
+            long start = System.nanoTime();
+            List<AccountView> views = connector.getAllAccountsDecrypted();
+            samples[i] = System.nanoTime() - start;
+            wipe(views);
+        }
+        Arrays.sort(samples);
+        return samples[iterations / 2] / 1e6;
+    }
+
+    private static void wipe(List<AccountView> views) {
+        for (AccountView v : views) Arrays.fill(v.getPassword(), '\0');
+    }
+}
@@ -0,0 +1,69 @@
+package com.doof.passwordmanager.bench;
+
+import com.doof.passwordmanager.model.Account;
+import com.doof.passwordmanager.service.AccountService.AccountView;
+import com.doof.passwordmanager.service.ApplicationConnector;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Compares the old Dashboard search path (search, then one getAccountByIdDecrypted per hit)
+ * against searchDecrypted. Usage: SearchDecryptBenchmark [rows] [latencyMicros] [iterations]
+ */
+public class SearchDecryptBenchmark {
+
+    public static void main(String[] args) {
+        int rows = args.length > 0 ? Integer.parseInt(args[0]) : 200;
+        long latencyMicros = args.length > 1 ? Long.parseLong(args[1]) : 500;
+        int iterations = args.length > 2 ? Integer.parseInt(args[2]) : 20;
+
+        SimulatedLatencyAccountDao accountDao = new SimulatedLatencyAccountDao(0);
+        ApplicationConnector connector = new ApplicationConnector(new InMemoryVaultMetadataDao(), accountDao,
+                new InMemoryCheckpointDao(), new InMemoryDataKeyDao());
+        connector.createVault("BenchMaster1".toCharArray());
+        for (int i = 0; i < rows; i++) {
+            connector.addAccount("user" + i + "@example.com", "site" + i + ".example.com", ("Passw0rd" + i).toCharArray());
+        }
+        accountDao.setLatencyNanos(latencyMicros * 1_000L);
+
+        System.out.printf("rows=%d, simulated round trip=%d us, iterations=%d%n", rows, latencyMicros, iterations);
+        run("search + getAccountByIdDecrypted", iterations, accountDao, () -> {
+            List<Account> hits = connector.search("example", rows, 0);
+            List<AccountView> views = new ArrayList<>();
+            for (Account a : hits) {
+                AccountView v = connector.getAccountByIdDecrypted(a.getId());
+                if (v != null) views.add(v);
+            }
+            return views;
+        });
+        run("searchDecrypted", iterations, accountDao, () -> connector.searchDecrypted("example", rows, 0));
+
+        connector.lockVault();
+    }
+
+    private static void run(String label, int iterations, SimulatedLatencyAccountDao dao, SearchPath path) {
+        wipe(path.load());
+        dao.resetRoundTrips();
+        long[] samples = new long[iterations];
+        for (int i = 0; i < iterations; i++) {
+            long start = System.nanoTime();
+            List<AccountView> views = path.load();
+            samples[i] = System.nanoTime() - start;
+            wipe(views);
+        }
+        Arrays.sort(samples);
+        System.out.printf("%-36s round trips/search=%6d  p50=%8.2f ms  p95=%8.2f ms%n",
+                label, dao.getRoundTrips() / iterations,
+                samples[iterations / 2] / 1e6, samples[(int) (iterations * 0.95)] / 1e6);
+    }
+
+    private static void wipe(List<AccountView> views) {
+        for (AccountView v : views) Arrays.fill(v.getPassword(), '\0');
+    }
+
+    private interface SearchPath {
+        List<AccountView> load();
+    }
+}
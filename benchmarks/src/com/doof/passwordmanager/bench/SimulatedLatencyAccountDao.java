@@ -0,0 +1,289 @@
+package com.doof.passwordmanager.bench;
+
+import com.doof.passwordmanager.dao.AccountDao;
+import com.doof.passwordmanager.model.Account;
+import com.doof.passwordmanager.model.AccountTombstone;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.TreeMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.LockSupport;
+import java.util.function.Consumer;
+
+/**
+ * In-memory AccountDao that charges a fixed latency per call, standing in for one
+ * JDBC round trip, and counts how many round trips were made.
+ */
+class SimulatedLatencyAccountDao implements AccountDao {
+    private final TreeMap<Integer, Account> rows = new TreeMap<>();
+    private final List<AccountTombstone> deletions = new ArrayList<>();
+    private final AtomicLong roundTrips = new AtomicLong();
+    private volatile long latencyNanos;
+    private int nextId = 1;
+
+    SimulatedLatencyAccountDao(long latencyNanos) {
+        this.latencyNanos = latencyNanos;
+    }
+
+    void setLatencyNanos(long latencyNanos) {
+        this.latencyNanos = latencyNanos;
+    }
+
+    long getRoundTrips() {
+        return roundTrips.get();
+    }
+
+    void resetRoundTrips() {
+        roundTrips.set(0);
+    }
+
+    @Override
+    public synchronized void addAccount(Account account) {
+        roundTrip();
+        Account stored = copy(account);
+        stored.setId(nextId++);
+        stored.setCreatedAt(LocalDateTime.now());
+        stored.setUpdatedAt(stored.getCreatedAt());
+        rows.put(stored.getId(), stored);
+        account.setId(stored.getId());
+        account.setCreatedAt(stored.getCreatedAt());
+        account.setUpdatedAt(stored.getUpdatedAt());
+    }
+
+    @Override
+    public synchronized int[] addAccounts(List<Account> accounts) {
+        roundTrip();
+        int[] ids = new int[accounts.size()];
+        for (int i = 0; i < accounts.size(); i++) {
+            Account stored = copy(accounts.get(i));
+            stored.setId(nextId++);
+            stored.setCreatedAt(LocalDateTime.now());
+            stored.setUpdatedAt(stored.getCreatedAt());
+            rows.put(stored.getId(), stored);
+            ids[i] = stored.getId();
+            accounts.get(i).setId(ids[i]);
+            accounts.get(i).setCreatedAt(stored.getCreatedAt());
+            accounts.get(i).setUpdatedAt(stored.getUpdatedAt());
+        }
+        return ids;
+    }
+
+    @Override
+    public synchronized List<Account> getAllAccounts() {
+        roundTrip();
+        List<Account> result = new ArrayList<>(rows.size());
+        for (Account a : rows.values()) result.add(copy(a));
+        return result;
+    }
+
+    @Override
+    public void forEachAccount(Consumer<Account> action) {
+        roundTrip();
+        Integer next;
+        synchronized (this) {
+            next = rows.isEmpty() ? null : rows.firstKey();
+        }
+        while (next != null) {
+            Account a;
+            synchronized (this) {
+                a = copy(rows.get(next));
+                next = rows.higherKey(next);
+            }
+            action.accept(a);
+        }
+    }
+
+    @Override
+    public void forEachAccountUpdatedSince(LocalDateTime since, Consumer<Account> action) {
+        roundTrip();
+        List<Account> changed = new ArrayList<>();
+        synchronized (this) {
+            for (Account a : rows.values()) {
+                if (!a.getUpdatedAt().isBefore(since)) changed.add(copy(a));
+            }
+        }
+        changed.forEach(action);
+    }
+
+    @Override
+    public void forEachDeletionSince(LocalDateTime since, Consumer<AccountTombstone> action) {
+        roundTrip();
+        List<AccountTombstone> deleted = new ArrayList<>();
+        synchronized (this) {
+            for (AccountTombstone t : deletions) {
+                if (!t.getDeletedAt().isBefore(since)) deleted.add(new AccountTombstone(t.getAccountId(), t.getDeletedAt()));
+            }
+        }
+        deleted.forEach(action);
+    }
+
+    @Override
+    public synchronized List<Account> getAccountsAfter(int afterId, int limit) {
+        roundTrip();
+        List<Account> result = new ArrayList<>(Math.min(limit, rows.size()));
+        for (Account a : rows.tailMap(afterId, false).values()) {
+            result.add(copy(a));
+            if (result.size() >= limit) break;
+        }
+        return result;
+    }
+
+    @Override
+    public synchronized List<Account> getAccountsBelowEncVersion(int encVersion, int afterId, int limit) {
+        roundTrip();
+        List<Account> result = new ArrayList<>();
+        for (Account a : rows.tailMap(afterId, false).values()) {
+            if (a.getEncVersion() >= encVersion) continue;
+            result.add(copy(a));
+            if (result.size() >= limit) break;
+        }
+        return result;
+    }
+
+    @Override
+    public synchronized Account getAccountById(int id) {
+        roundTrip();
+        Account a = rows.get(id);
+        return a == null ? null : copy(a);
+    }
+
+    @Override
+    public synchronized void updateAccount(Account account) {
+        roundTrip();
+        if (!rows.containsKey(account.getId())) {
+            throw new RuntimeException("Update failed: account with id " + account.getId() + " does not exist.");
+        }
+        Account stored = copy(account);
+        stored.setCreatedAt(rows.get(account.getId()).getCreatedAt());
+        stored.setUpdatedAt(LocalDateTime.now());
+        rows.put(stored.getId(), stored);
+        account.setCreatedAt(stored.getCreatedAt());
+        account.setUpdatedAt(stored.getUpdatedAt());
+    }
+
+    @Override
+    public synchronized void updateAccounts(List<Account> accounts) {
+        roundTrip();
+        for (Account a : accounts) {
+            if (!rows.containsKey(a.getId())) {
+                throw new RuntimeException("Update failed: account with id " + a.getId() + " does not exist.");
+            }
+        }
+        for (Account a : accounts) {
+            Account stored = copy(a);
+            stored.setCreatedAt(rows.get(a.getId()).getCreatedAt());
+            stored.setUpdatedAt(LocalDateTime.now());
+            rows.put(stored.getId(), stored);
+            a.setCreatedAt(stored.getCreatedAt());
+            a.setUpdatedAt(stored.getUpdatedAt());
+        }
+    }
+
+    @Override
+    public synchronized int upgradeEncryption(List<Account> accounts) {
+        roundTrip();
+        int upgraded = 0;
+        for (Account a : accounts) {
+            Account stored = rows.get(a.getId());
+            if (stored == null || stored.getEncVersion() >= a.getEncVersion()) continue;
+            stored.setPasswordEncrypted(a.getPasswordEncrypted().clone());
+            stored.setIv(a.getIv().clone());
+            stored.setEncVersion(a.getEncVersion());
+            stored.setUpdatedAt(LocalDateTime.now());
+            upgraded++;
+        }
+        return upgraded;
+    }
+
+    @Override
+    public synchronized Account findByEmailAndWebsite(String email, String website) {
+        roundTrip();
+        for (Account a : rows.values()) {
+            if (a.getEmail().equalsIgnoreCase(email) && a.getWebsite().equalsIgnoreCase(website)) {
+                return copy(a);
+            }
+        }
+        return null;
+    }
+
+    @Override
+    public synchronized void deleteAccount(int id) {
+        roundTrip();
+        if (rows.remove(id) == null) {
+            throw new RuntimeException("Delete failed: account with id " + id + " does not exist.");
+        }
+        deletions.add(new AccountTombstone(id, LocalDateTime.now()));
+    }
+
+    @Override
+    public synchronized void importAccounts(List<Account> accounts) {
+        roundTrip();
+        for (Account a : accounts) {
+            if (rows.containsKey(a.getId())) {
+                throw new RuntimeException("Import failed: account with id " + a.getId() + " already exists.");
+            }
+        }
+        for (Account a : accounts) {
+            Account stored = copy(a);
+            if (stored.getCreatedAt() == null) stored.setCreatedAt(LocalDateTime.now());
+            if (stored.getUpdatedAt() == null) stored.setUpdatedAt(stored.getCreatedAt());
+            rows.put(stored.getId(), stored);
+            nextId = Math.max(nextId, stored.getId() + 1);
+        }
+    }
+
+    @Override
+    public synchronized void removeAccounts(int[] ids) {
+        roundTrip();
+        for (int id : ids) rows.remove(id);
+    }
+
+    @Override
+    public synchronized List<Account> search(String query, int limit, int offset) {
+        roundTrip();
+        String q = query.toLowerCase(Locale.ROOT);
+        List<Account> result = new ArrayList<>();
+        int skipped = 0;
+        for (Account a : rows.values()) {
+            if (!matches(a, q)) continue;
+            if (skipped++ < offset) continue;
+            result.add(copy(a));
+            if (result.size() >= limit) break;
+        }
+        return result;
+    }
+
+    @Override
+    public synchronized List<Account> searchAfter(String query, int afterId, int limit) {
+        roundTrip();
+        String q = query.toLowerCase(Locale.ROOT);
+        List<Account> result = new ArrayList<>();
+        for (Account a : rows.tailMap(afterId, false).values()) {
+            if (!matches(a, q)) continue;
+            result.add(copy(a));
+            if (result.size() >= limit) break;
+        }
+        return result;
+    }
+
+    private static boolean matches(Account a, String lowerQuery) {
+        return a.getEmail().toLowerCase(Locale.ROOT).contains(lowerQuery)
+                || a.getWebsite().toLowerCase(Locale.ROOT).contains(lowerQuery);
+    }
+
+    private void roundTrip() {
+        roundTrips.incrementAndGet();
+        long nanos = latencyNanos;
+        if (nanos > 0) LockSupport.parkNanos(nanos);
+    }
+
+    private static Account copy(Account a) {
+        return new Account(a.getId(), a.getEmail(), a.getWebsite(),
+                a.getPasswordEncrypted() == null ? null : a.getPasswordEncrypted().clone(),
+                a.getIv() == null ? null : a.getIv().clone(),
+                a.getEncVersion(), a.getCreatedAt(), a.getUpdatedAt());
+    }
+}
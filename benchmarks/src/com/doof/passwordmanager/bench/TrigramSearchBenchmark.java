@@ -0,0 +1,78 @@
+package com.doof.passwordmanager.bench;
+
+import com.doof.passwordmanager.model.Account;
+import com.doof.passwordmanager.service.ApplicationConnector;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Measures build time, heap cost and query latency of the in-memory search index against the
+ * DAO scan it replaces. Rows are seeded straight into the DAO with dummy ciphertext, since the
+ * index never decrypts. The index budget is raised to 1 GB so the largest sizes still build.
+ * Usage: TrigramSearchBenchmark [rows...]
+ */
+public class TrigramSearchBenchmark {
+
+    private static final String[] QUERIES = {"user4242", "site9", "example.com", "@ex", "nomatch-xyz"};
+
+    public static void main(String[] args) throws InterruptedException {
+        int[] sizes = args.length == 0 ? new int[]{10_000, 100_000} : new int[args.length];
+        for (int i = 0; i < args.length; i++) sizes[i] = Integer.parseInt(args[i]);
+        for (int rows : sizes) {
+            run(rows);
+        }
+    }
+
+    private static void run(int rows) throws InterruptedException {
+        SimulatedLatencyAccountDao accountDao = new SimulatedLatencyAccountDao(0);
+        List<Account> seed = new ArrayList<>(rows);
+        for (int i = 0; i < rows; i++) {
+            seed.add(new Account("user" + i + "@example.com", "site" + i + ".example.com", new byte[24], new byte[12], 1));
+        }
+        accountDao.addAccounts(seed);
+        seed = null;
+
+        ApplicationConnector connector = new ApplicationConnector(new InMemoryVaultMetadataDao(), accountDao,
+                new InMemoryCheckpointDao(), new InMemoryDataKeyDao());
+        connector.setSearchIndexMaxBytes(1L << 30);
+        long heapBefore = usedHeap();
+        long start = System.nanoTime();
+        connector.createVault("BenchMaster1".toCharArray());
+        while (!connector.isSearchIndexReady()) {
+            if (connector.getSearchIndexProblem() != null) {
+                throw new IllegalStateException(connector.getSearchIndexProblem());
+            }
+            Thread.sleep(1);
+        }
+        long buildNanos = System.nanoTime() - start;
+        long heapDelta = usedHeap() - heapBefore;
+        System.out.printf("rows=%d  build=%.1f ms  heap~%.1f MB%n", rows, buildNanos / 1e6, heapDelta / 1048576.0);
+
+        for (String q : QUERIES) {
+            double indexed = perQueryMicros(() -> connector.searchPage(q, null, 50));
+            double scanned = perQueryMicros(() -> accountDao.searchAfter(q, 0, 51));
+            System.out.printf("  %-14s index=%10.1f us   dao scan=%10.1f us%n", q, indexed, scanned);
+        }
+        connector.lockVault();
+    }
+
+    private static double perQueryMicros(Runnable query) {
+        for (int i = 0; i < 20; i++) query.run();
+        int iterations = 0;
+        long start = System.nanoTime();
+        long elapsed;
+        do {
+            query.run();
+            iterations++;
+            elapsed = System.nanoTime() - start;
+        } while (elapsed < 500_000_000L);
+        return elapsed / 1e3 / iterations;
+    }
+
+    private static long usedHeap() {
+        Runtime rt = Runtime.getRuntime();
+        for (int i = 0; i < 3; i++) System.gc();
+        return rt.totalMemory() - rt.freeMemory();
+    }
+}
@@ -0,0 +1,125 @@
+package com.doof.passwordmanager.bench.jmh;
+
+import com.doof.passwordmanager.backup.BackupInfo;
+import com.doof.passwordmanager.backup.BackupReader;
+import com.doof.passwordmanager.dao.FileAccountDao;
+import com.doof.passwordmanager.dao.FileCheckpointDao;
+import com.doof.passwordmanager.dao.FileDataKeyDao;
+import com.doof.passwordmanager.dao.FileVaultMetadataDao;
+import com.doof.passwordmanager.model.Account;
+import com.doof.passwordmanager.model.VaultMetadata;
+import com.doof.passwordmanager.service.ApplicationConnector;
+import com.doof.passwordmanager.store.VaultStore;
+import com.doof.passwordmanager.util.PasswordEncryptor;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Full backup of a local vault file of {@code rows} accounts, an incremental backup after
+ * {@code churn} of them changed, and verifying plus streaming the full backup back as restore does
+ * before its inserts. The seeded rows are dated a day back, so only the churned ones fall inside
+ * the incremental window. Run with -Xmx to check the heap stays flat as rows grows.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 2)
+@Measurement(iterations = 5)
+@Fork(1)
+public class BackupBenchmark {
+
+    @Param({"100000"})
+    public int rows;
+
+    @Param({"1000"})
+    public int churn;
+
+    private Path dir;
+    private VaultStore store;
+    private ApplicationConnector connector;
+    private Path backup;
+
+    @Setup
+    public void setUp() {
+        try {
+            dir = Files.createTempDirectory("backup-bench");
+        } catch (IOException e) {
+            throw new RuntimeException(e);
+        }
+        store = VaultStore.open(dir.resolve("vault.dat"));
+        FileAccountDao accountDao = new FileAccountDao(store);
+        VaultMetadata metadata = new VaultMetadata();
+        metadata.setKdfSalt(new byte[16]);
+        metadata.setKdfParams("{}");
+        metadata.setMasterHash(new byte[32]);
+        metadata.setEncVersion(3);
+        store.insertMetadata(metadata);
+
+        byte[] ciphertext = new byte[Integer.BYTES + PasswordEncryptor.ciphertextLength(24)];
+        LocalDateTime seeded = LocalDateTime.now().minusDays(1);
+        List<Account> batch = new ArrayList<>(1000);
+        for (int i = 0; i < rows; i++) {
+            batch.add(new Account(i + 1, "seed" + i + "@example.com", "seed" + i + ".example.com", ciphertext,
+                    PasswordEncryptor.generateIV(), 3, seeded, seeded));
+            if (batch.size() == 1000 || i == rows - 1) {
+                accountDao.importAccounts(batch);
+                batch.clear();
+            }
+        }
+        connector = new ApplicationConnector(new FileVaultMetadataDao(store), accountDao,
+                new FileCheckpointDao(store), new FileDataKeyDao(store));
+        backup = dir.resolve("vault.bak");
+        connector.exportBackup(backup);
+
+        int step = Math.max(1, rows / churn);
+        for (int id = 1; id <= rows; id += step) batch.add(accountDao.getAccountById(id));
+        accountDao.updateAccounts(batch);
+    }
+
+    @TearDown
+    public void tearDown() throws IOException {
+        store.close();
+        try (var files = Files.list(dir)) {
+            for (Path p : files.toList()) Files.deleteIfExists(p);
+        }
+        Files.deleteIfExists(dir);
+    }
+
+    @Benchmark
+    public BackupInfo export() {
+        return connector.exportBackup(dir.resolve("export.bak"));
+    }
+
+    @Benchmark
+    public BackupInfo exportIncremental() {
+        return connector.exportIncrementalBackup(dir.resolve("incremental.bak"));
+    }
+
+    @Benchmark
+    public long verifyAndRead() {
+        try (BackupReader reader = new BackupReader(backup)) {
+            reader.verify(m -> {}, k -> {});
+            long[] count = {0};
+            reader.forEachAccountBlock(block -> count[0] += block.size());
+            return count[0];
+        }
+    }
+}
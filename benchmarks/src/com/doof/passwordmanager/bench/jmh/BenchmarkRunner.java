@@ -0,0 +1,52 @@
+package com.doof.passwordmanager.bench.jmh;
+
+import org.openjdk.jmh.results.format.ResultFormatType;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.options.ChainedOptionsBuilder;
+import org.openjdk.jmh.runner.options.CommandLineOptions;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import java.io.File;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeFormatter;
+import java.util.Locale;
+
+/**
+ * Entry point of benchmarks.jar. Accepts the usual JMH command line, but unless {@code -rf} /
+ * {@code -rff} are given it writes a CSV report to
+ * {@code results/jmh-<label>-<timestamp>.csv}, where the label comes from
+ * {@code -Ddoof.bench.label} (for example a git tag or commit). Two such reports can be compared
+ * with {@link ReportCompare}.
+ */
+public class BenchmarkRunner {
+
+    private static final DateTimeFormatter STAMP = DateTimeFormatter.ofPattern("yyyyMMdd-HHmmss");
+
+    public static void main(String[] args) throws Exception {
+        // JMH formats CSV scores with the default locale; keep the decimal point stable.
+        Locale.setDefault(Locale.ROOT);
+        CommandLineOptions cli = new CommandLineOptions(args);
+        if (cli.shouldHelp()) {
+            cli.showHelp();
+            return;
+        }
+        if (cli.shouldList() || cli.shouldListWithParams()) {
+            new Runner(cli).list();
+            return;
+        }
+
+        ChainedOptionsBuilder options = new OptionsBuilder().parent(cli);
+        if (!cli.getResult().hasValue()) {
+            File dir = new File("results");
+            if (!dir.isDirectory() && !dir.mkdirs()) {
+                throw new IllegalStateException("Cannot create " + dir.getAbsolutePath());
+            }
+            String label = System.getProperty("doof.bench.label", "snapshot");
+            options.result(new File(dir, "jmh-" + label + "-" + LocalDateTime.now().format(STAMP) + ".csv").getPath());
+        }
+        if (!cli.getResultFormat().hasValue()) {
+            options.resultFormat(ResultFormatType.CSV);
+        }
+        new Runner(options.build()).run();
+    }
+}
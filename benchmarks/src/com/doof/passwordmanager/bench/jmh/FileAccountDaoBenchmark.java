@@ -0,0 +1,155 @@
+package com.doof.passwordmanager.bench.jmh;
+
+import com.doof.passwordmanager.dao.FileAccountDao;
+import com.doof.passwordmanager.model.Account;
+import com.doof.passwordmanager.store.FsyncPolicy;
+import com.doof.passwordmanager.store.VaultStore;
+import com.doof.passwordmanager.util.PasswordEncryptor;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.SplittableRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * The same operations as JdbcAccountDaoBenchmark against the local vault file, plus the cost of
+ * opening (replaying) a vault of {@code rows} accounts. Whether writes include forcing the record
+ * to disk depends on {@code fsync}; updateFourThreads shows what group commit saves under
+ * concurrent writers.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class FileAccountDaoBenchmark {
+
+    private static final int PAGE_SIZE = 50;
+
+    @Param({"10000"})
+    public int rows;
+
+    @Param({"ALWAYS", "GROUP", "NEVER"})
+    public FsyncPolicy fsync;
+
+    private Path dir;
+    private Path file;
+    private Path copy;
+    private VaultStore store;
+    private FileAccountDao dao;
+    private byte[] ciphertext;
+    private int inserted;
+
+    @Setup
+    public void setUp() throws IOException {
+        dir = Files.createTempDirectory("vault-bench");
+        file = dir.resolve("vault.dat");
+        store = VaultStore.open(file);
+        dao = new FileAccountDao(store);
+        ciphertext = new byte[PasswordEncryptor.ciphertextLength(24)];
+
+        List<Account> batch = new ArrayList<>(1000);
+        for (int i = 0; i < rows; i++) {
+            batch.add(newAccount("seed" + i));
+            if (batch.size() == 1000 || i == rows - 1) {
+                dao.addAccounts(batch);
+                batch.clear();
+            }
+        }
+        store.close();
+        copy = dir.resolve("vault-copy.dat");
+        Files.copy(file, copy);
+        store = VaultStore.open(file, fsync, 1000);
+        dao = new FileAccountDao(store);
+    }
+
+    @TearDown
+    public void tearDown() throws IOException {
+        store.close();
+        Files.deleteIfExists(file);
+        Files.deleteIfExists(copy);
+        Files.deleteIfExists(dir);
+    }
+
+    @State(Scope.Thread)
+    public static class Cursor {
+        final SplittableRandom random = new SplittableRandom(42);
+    }
+
+    @Benchmark
+    public Account getById(Cursor c) {
+        return dao.getAccountById(1 + c.random.nextInt(rows));
+    }
+
+    @Benchmark
+    public Account findByEmailAndWebsite(Cursor c) {
+        int n = c.random.nextInt(rows);
+        return dao.findByEmailAndWebsite("seed" + n + "@example.com", "seed" + n + ".example.com");
+    }
+
+    @Benchmark
+    public List<Account> pageAfter(Cursor c) {
+        return dao.getAccountsAfter(1 + c.random.nextInt(rows), PAGE_SIZE);
+    }
+
+    @Benchmark
+    public List<Account> searchAfter(Cursor c) {
+        return dao.searchAfter("seed" + c.random.nextInt(100), 0, PAGE_SIZE);
+    }
+
+    @Benchmark
+    public void update(Cursor c) {
+        int n = c.random.nextInt(rows);
+        dao.updateAccount(new Account(1 + n, "seed" + n + "@example.com", "seed" + n + ".example.com",
+                ciphertext, PasswordEncryptor.generateIV(), 3, null, null));
+    }
+
+    @Benchmark
+    @Threads(4)
+    public void updateFourThreads(Cursor c) {
+        update(c);
+    }
+
+    @Benchmark
+    public int insertThenDelete() {
+        Account a = newAccount("extra" + inserted++);
+        dao.addAccount(a);
+        dao.deleteAccount(a.getId());
+        return a.getId();
+    }
+
+    /**
+     * Startup cost: opening and replaying a copy of the freshly seeded vault.
+     */
+    @Benchmark
+    @BenchmarkMode(Mode.SingleShotTime)
+    @OutputTimeUnit(TimeUnit.MILLISECONDS)
+    @Warmup(iterations = 3)
+    @Measurement(iterations = 10)
+    public int open() {
+        try (VaultStore replayed = VaultStore.open(copy)) {
+            return replayed.getAccountCount();
+        }
+    }
+
+    private Account newAccount(String name) {
+        return new Account(name + "@example.com", name + ".example.com", ciphertext, PasswordEncryptor.generateIV(), 3);
+    }
+}
@@ -0,0 +1,147 @@
+package com.doof.passwordmanager.bench.jmh;
+
+import com.doof.passwordmanager.dao.JdbcAccountDao;
+import com.doof.passwordmanager.db.ConnectionManager;
+import com.doof.passwordmanager.model.Account;
+import com.doof.passwordmanager.util.PasswordEncryptor;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.sql.Connection;
+import java.sql.ResultSet;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.SplittableRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * JdbcAccountDao CRUD against an in-memory H2 database in MySQL mode, through the real
+ * ConnectionManager pool. Numbers exclude network round trips, so they track the DAO's own cost
+ * (statement setup, row mapping, batching) rather than what a MySQL server would add.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 1, jvmArgsAppend = {
+        "-Ddoof.db.url=jdbc:h2:mem:bench;MODE=MySQL;DATABASE_TO_LOWER=TRUE;DB_CLOSE_DELAY=-1",
+        "-Ddoof.db.driver=org.h2.Driver",
+        "-Ddoof.db.user=sa",
+        "-Ddoof.db.password="})
+public class JdbcAccountDaoBenchmark {
+
+    private static final int PAGE_SIZE = 50;
+
+    @Param({"10000"})
+    public int rows;
+
+    private JdbcAccountDao dao;
+    private byte[] ciphertext;
+    private int firstId;
+    private int inserted;
+
+    @Setup
+    public void setUp() throws Exception {
+        try (Connection conn = ConnectionManager.getConnection();
+             Statement st = conn.createStatement()) {
+            for (String ddl : readSchema().split(";")) {
+                if (!ddl.isBlank()) st.execute(ddl);
+            }
+            st.execute("TRUNCATE TABLE accounts");
+        }
+        dao = new JdbcAccountDao();
+        ciphertext = new byte[PasswordEncryptor.ciphertextLength(24)];
+
+        List<Account> batch = new ArrayList<>(1000);
+        for (int i = 0; i < rows; i++) {
+            batch.add(newAccount("seed" + i));
+            if (batch.size() == 1000 || i == rows - 1) {
+                dao.addAccounts(batch);
+                batch.clear();
+            }
+        }
+        try (Connection conn = ConnectionManager.getConnection();
+             Statement st = conn.createStatement();
+             ResultSet rs = st.executeQuery("SELECT MIN(id) FROM accounts")) {
+            rs.next();
+            firstId = rs.getInt(1);
+        }
+    }
+
+    @TearDown
+    public void tearDown() {
+        ConnectionManager.shutdown();
+    }
+
+    @State(Scope.Thread)
+    public static class Cursor {
+        final SplittableRandom random = new SplittableRandom(42);
+    }
+
+    @Benchmark
+    public Account getById(Cursor c) {
+        return dao.getAccountById(firstId + c.random.nextInt(rows));
+    }
+
+    @Benchmark
+    public Account findByEmailAndWebsite(Cursor c) {
+        int n = c.random.nextInt(rows);
+        return dao.findByEmailAndWebsite("seed" + n + "@example.com", "seed" + n + ".example.com");
+    }
+
+    @Benchmark
+    public List<Account> pageAfter(Cursor c) {
+        return dao.getAccountsAfter(firstId + c.random.nextInt(rows), PAGE_SIZE);
+    }
+
+    @Benchmark
+    public List<Account> searchAfter(Cursor c) {
+        return dao.searchAfter("seed" + c.random.nextInt(100), 0, PAGE_SIZE);
+    }
+
+    @Benchmark
+    public void update(Cursor c) {
+        int n = c.random.nextInt(rows);
+        Account a = new Account(firstId + n, "seed" + n + "@example.com", "seed" + n + ".example.com",
+                ciphertext, PasswordEncryptor.generateIV(), 3, null, null);
+        dao.updateAccount(a);
+    }
+
+    @Benchmark
+    public int insertThenDelete() {
+        Account a = newAccount("extra" + inserted++);
+        dao.addAccount(a);
+        dao.deleteAccount(a.getId());
+        return a.getId();
+    }
+
+    private Account newAccount(String name) {
+        return new Account(name + "@example.com", name + ".example.com", ciphertext, PasswordEncryptor.generateIV(), 3);
+    }
+
+    private static String readSchema() throws IOException {
+        try (InputStream in = JdbcAccountDaoBenchmark.class.getResourceAsStream("/h2-schema.sql")) {
+            if (in == null) throw new IOException("h2-schema.sql missing from the benchmark classpath");
+            StringBuilder sql = new StringBuilder();
+            for (String line : new String(in.readAllBytes(), StandardCharsets.UTF_8).split("\n")) {
+                if (!line.startsWith("--")) sql.append(line).append('\n');
+            }
+            return sql.toString();
+        }
+    }
+}
@@ -0,0 +1,55 @@
+package com.doof.passwordmanager.bench.jmh;
+
+import com.doof.passwordmanager.util.DerivedKeys;
+import com.doof.passwordmanager.util.KdfParams;
+import com.doof.passwordmanager.util.PasswordHasher;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Cost of one unlock-time key derivation: PBKDF2 with the vault's parameters followed by the HKDF
+ * split, at the default iteration count and at a typical calibrated one.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 2, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class KdfBenchmark {
+
+    @Param({"100000", "600000"})
+    public int iterations;
+
+    private char[] password;
+    private byte[] salt;
+    private KdfParams params;
+
+    @Setup
+    public void setUp() {
+        password = "correct horse battery staple".toCharArray();
+        salt = PasswordHasher.generateSalt();
+        params = KdfParams.defaults().withIterations(iterations);
+    }
+
+    @Benchmark
+    public byte[] deriveKeys() {
+        DerivedKeys keys = PasswordHasher.deriveKeys(password, salt, params);
+        try {
+            return keys.verifier();
+        } finally {
+            keys.wipe();
+        }
+    }
+}
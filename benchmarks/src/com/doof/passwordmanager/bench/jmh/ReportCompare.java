@@ -0,0 +1,126 @@
+package com.doof.passwordmanager.bench.jmh;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+
+/**
+ * Compares two CSV reports written by {@link BenchmarkRunner} and prints the change of every
+ * benchmark present in both. A result counts as a regression when it is worse by more than the
+ * threshold and by more than the two runs' combined error; the exit status is 1 if any are found,
+ * so the check can gate a build. Usage: ReportCompare baseline.csv candidate.csv [thresholdPercent]
+ */
+public class ReportCompare {
+
+    public static void main(String[] args) throws IOException {
+        if (args.length < 2) {
+            System.err.println("Usage: ReportCompare baseline.csv candidate.csv [thresholdPercent]");
+            System.exit(2);
+        }
+        Map<String, Row> baseline = read(Path.of(args[0]));
+        Map<String, Row> candidate = read(Path.of(args[1]));
+        double threshold = args.length > 2 ? Double.parseDouble(args[2]) : 10.0;
+
+        int regressions = 0;
+        System.out.printf(Locale.ROOT, "%-60s %14s %14s %9s%n", "benchmark", "baseline", "candidate", "change");
+        for (Map.Entry<String, Row> e : candidate.entrySet()) {
+            Row before = baseline.get(e.getKey());
+            if (before == null) continue;
+            Row after = e.getValue();
+            double change = (after.score - before.score) / before.score * 100.0;
+            double worseBy = after.higherIsBetter() ? -change : change;
+            boolean regressed = worseBy > threshold && Math.abs(after.score - before.score) > before.error + after.error;
+            if (regressed) regressions++;
+            System.out.printf(Locale.ROOT, "%-60s %14.3f %14.3f %+8.1f%% %s%s%n", e.getKey(),
+                    before.score, after.score, change, after.unit, regressed ? "  REGRESSION" : "");
+        }
+        for (String key : baseline.keySet()) {
+            if (!candidate.containsKey(key)) System.out.printf("%-60s missing from candidate%n", key);
+        }
+        System.out.printf(Locale.ROOT, "%d regression(s) above %.1f%%%n", regressions, threshold);
+        System.exit(regressions == 0 ? 0 : 1);
+    }
+
+    private static Map<String, Row> read(Path file) throws IOException {
+        List<String> lines = Files.readAllLines(file, StandardCharsets.UTF_8);
+        if (lines.isEmpty()) throw new IOException("Empty report: " + file);
+        List<String> header = split(lines.get(0));
+        int benchmark = header.indexOf("Benchmark");
+        int mode = header.indexOf("Mode");
+        int score = header.indexOf("Score");
+        int unit = header.indexOf("Unit");
+        int error = -1;
+        for (int i = 0; i < header.size(); i++) {
+            if (header.get(i).startsWith("Score Error")) error = i;
+        }
+        if (benchmark < 0 || mode < 0 || score < 0 || unit < 0) {
+            throw new IOException("Not a JMH CSV report: " + file);
+        }
+
+        Map<String, Row> rows = new LinkedHashMap<>();
+        for (int n = 1; n < lines.size(); n++) {
+            if (lines.get(n).isBlank()) continue;
+            List<String> cols = split(lines.get(n));
+            String name = cols.get(benchmark);
+            name = name.substring(name.lastIndexOf('.', name.lastIndexOf('.') - 1) + 1);
+            StringBuilder key = new StringBuilder(name).append(" [").append(cols.get(mode)).append(']');
+            for (int i = 0; i < header.size(); i++) {
+                if (header.get(i).startsWith("Param: ") && i < cols.size() && !cols.get(i).isEmpty()) {
+                    key.append(' ').append(header.get(i).substring(7)).append('=').append(cols.get(i));
+                }
+            }
+            double err = error < 0 || cols.get(error).isEmpty() || cols.get(error).equals("NaN") ? 0 : Double.parseDouble(cols.get(error));
+            rows.put(key.toString(), new Row(cols.get(mode), Double.parseDouble(cols.get(score)), err, cols.get(unit)));
+        }
+        return rows;
+    }
+
+    /** Splits one CSV line, honouring double-quoted fields. */
+    private static List<String> split(String line) {
+        List<String> cols = new ArrayList<>();
+        StringBuilder field = new StringBuilder();
+        boolean quoted = false;
+        for (int i = 0; i < line.length(); i++) {
+            char c = line.charAt(i);
+            if (c == '"') {
+                if (quoted && i + 1 < line.length() && line.charAt(i + 1) == '"') {
+                    field.append('"');
+                    i++;
+                } else {
+                    quoted = !quoted;
+                }
+            } else if (c == ',' && !quoted) {
+                cols.add(field.toString());
+                field.setLength(0);
+            } else {
+                field.append(c);
+            }
+        }
+        cols.add(field.toString());
+        return cols;
+    }
+
+    private static final class Row {
+        final String mode;
+        final double score;
+        final double error;
+        final String unit;
+
+        Row(String mode, double score, double error, String unit) {
+            this.mode = mode;
+            this.score = score;
+            this.error = error;
+            this.unit = unit;
+        }
+
+        boolean higherIsBetter() {
+            return mode.equals("thrpt");
+        }
+    }
+}
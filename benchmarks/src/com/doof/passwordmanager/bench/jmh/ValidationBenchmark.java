@@ -0,0 +1,69 @@
+package com.doof.passwordmanager.bench.jmh;
+
+import com.doof.passwordmanager.util.InputValidator;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * The single-pass field validators on a valid and an invalid value each. Run with {@code -prof gc}
+ * to confirm they stay at zero bytes/op.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ValidationBenchmark {
+
+    public String validEmail = "alice.smith+vault@mail.example.co.uk";
+    public String invalidEmail = "alice.smith@example.c0m";
+    public char[] validPassword = "Tr0ub4dor&3-horse-staple".toCharArray();
+    public char[] invalidPassword = "correcthorsebatterystaple".toCharArray();
+    public String validWebsite = "https://login.example.org:8443/sso?next=%2F";
+    public String invalidWebsite = "login.example..org";
+
+    @Benchmark
+    public boolean emailValid() {
+        return InputValidator.isValidEmail(validEmail);
+    }
+
+    @Benchmark
+    public boolean emailInvalid() {
+        return InputValidator.isValidEmail(invalidEmail);
+    }
+
+    @Benchmark
+    public boolean passwordValid() {
+        return InputValidator.isValidPassword(validPassword);
+    }
+
+    @Benchmark
+    public boolean passwordInvalid() {
+        return InputValidator.isValidPassword(invalidPassword);
+    }
+
+    @Benchmark
+    public boolean websiteValid() {
+        return InputValidator.isValidWebsite(validWebsite);
+    }
+
+    @Benchmark
+    public boolean websiteInvalid() {
+        return InputValidator.isValidWebsite(invalidWebsite);
+    }
+
+    @Benchmark
+    public String checkAccount() {
+        return InputValidator.checkAccount(validEmail, validWebsite, validPassword);
+    }
+}
@@ -20,6 +20,29 @@ CREATE TABLE IF NOT EXISTS accounts (
   enc_version INT NOT NULL,
   created_at TIMESTAMP DEFAULT CURRENT_TIMESTAMP,
   updated_at TIMESTAMP DEFAULT CURRENT_TIMESTAMP ON UPDATE CURRENT_TIMESTAMP,
-  INDEX idx_email (email),
-  INDEX idx_website (website)
+  UNIQUE KEY uq_accounts_email_website (email, website),
+  INDEX idx_website (website),
+  INDEX idx_accounts_enc_version (enc_version, id),
+  INDEX idx_accounts_updated_at (updated_at)
+);
+
+CREATE TABLE IF NOT EXISTS account_deletions (
+  id BIGINT PRIMARY KEY AUTO_INCREMENT,
+  account_id INT NOT NULL,
+  deleted_at TIMESTAMP DEFAULT CURRENT_TIMESTAMP,
+  INDEX idx_account_deletions_deleted_at (deleted_at)
+);
+
+CREATE TABLE IF NOT EXISTS account_data_keys (
+  id INT PRIMARY KEY AUTO_INCREMENT,
+  wrapped_key VARBINARY(128) NOT NULL,
+  iv VARBINARY(64) NOT NULL,
+  created_at TIMESTAMP DEFAULT CURRENT_TIMESTAMP
+);
+
+CREATE TABLE IF NOT EXISTS vault_checkpoints (
+  name VARCHAR(64) PRIMARY KEY,
+  position BIGINT NOT NULL,
+  payload TEXT,
+  updated_at TIMESTAMP DEFAULT CURRENT_TIMESTAMP ON UPDATE CURRENT_TIMESTAMP
 );
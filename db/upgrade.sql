@@ -0,0 +1,40 @@
+-- Changes to apply to a database created from an older schema.sql.
+-- Statements are listed oldest first; run the ones newer than your schema.
+USE Password_Manager;
+
+-- Unique (email, website) key. The column collation is case-insensitive, so the key is too.
+-- Fails if the table already holds duplicates; remove them first.
+ALTER TABLE accounts
+  ADD UNIQUE KEY uq_accounts_email_website (email, website),
+  DROP INDEX idx_email;
+
+-- Resume points for long-running jobs such as master password rotation.
+CREATE TABLE IF NOT EXISTS vault_checkpoints (
+  name VARCHAR(64) PRIMARY KEY,
+  position BIGINT NOT NULL,
+  payload TEXT,
+  updated_at TIMESTAMP DEFAULT CURRENT_TIMESTAMP ON UPDATE CURRENT_TIMESTAMP
+);
+
+-- Lets the background migrator find rows under an outdated enc_version without a table scan.
+ALTER TABLE accounts
+  ADD INDEX idx_accounts_enc_version (enc_version, id);
+
+-- Per-shard data keys for envelope encryption (enc_version 3), wrapped by the master key.
+CREATE TABLE IF NOT EXISTS account_data_keys (
+  id INT PRIMARY KEY AUTO_INCREMENT,
+  wrapped_key VARBINARY(128) NOT NULL,
+  iv VARBINARY(64) NOT NULL,
+  created_at TIMESTAMP DEFAULT CURRENT_TIMESTAMP
+);
+
+-- Incremental backups: find rows changed since the last run, and log deletes, which leave no row behind.
+ALTER TABLE accounts
+  ADD INDEX idx_accounts_updated_at (updated_at);
+
+CREATE TABLE IF NOT EXISTS account_deletions (
+  id BIGINT PRIMARY KEY AUTO_INCREMENT,
+  account_id INT NOT NULL,
+  deleted_at TIMESTAMP DEFAULT CURRENT_TIMESTAMP,
+  INDEX idx_account_deletions_deleted_at (deleted_at)
+);
@@ -1,16 +1,104 @@
 package com.doof.passwordmanager.app;
 
+import com.doof.passwordmanager.dao.AccountDao;
+import com.doof.passwordmanager.dao.CachingAccountDao;
+import com.doof.passwordmanager.dao.CachingVaultMetadataDao;
+import com.doof.passwordmanager.dao.FileAccountDao;
+import com.doof.passwordmanager.dao.FileCheckpointDao;
+import com.doof.passwordmanager.dao.FileDataKeyDao;
+import com.doof.passwordmanager.dao.FileVaultMetadataDao;
 import com.doof.passwordmanager.dao.JdbcAccountDao;
+import com.doof.passwordmanager.dao.JdbcCheckpointDao;
+import com.doof.passwordmanager.dao.JdbcDataKeyDao;
 import com.doof.passwordmanager.dao.JdbcVaultMetadataDao;
+import com.doof.passwordmanager.db.ConnectionManager;
 import com.doof.passwordmanager.service.ApplicationConnector;
+import com.doof.passwordmanager.service.AsyncApplicationConnector;
+import com.doof.passwordmanager.store.FsyncPolicy;
+import com.doof.passwordmanager.store.VaultStore;
+import com.doof.passwordmanager.util.KdfParams;
+
+import java.nio.file.Path;
+import java.util.Locale;
 
 public final class AppBootstrap {
 
     private AppBootstrap() {}
 
+    /**
+     * doof.store picks the backend: "mysql" (the default) or "file" for the local vault file at
+     * doof.store.path, which needs no database server.
+     */
     public static ApplicationConnector createProductionConnector() {
-        JdbcVaultMetadataDao vmDao = new JdbcVaultMetadataDao();
-        JdbcAccountDao accountDao = new JdbcAccountDao();
-        return new ApplicationConnector(vmDao, accountDao);
+        String store = store();
+        ApplicationConnector connector = switch (store) {
+            case "mysql" -> createMySqlConnector();
+            case "file" -> createFileConnector();
+            default -> throw new IllegalArgumentException("Unknown doof.store '" + store + "', expected mysql or file.");
+        };
+        connector.setParallelDecrypt(Boolean.getBoolean("doof.decrypt.parallel"));
+        connector.setMigrationRowsPerSecond(Integer.getInteger("doof.migration.rowsPerSecond", 200));
+        configureNewVaultKdf(connector);
+        return connector;
+    }
+
+    /**
+     * Caps concurrent async calls at what the selected store can serve: the connection pool size
+     * for mysql, the core count for the file store, whose reads are CPU-bound decrypts.
+     * doof.async.maxConcurrent overrides either.
+     */
+    public static AsyncApplicationConnector createAsyncConnector(ApplicationConnector connector) {
+        int defaultCap = "file".equals(store())
+                ? Runtime.getRuntime().availableProcessors()
+                : ConnectionManager.getPoolMaxSize();
+        return new AsyncApplicationConnector(connector, Integer.getInteger("doof.async.maxConcurrent", defaultCap));
+    }
+
+    private static String store() {
+        return System.getProperty("doof.store", "mysql");
+    }
+
+    private static ApplicationConnector createMySqlConnector() {
+        CachingVaultMetadataDao vmDao = new CachingVaultMetadataDao(new JdbcVaultMetadataDao());
+        long cacheBytes = Long.getLong("doof.account.cache.maxBytes", 16L << 20);
+        AccountDao accountDao = cacheBytes > 0
+                ? new CachingAccountDao(new JdbcAccountDao(), cacheBytes)
+                : new JdbcAccountDao();
+        return new ApplicationConnector(vmDao, accountDao, new JdbcCheckpointDao(), new JdbcDataKeyDao());
+    }
+
+    /**
+     * Reads are served from the memory-mapped file, so no account cache is layered on top.
+     * doof.store.fsync is always, group (the default), interval or never; doof.store.fsync.intervalMs
+     * applies to interval. doof.store.compaction.minBytes and doof.store.compaction.garbageRatio
+     * control when the log is compacted in the background.
+     */
+    private static ApplicationConnector createFileConnector() {
+        Path defaultPath = Path.of(System.getProperty("user.home"), ".doof", "vault.dat");
+        FsyncPolicy fsync = FsyncPolicy.valueOf(System.getProperty("doof.store.fsync", "group").toUpperCase(Locale.ROOT));
+        VaultStore store = VaultStore.open(Path.of(System.getProperty("doof.store.path", defaultPath.toString())),
+                fsync, Long.getLong("doof.store.fsync.intervalMs", 1000L));
+        store.setCompactionThreshold(Long.getLong("doof.store.compaction.minBytes", 4L << 20),
+                Double.parseDouble(System.getProperty("doof.store.compaction.garbageRatio", "0.5")));
+        Runtime.getRuntime().addShutdownHook(new Thread(store::close, "vault-store-close"));
+        return new ApplicationConnector(new FileVaultMetadataDao(store), new FileAccountDao(store),
+                new FileCheckpointDao(store), new FileDataKeyDao(store));
+    }
+
+    /**
+     * doof.kdf.iterations pins the PBKDF2 cost for new vaults; otherwise doof.kdf.targetMs has
+     * createVault calibrate it on this machine. With neither set the built-in default applies.
+     */
+    private static void configureNewVaultKdf(ApplicationConnector connector) {
+        Integer iterations = Integer.getInteger("doof.kdf.iterations");
+        if (iterations != null) {
+            if (iterations < KdfParams.MIN_ITERATIONS || iterations > KdfParams.MAX_ITERATIONS) {
+                throw new IllegalArgumentException("doof.kdf.iterations must be between " + KdfParams.MIN_ITERATIONS
+                        + " and " + KdfParams.MAX_ITERATIONS + ", got " + iterations + ".");
+            }
+            connector.setNewVaultKdfParams(KdfParams.defaults().withIterations(iterations));
+            return;
+        }
+        connector.setNewVaultKdfTargetMillis(Long.getLong("doof.kdf.targetMs", 0L));
     }
 }
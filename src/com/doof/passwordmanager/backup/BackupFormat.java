@@ -0,0 +1,76 @@
+package com.doof.passwordmanager.backup;
+
+import java.nio.ByteBuffer;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+
+/**
+ * Layout of a vault backup file. A 32-byte header ({@code "DOOFBKUP"}, format version, flags,
+ * creation time in UTC epoch microseconds, and for an incremental backup the time changes were
+ * collected from) is followed by blocks, each framed as
+ * {@code [int type][int count][int bodyLength][int crc32c][body]}:
+ * <ul>
+ *   <li>METADATA: the vault_metadata row;</li>
+ *   <li>ACCOUNTS: up to {@link #BLOCK_ROWS} account rows, ciphertext as stored;</li>
+ *   <li>TOMBSTONES: ids of deleted accounts with their deletion time (incremental backups);</li>
+ *   <li>DATA_KEYS: every wrapped data key;</li>
+ *   <li>END: the total number of account rows, tombstones and blocks, so a truncated file is
+ *   rejected, and the high-water mark the next incremental backup starts from.</li>
+ * </ul>
+ * Version 1 files have no TOMBSTONES blocks and end their END block after the block count.
+ * All integers are big-endian. Strings and byte arrays are length-prefixed, with -1 for null;
+ * timestamps are UTC epoch microseconds, with Long.MIN_VALUE for null.
+ */
+final class BackupFormat {
+
+    static final long MAGIC = 0x444F4F46424B5550L; // "DOOFBKUP"
+    static final int FORMAT_VERSION = 2;
+    static final int FILE_HEADER_BYTES = 32;
+    static final int BLOCK_HEADER_BYTES = 16;
+
+    static final int METADATA = 1;
+    static final int ACCOUNTS = 2;
+    static final int DATA_KEYS = 3;
+    static final int END = 4;
+    static final int TOMBSTONES = 5;
+
+    static final int FLAG_INCREMENTAL = 1;
+
+    /** Matches the batch size the DAOs and the rotator work in, so a block is one restore batch. */
+    static final int BLOCK_ROWS = 1000;
+    static final int BLOCK_BYTES = 1 << 20;
+
+    private BackupFormat() {}
+
+    static int sizeOf(byte[] v) {
+        return Integer.BYTES + (v == null ? 0 : v.length);
+    }
+
+    static void putBytes(ByteBuffer out, byte[] v) {
+        if (v == null) {
+            out.putInt(-1);
+            return;
+        }
+        out.putInt(v.length);
+        out.put(v);
+    }
+
+    static byte[] getBytes(ByteBuffer in) {
+        int length = in.getInt();
+        if (length < 0) return null;
+        byte[] v = new byte[length];
+        in.get(v);
+        return v;
+    }
+
+    static void putTime(ByteBuffer out, LocalDateTime v) {
+        out.putLong(v == null ? Long.MIN_VALUE : v.toEpochSecond(ZoneOffset.UTC) * 1_000_000L + v.getNano() / 1000);
+    }
+
+    static LocalDateTime getTime(ByteBuffer in) {
+        long micros = in.getLong();
+        if (micros == Long.MIN_VALUE) return null;
+        return LocalDateTime.ofEpochSecond(Math.floorDiv(micros, 1_000_000L),
+                (int) Math.floorMod(micros, 1_000_000L) * 1000, ZoneOffset.UTC);
+    }
+}
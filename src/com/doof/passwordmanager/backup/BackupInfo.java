@@ -0,0 +1,44 @@
+package com.doof.passwordmanager.backup;
+
+import java.time.LocalDateTime;
+
+public final class BackupInfo {
+    private final LocalDateTime createdAt;
+    private final LocalDateTime since;
+    private final LocalDateTime highWaterMark;
+    private final long accountCount;
+    private final long tombstoneCount;
+    private final int dataKeyCount;
+    private final int blockCount;
+    private final long fileBytes;
+
+    BackupInfo(LocalDateTime createdAt, LocalDateTime since, LocalDateTime highWaterMark, long accountCount,
+               long tombstoneCount, int dataKeyCount, int blockCount, long fileBytes) {
+        this.createdAt = createdAt;
+        this.since = since;
+        this.highWaterMark = highWaterMark;
+        this.accountCount = accountCount;
+        this.tombstoneCount = tombstoneCount;
+        this.dataKeyCount = dataKeyCount;
+        this.blockCount = blockCount;
+        this.fileBytes = fileBytes;
+    }
+
+    public LocalDateTime getCreatedAt() { return createdAt; }
+    public boolean isIncremental() { return since != null; }
+    /** For an incremental backup, the time from which changes were collected; null for a full one. */
+    public LocalDateTime getSince() { return since; }
+    /** The newest updated_at or deleted_at the backup covers; null for version 1 files. */
+    public LocalDateTime getHighWaterMark() { return highWaterMark; }
+    public long getAccountCount() { return accountCount; }
+    public long getTombstoneCount() { return tombstoneCount; }
+    public int getDataKeyCount() { return dataKeyCount; }
+    public int getBlockCount() { return blockCount; }
+    public long getFileBytes() { return fileBytes; }
+
+    @Override
+    public String toString() {
+        return String.format("BackupInfo{createdAt=%s, since=%s, highWaterMark=%s, accounts=%d, tombstones=%d, dataKeys=%d, blocks=%d, bytes=%d}",
+                createdAt, since, highWaterMark, accountCount, tombstoneCount, dataKeyCount, blockCount, fileBytes);
+    }
+}
@@ -0,0 +1,260 @@
+package com.doof.passwordmanager.backup;
+
+import com.doof.passwordmanager.model.Account;
+import com.doof.passwordmanager.model.AccountTombstone;
+import com.doof.passwordmanager.model.DataKey;
+import com.doof.passwordmanager.model.VaultMetadata;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.Consumer;
+import java.util.function.Function;
+import java.util.zip.CRC32C;
+
+import static com.doof.passwordmanager.backup.BackupFormat.*;
+
+/**
+ * Reads a backup file block by block through one reusable direct buffer. Every block's checksum is
+ * checked before its rows are decoded.
+ */
+public class BackupReader implements AutoCloseable {
+
+    private final Path source;
+    private final FileChannel channel;
+    private final long fileSize;
+    private final int version;
+    private final LocalDateTime createdAt;
+    private final LocalDateTime since;
+    private final CRC32C crc = new CRC32C();
+    private ByteBuffer block = ByteBuffer.allocateDirect(BLOCK_BYTES);
+
+    public BackupReader(Path source) {
+        this.source = source;
+        FileChannel opened = null;
+        try {
+            opened = FileChannel.open(source, StandardOpenOption.READ);
+            fileSize = opened.size();
+            ByteBuffer header = ByteBuffer.allocate(FILE_HEADER_BYTES);
+            readFully(opened, header, 0);
+            header.flip();
+            if (header.getLong() != MAGIC) {
+                throw new IllegalArgumentException("Not a vault backup: " + source);
+            }
+            version = header.getInt();
+            if (version != 1 && version != FORMAT_VERSION) {
+                throw new IllegalArgumentException("Unsupported backup format version " + version + ": " + source);
+            }
+            int flags = header.getInt();
+            createdAt = getTime(header);
+            LocalDateTime from = getTime(header);
+            since = version > 1 && (flags & FLAG_INCREMENTAL) != 0 ? from : null;
+        } catch (IOException e) {
+            closeQuietly(opened);
+            throw new RuntimeException("Error opening backup " + source, e);
+        } catch (RuntimeException e) {
+            closeQuietly(opened);
+            throw e;
+        }
+        this.channel = opened;
+    }
+
+    /**
+     * Checks every block and the END totals, passing the metadata and data keys to the callbacks;
+     * account rows are not decoded. Restore runs this first so a damaged or truncated file is
+     * rejected before anything is written.
+     */
+    public BackupInfo verify(Consumer<VaultMetadata> metadata, Consumer<List<DataKey>> dataKeys) {
+        long accounts = 0;
+        long tombstones = 0;
+        int keys = 0;
+        int blocks = 0;
+        boolean sawMetadata = false;
+        long position = FILE_HEADER_BYTES;
+        while (true) {
+            if (position >= fileSize) {
+                throw damaged("it ends without an END block", position);
+            }
+            long blockStart = position;
+            position = readBlock(position);
+            int type = block.getInt(0);
+            int rows = block.getInt(4);
+            ByteBuffer body = body();
+            switch (type) {
+                case METADATA -> {
+                    sawMetadata = true;
+                    metadata.accept(decodeMetadata(body));
+                }
+                case ACCOUNTS -> accounts += rows;
+                case TOMBSTONES -> tombstones += rows;
+                case DATA_KEYS -> {
+                    List<DataKey> decoded = new ArrayList<>(rows);
+                    for (int i = 0; i < rows; i++) decoded.add(decodeDataKey(body));
+                    keys += rows;
+                    dataKeys.accept(decoded);
+                }
+                case END -> {
+                    if (body.getLong() != accounts || body.getInt() != blocks || position != fileSize
+                            || (version > 1 && body.getLong() != tombstones)) {
+                        throw damaged("its END block does not match its contents", blockStart);
+                    }
+                    if (!sawMetadata) throw damaged("it has no vault metadata", blockStart);
+                    LocalDateTime highWaterMark = version > 1 ? getTime(body) : null;
+                    return new BackupInfo(createdAt, since, highWaterMark, accounts, tombstones, keys, blocks, fileSize);
+                }
+                default -> throw damaged("unknown block type " + type, blockStart);
+            }
+            blocks++;
+        }
+    }
+
+    /**
+     * Decodes the account blocks in file order and hands each one over as a list of at most
+     * {@link BackupFormat#BLOCK_ROWS} rows.
+     */
+    public void forEachAccountBlock(Consumer<List<Account>> action) {
+        forEachBlock(ACCOUNTS, BackupReader::decodeAccount, action);
+    }
+
+    /**
+     * Decodes the tombstone blocks of an incremental backup in file order.
+     */
+    public void forEachTombstoneBlock(Consumer<List<AccountTombstone>> action) {
+        forEachBlock(TOMBSTONES, BackupReader::decodeTombstone, action);
+    }
+
+    public LocalDateTime getCreatedAt() {
+        return createdAt;
+    }
+
+    public boolean isIncremental() {
+        return since != null;
+    }
+
+    public LocalDateTime getSince() {
+        return since;
+    }
+
+    @Override
+    public void close() {
+        closeQuietly(channel);
+    }
+
+    /**
+     * Reads the block at {@code position} into the buffer, header included, and returns where the
+     * next one starts.
+     */
+    private long readBlock(long position) {
+        try {
+            if (position + BLOCK_HEADER_BYTES > fileSize) throw damaged("a block header is cut off", position);
+            block.clear().limit(BLOCK_HEADER_BYTES);
+            readFully(channel, block, position);
+            int length = block.getInt(8);
+            if (length < 0 || length > fileSize - position - BLOCK_HEADER_BYTES) {
+                throw damaged("a block is cut off", position);
+            }
+            if (block.capacity() < BLOCK_HEADER_BYTES + length) {
+                ByteBuffer larger = ByteBuffer.allocateDirect(BLOCK_HEADER_BYTES + length);
+                larger.put(block.flip());
+                block = larger;
+            }
+            block.limit(BLOCK_HEADER_BYTES + length);
+            readFully(channel, block, position + BLOCK_HEADER_BYTES);
+            crc.reset();
+            crc.update(block.slice(BLOCK_HEADER_BYTES, length));
+            if ((int) crc.getValue() != block.getInt(12)) {
+                throw damaged("a block checksum does not match", position);
+            }
+            return position + BLOCK_HEADER_BYTES + length;
+        } catch (IOException e) {
+            throw new RuntimeException("Error reading backup " + source, e);
+        }
+    }
+
+    private <T> void forEachBlock(int wanted, Function<ByteBuffer, T> decoder, Consumer<List<T>> action) {
+        long position = FILE_HEADER_BYTES;
+        while (position < fileSize) {
+            position = readBlock(position);
+            int type = block.getInt(0);
+            if (type == END) return;
+            if (type != wanted) continue;
+            int rows = block.getInt(4);
+            ByteBuffer body = body();
+            List<T> decoded = new ArrayList<>(rows);
+            for (int i = 0; i < rows; i++) decoded.add(decoder.apply(body));
+            action.accept(decoded);
+        }
+    }
+
+    private ByteBuffer body() {
+        return block.slice(BLOCK_HEADER_BYTES, block.limit() - BLOCK_HEADER_BYTES);
+    }
+
+    private static VaultMetadata decodeMetadata(ByteBuffer in) {
+        VaultMetadata m = new VaultMetadata();
+        m.setId(in.getInt());
+        m.setEncVersion(in.getInt());
+        m.setCreatedAt(getTime(in));
+        m.setUpdatedAt(getTime(in));
+        m.setKdfSalt(getBytes(in));
+        m.setKdfParams(string(getBytes(in)));
+        m.setMasterHash(getBytes(in));
+        return m;
+    }
+
+    private static Account decodeAccount(ByteBuffer in) {
+        Account a = new Account();
+        a.setId(in.getInt());
+        a.setEncVersion(in.getInt());
+        a.setCreatedAt(getTime(in));
+        a.setUpdatedAt(getTime(in));
+        a.setEmail(string(getBytes(in)));
+        a.setWebsite(string(getBytes(in)));
+        a.setPasswordEncrypted(getBytes(in));
+        a.setIv(getBytes(in));
+        return a;
+    }
+
+    private static AccountTombstone decodeTombstone(ByteBuffer in) {
+        return new AccountTombstone(in.getInt(), getTime(in));
+    }
+
+    private static DataKey decodeDataKey(ByteBuffer in) {
+        DataKey k = new DataKey();
+        k.setId(in.getInt());
+        k.setCreatedAt(getTime(in));
+        k.setWrappedKey(getBytes(in));
+        k.setIv(getBytes(in));
+        return k;
+    }
+
+    private static String string(byte[] utf8) {
+        return utf8 == null ? null : new String(utf8, StandardCharsets.UTF_8);
+    }
+
+    private RuntimeException damaged(String reason, long position) {
+        return new RuntimeException("Backup " + source + " is damaged: " + reason + " (offset " + position + ").");
+    }
+
+    private static void readFully(FileChannel channel, ByteBuffer buffer, long position) throws IOException {
+        while (buffer.hasRemaining()) {
+            int n = channel.read(buffer, position);
+            if (n < 0) throw new IOException("Unexpected end of file");
+            position += n;
+        }
+    }
+
+    private static void closeQuietly(FileChannel channel) {
+        if (channel == null) return;
+        try {
+            channel.close();
+        } catch (IOException ignored) {
+        }
+    }
+}
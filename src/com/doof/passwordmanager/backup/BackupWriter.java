@@ -0,0 +1,222 @@
+package com.doof.passwordmanager.backup;
+
+import com.doof.passwordmanager.model.Account;
+import com.doof.passwordmanager.model.AccountTombstone;
+import com.doof.passwordmanager.model.DataKey;
+import com.doof.passwordmanager.model.VaultMetadata;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.time.LocalDateTime;
+import java.time.temporal.ChronoUnit;
+import java.util.List;
+import java.util.zip.CRC32C;
+
+import static com.doof.passwordmanager.backup.BackupFormat.*;
+
+/**
+ * Streams a backup file (see {@link BackupFormat}). Rows are encoded into one reusable direct
+ * buffer and written a block at a time through the FileChannel, so memory use does not grow with
+ * the vault and the ciphertext is copied once on its way to disk. The file is written beside the
+ * target and renamed into place by {@link #finish}; closing an unfinished writer deletes it.
+ */
+public class BackupWriter implements AutoCloseable {
+
+    private final Path target;
+    private final Path temp;
+    private final FileChannel channel;
+    private final LocalDateTime createdAt = LocalDateTime.now().truncatedTo(ChronoUnit.MICROS);
+    private final LocalDateTime since;
+    private final CRC32C crc = new CRC32C();
+    private ByteBuffer block = ByteBuffer.allocateDirect(BLOCK_BYTES);
+
+    private long position;
+    private int blockType;
+    private int blockRows;
+    private int blocks;
+    private long accounts;
+    private long tombstones;
+    private int dataKeys;
+    private boolean finished;
+
+    public BackupWriter(Path target) {
+        this(target, null);
+    }
+
+    /**
+     * An incremental backup when {@code since} is not null: it holds the rows changed and the
+     * accounts deleted from that time on.
+     */
+    public BackupWriter(Path target, LocalDateTime since) {
+        this.target = target;
+        this.since = since;
+        this.temp = target.resolveSibling(target.getFileName() + ".tmp");
+        FileChannel opened = null;
+        try {
+            Path parent = target.toAbsolutePath().getParent();
+            if (parent != null) Files.createDirectories(parent);
+            opened = FileChannel.open(temp, StandardOpenOption.CREATE, StandardOpenOption.TRUNCATE_EXISTING,
+                    StandardOpenOption.WRITE);
+            block.clear();
+            block.putLong(MAGIC).putInt(FORMAT_VERSION).putInt(since == null ? 0 : FLAG_INCREMENTAL);
+            putTime(block, createdAt);
+            putTime(block, since);
+            block.flip();
+            writeFully(opened, block);
+        } catch (IOException e) {
+            closeQuietly(opened);
+            throw new RuntimeException("Error creating backup " + target, e);
+        }
+        this.channel = opened;
+        this.position = FILE_HEADER_BYTES;
+    }
+
+    public void writeMetadata(VaultMetadata m) {
+        byte[] params = utf8(m.getKdfParams());
+        beginRow(METADATA, 4 + 4 + 8 + 8 + sizeOf(m.getKdfSalt()) + sizeOf(params) + sizeOf(m.getMasterHash()));
+        block.putInt(m.getId());
+        block.putInt(m.getEncVersion());
+        putTime(block, m.getCreatedAt());
+        putTime(block, m.getUpdatedAt());
+        putBytes(block, m.getKdfSalt());
+        putBytes(block, params);
+        putBytes(block, m.getMasterHash());
+        flushBlock();
+    }
+
+    /**
+     * Appends one row exactly as stored: ciphertext, IV and enc_version are not touched.
+     */
+    public void writeAccount(Account a) {
+        byte[] email = utf8(a.getEmail());
+        byte[] website = utf8(a.getWebsite());
+        beginRow(ACCOUNTS, 4 + 4 + 8 + 8 + sizeOf(email) + sizeOf(website)
+                + sizeOf(a.getPasswordEncrypted()) + sizeOf(a.getIv()));
+        block.putInt(a.getId());
+        block.putInt(a.getEncVersion());
+        putTime(block, a.getCreatedAt());
+        putTime(block, a.getUpdatedAt());
+        putBytes(block, email);
+        putBytes(block, website);
+        putBytes(block, a.getPasswordEncrypted());
+        putBytes(block, a.getIv());
+        accounts++;
+    }
+
+    public void writeTombstone(AccountTombstone t) {
+        beginRow(TOMBSTONES, 4 + 8);
+        block.putInt(t.getAccountId());
+        putTime(block, t.getDeletedAt());
+        tombstones++;
+    }
+
+    public void writeDataKeys(List<DataKey> keys) {
+        for (DataKey k : keys) {
+            beginRow(DATA_KEYS, 4 + 8 + sizeOf(k.getWrappedKey()) + sizeOf(k.getIv()));
+            block.putInt(k.getId());
+            putTime(block, k.getCreatedAt());
+            putBytes(block, k.getWrappedKey());
+            putBytes(block, k.getIv());
+            dataKeys++;
+        }
+        flushBlock();
+    }
+
+    /**
+     * Writes the END block, forces the file and moves it over the target. highWaterMark is the
+     * newest change the backup is known to cover.
+     */
+    public BackupInfo finish(LocalDateTime highWaterMark) {
+        flushBlock();
+        int dataBlocks = blocks;
+        beginRow(END, 8 + 4 + 8 + 8);
+        block.putLong(accounts);
+        block.putInt(dataBlocks);
+        block.putLong(tombstones);
+        putTime(block, highWaterMark);
+        flushBlock();
+        try {
+            channel.force(true);
+            channel.close();
+            Files.move(temp, target, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+        } catch (IOException e) {
+            throw new RuntimeException("Error writing backup " + target, e);
+        }
+        finished = true;
+        return new BackupInfo(createdAt, since, highWaterMark, accounts, tombstones, dataKeys, dataBlocks, position);
+    }
+
+    @Override
+    public void close() {
+        if (finished) return;
+        closeQuietly(channel);
+        try {
+            Files.deleteIfExists(temp);
+        } catch (IOException ignored) {
+        }
+    }
+
+    /**
+     * Makes room for a row of {@code bytes} in a block of the given type, starting a new block when
+     * the type changes or the current one is full.
+     */
+    private void beginRow(int type, int bytes) {
+        if (blockType != type || blockRows == BLOCK_ROWS || block.remaining() < bytes) {
+            flushBlock();
+        }
+        if (blockType == 0) {
+            if (block.capacity() < BLOCK_HEADER_BYTES + bytes) {
+                block = ByteBuffer.allocateDirect(BLOCK_HEADER_BYTES + bytes);
+            }
+            block.clear();
+            block.position(BLOCK_HEADER_BYTES);
+            blockType = type;
+        }
+        blockRows++;
+    }
+
+    private void flushBlock() {
+        if (blockType == 0) return;
+        int length = block.position() - BLOCK_HEADER_BYTES;
+        crc.reset();
+        crc.update(block.slice(BLOCK_HEADER_BYTES, length));
+        block.putInt(0, blockType);
+        block.putInt(4, blockRows);
+        block.putInt(8, length);
+        block.putInt(12, (int) crc.getValue());
+        block.flip();
+        try {
+            writeFully(channel, block);
+        } catch (IOException e) {
+            throw new RuntimeException("Error writing backup " + target, e);
+        }
+        position += BLOCK_HEADER_BYTES + length;
+        if (blockType != END) blocks++;
+        blockType = 0;
+        blockRows = 0;
+    }
+
+    private static byte[] utf8(String s) {
+        return s == null ? null : s.getBytes(StandardCharsets.UTF_8);
+    }
+
+    private static void writeFully(FileChannel channel, ByteBuffer buffer) throws IOException {
+        while (buffer.hasRemaining()) {
+            channel.write(buffer);
+        }
+    }
+
+    private static void closeQuietly(FileChannel channel) {
+        if (channel == null) return;
+        try {
+            channel.close();
+        } catch (IOException ignored) {
+        }
+    }
+}
@@ -0,0 +1,39 @@
+package com.doof.passwordmanager.dao;
+
+public final class AccountCacheStats {
+    private final int entries;
+    private final long weightBytes;
+    private final long maxWeightBytes;
+    private final long hitCount;
+    private final long missCount;
+    private final long evictionCount;
+
+    AccountCacheStats(int entries, long weightBytes, long maxWeightBytes, long hitCount, long missCount, long evictionCount) {
+        this.entries = entries;
+        this.weightBytes = weightBytes;
+        this.maxWeightBytes = maxWeightBytes;
+        this.hitCount = hitCount;
+        this.missCount = missCount;
+        this.evictionCount = evictionCount;
+    }
+
+    public int getEntries() { return entries; }
+    public long getWeightBytes() { return weightBytes; }
+    public long getMaxWeightBytes() { return maxWeightBytes; }
+    public long getHitCount() { return hitCount; }
+    public long getMissCount() { return missCount; }
+    public long getEvictionCount() { return evictionCount; }
+
+    public double getHitRate() {
+        long total = hitCount + missCount;
+        return total == 0 ? 0.0 : (double) hitCount / total;
+    }
+
+    @Override
+    public String toString() {
+        return String.format(
+                "AccountCacheStats{entries=%d, weight=%d/%d, hits=%d, misses=%d, evictions=%d, hitRate=%.2f}",
+                entries, weightBytes, maxWeightBytes, hitCount, missCount, evictionCount, getHitRate()
+        );
+    }
+}
@@ -1,13 +1,45 @@
 package com.doof.passwordmanager.dao;
 
 import com.doof.passwordmanager.model.Account;
+import com.doof.passwordmanager.model.AccountTombstone;
+
+import java.time.LocalDateTime;
 import java.util.List;
+import java.util.function.Consumer;
 
+/**
+ * addAccount(s) and updateAccount(s) fill in the id, created_at and updated_at the rows were
+ * stored with, so callers can keep the written objects as they are in the store.
+ */
 public interface AccountDao {
     void addAccount(Account account);
+    int[] addAccounts(List<Account> accounts);
     List<Account> getAllAccounts();
+    void forEachAccount(Consumer<Account> action);
+    List<Account> getAccountsAfter(int afterId, int limit);
+    List<Account> getAccountsBelowEncVersion(int encVersion, int afterId, int limit);
     Account getAccountById(int id);
+    Account findByEmailAndWebsite(String email, String website);
     void updateAccount(Account account);
+    void updateAccounts(List<Account> accounts);
+    int upgradeEncryption(List<Account> accounts);
     void deleteAccount(int id);
     List<Account> search(String query, int limit, int offset);
+    List<Account> searchAfter(String query, int afterId, int limit);
+
+    /** Streams rows whose updated_at is at or after {@code since}. */
+    void forEachAccountUpdatedSince(LocalDateTime since, Consumer<Account> action);
+
+    /** Streams the deletion log from {@code since} on; deleteAccount adds to it. */
+    void forEachDeletionSince(LocalDateTime since, Consumer<AccountTombstone> action);
+
+    /**
+     * Restore path: inserts the rows with the ids and timestamps they carry, in one transaction.
+     */
+    void importAccounts(List<Account> accounts);
+
+    /**
+     * Restore path: deletes the rows that exist, without adding them to the deletion log.
+     */
+    void removeAccounts(int[] ids);
 }
@@ -0,0 +1,107 @@
+package com.doof.passwordmanager.dao;
+
+import com.doof.passwordmanager.model.Account;
+import com.doof.passwordmanager.util.BoundedAsyncExecutor;
+
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.function.Consumer;
+
+/**
+ * Non-blocking view of an AccountDao. Every call runs on a virtual thread, and no more than
+ * {@code maxConcurrent} run at once; size it to what the delegate's store can serve, such as the
+ * connection pool for a JDBC DAO.
+ */
+public class AsyncAccountDao implements AutoCloseable {
+
+    private final AccountDao delegate;
+    private final BoundedAsyncExecutor executor;
+
+    public AsyncAccountDao(AccountDao delegate, int maxConcurrent) {
+        this.delegate = delegate;
+        this.executor = new BoundedAsyncExecutor("account-dao", maxConcurrent);
+    }
+
+    public CompletableFuture<Void> addAccount(Account account) {
+        return executor.submit(() -> {
+            delegate.addAccount(account);
+            return null;
+        });
+    }
+
+    public CompletableFuture<int[]> addAccounts(List<Account> accounts) {
+        return executor.submit(() -> delegate.addAccounts(accounts));
+    }
+
+    public CompletableFuture<List<Account>> getAllAccounts() {
+        return executor.submit(delegate::getAllAccounts);
+    }
+
+    /**
+     * Streams every row through {@code action} on the worker thread.
+     */
+    public CompletableFuture<Void> forEachAccount(Consumer<Account> action) {
+        return executor.submit(() -> {
+            delegate.forEachAccount(action);
+            return null;
+        });
+    }
+
+    public CompletableFuture<List<Account>> getAccountsAfter(int afterId, int limit) {
+        return executor.submit(() -> delegate.getAccountsAfter(afterId, limit));
+    }
+
+    public CompletableFuture<List<Account>> getAccountsBelowEncVersion(int encVersion, int afterId, int limit) {
+        return executor.submit(() -> delegate.getAccountsBelowEncVersion(encVersion, afterId, limit));
+    }
+
+    public CompletableFuture<Account> getAccountById(int id) {
+        return executor.submit(() -> delegate.getAccountById(id));
+    }
+
+    public CompletableFuture<Account> findByEmailAndWebsite(String email, String website) {
+        return executor.submit(() -> delegate.findByEmailAndWebsite(email, website));
+    }
+
+    public CompletableFuture<Void> updateAccount(Account account) {
+        return executor.submit(() -> {
+            delegate.updateAccount(account);
+            return null;
+        });
+    }
+
+    public CompletableFuture<Void> updateAccounts(List<Account> accounts) {
+        return executor.submit(() -> {
+            delegate.updateAccounts(accounts);
+            return null;
+        });
+    }
+
+    public CompletableFuture<Integer> upgradeEncryption(List<Account> accounts) {
+        return executor.submit(() -> delegate.upgradeEncryption(accounts));
+    }
+
+    public CompletableFuture<Void> deleteAccount(int id) {
+        return executor.submit(() -> {
+            delegate.deleteAccount(id);
+            return null;
+        });
+    }
+
+    public CompletableFuture<List<Account>> search(String query, int limit, int offset) {
+        return executor.submit(() -> delegate.search(query, limit, offset));
+    }
+
+    public CompletableFuture<List<Account>> searchAfter(String query, int afterId, int limit) {
+        return executor.submit(() -> delegate.searchAfter(query, afterId, limit));
+    }
+
+    public AccountDao getDelegate() {
+        return delegate;
+    }
+
+    @Override
+    public void close() {
+        executor.close();
+    }
+}
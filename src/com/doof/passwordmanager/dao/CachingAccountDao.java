@@ -0,0 +1,356 @@
+package com.doof.passwordmanager.dao;
+
+import com.doof.passwordmanager.model.Account;
+import com.doof.passwordmanager.model.AccountTombstone;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Consumer;
+
+/**
+ * Read cache of ciphertext account rows in front of another AccountDao. Rows are kept in LRU order
+ * and evicted once their combined weight, dominated by {@code password_encrypted}, goes past the
+ * limit. While every row fits, the cache also knows it holds the whole table and answers
+ * {@code getAllAccounts} and {@code forEachAccount} without a query. Writes go straight to the
+ * delegate and invalidate the rows they touch, since only the database knows the new timestamps.
+ *
+ * <p>Rows are copied on the way in and out, so callers may wipe what they pass or receive. Call
+ * {@link #clear()} when the vault locks; it zeroes the cached ciphertext.
+ */
+public class CachingAccountDao implements AccountDao {
+
+    private static final long ENTRY_OVERHEAD_BYTES = 96;
+
+    private final AccountDao delegate;
+    private final long maxWeightBytes;
+
+    private final LinkedHashMap<Integer, Account> rows = new LinkedHashMap<>(256, 0.75f, true);
+    private long weightBytes;
+    private boolean complete;
+    private long writeGeneration;
+
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+    private final LongAdder evictions = new LongAdder();
+
+    public CachingAccountDao(AccountDao delegate, long maxWeightBytes) {
+        if (maxWeightBytes <= 0) {
+            throw new IllegalArgumentException("maxWeightBytes must be positive");
+        }
+        this.delegate = delegate;
+        this.maxWeightBytes = maxWeightBytes;
+    }
+
+    @Override
+    public void addAccount(Account account) {
+        beginWrite();
+        try {
+            delegate.addAccount(account);
+        } finally {
+            endWrite(false);
+        }
+    }
+
+    @Override
+    public int[] addAccounts(List<Account> accounts) {
+        beginWrite();
+        try {
+            return delegate.addAccounts(accounts);
+        } finally {
+            endWrite(false);
+        }
+    }
+
+    @Override
+    public List<Account> getAllAccounts() {
+        long generation;
+        synchronized (this) {
+            if (complete) {
+                hits.increment();
+                return snapshotById();
+            }
+            generation = writeGeneration;
+        }
+        misses.increment();
+        List<Account> all = delegate.getAllAccounts();
+        synchronized (this) {
+            if (generation == writeGeneration) {
+                long evictionsBefore = evictions.sum();
+                for (Account a : all) cache(a);
+                complete = evictions.sum() == evictionsBefore && rows.size() == all.size();
+            }
+        }
+        return all;
+    }
+
+    @Override
+    public void forEachAccount(Consumer<Account> action) {
+        List<Account> snapshot = null;
+        long generation;
+        long evictionsBefore;
+        synchronized (this) {
+            if (complete) {
+                hits.increment();
+                snapshot = snapshotById();
+            }
+            generation = writeGeneration;
+            evictionsBefore = evictions.sum();
+        }
+        if (snapshot != null) {
+            snapshot.forEach(action);
+            return;
+        }
+        misses.increment();
+        int[] seen = {0};
+        delegate.forEachAccount(a -> {
+            synchronized (this) {
+                if (generation == writeGeneration) cache(a);
+            }
+            seen[0]++;
+            action.accept(a);
+        });
+        synchronized (this) {
+            complete = generation == writeGeneration && evictions.sum() == evictionsBefore && rows.size() == seen[0];
+        }
+    }
+
+    /**
+     * Always read from the database: callers walking the table in chunks would otherwise churn
+     * the whole cache through the LRU.
+     */
+    @Override
+    public List<Account> getAccountsAfter(int afterId, int limit) {
+        return delegate.getAccountsAfter(afterId, limit);
+    }
+
+    @Override
+    public void forEachAccountUpdatedSince(LocalDateTime since, Consumer<Account> action) {
+        delegate.forEachAccountUpdatedSince(since, action);
+    }
+
+    @Override
+    public void forEachDeletionSince(LocalDateTime since, Consumer<AccountTombstone> action) {
+        delegate.forEachDeletionSince(since, action);
+    }
+
+    @Override
+    public List<Account> getAccountsBelowEncVersion(int encVersion, int afterId, int limit) {
+        return delegate.getAccountsBelowEncVersion(encVersion, afterId, limit);
+    }
+
+    @Override
+    public Account getAccountById(int id) {
+        long generation;
+        synchronized (this) {
+            Account cached = rows.get(id);
+            if (cached != null) {
+                hits.increment();
+                return copyOf(cached);
+            }
+            generation = writeGeneration;
+        }
+        misses.increment();
+        Account loaded = delegate.getAccountById(id);
+        if (loaded != null) {
+            cacheIfUnchanged(loaded, generation);
+        }
+        return loaded;
+    }
+
+    @Override
+    public Account findByEmailAndWebsite(String email, String website) {
+        long generation = currentGeneration();
+        Account found = delegate.findByEmailAndWebsite(email, website);
+        if (found != null) {
+            cacheIfUnchanged(found, generation);
+        }
+        return found;
+    }
+
+    @Override
+    public void updateAccount(Account account) {
+        beginWrite();
+        try {
+            delegate.updateAccount(account);
+        } finally {
+            endWrite(false, account.getId());
+        }
+    }
+
+    @Override
+    public void updateAccounts(List<Account> accounts) {
+        int[] ids = new int[accounts.size()];
+        for (int i = 0; i < ids.length; i++) ids[i] = accounts.get(i).getId();
+        beginWrite();
+        try {
+            delegate.updateAccounts(accounts);
+        } finally {
+            endWrite(false, ids);
+        }
+    }
+
+    @Override
+    public int upgradeEncryption(List<Account> accounts) {
+        int[] ids = new int[accounts.size()];
+        for (int i = 0; i < ids.length; i++) ids[i] = accounts.get(i).getId();
+        beginWrite();
+        try {
+            return delegate.upgradeEncryption(accounts);
+        } finally {
+            endWrite(false, ids);
+        }
+    }
+
+    @Override
+    public void deleteAccount(int id) {
+        beginWrite();
+        try {
+            delegate.deleteAccount(id);
+        } finally {
+            endWrite(true, id);
+        }
+    }
+
+    @Override
+    public void importAccounts(List<Account> accounts) {
+        beginWrite();
+        try {
+            delegate.importAccounts(accounts);
+        } finally {
+            endWrite(false);
+        }
+    }
+
+    @Override
+    public void removeAccounts(int[] ids) {
+        beginWrite();
+        try {
+            delegate.removeAccounts(ids);
+        } finally {
+            endWrite(true, ids);
+        }
+    }
+
+    @Override
+    public List<Account> search(String query, int limit, int offset) {
+        long generation = currentGeneration();
+        List<Account> found = delegate.search(query, limit, offset);
+        for (Account a : found) cacheIfUnchanged(a, generation);
+        return found;
+    }
+
+    @Override
+    public List<Account> searchAfter(String query, int afterId, int limit) {
+        long generation = currentGeneration();
+        List<Account> found = delegate.searchAfter(query, afterId, limit);
+        for (Account a : found) cacheIfUnchanged(a, generation);
+        return found;
+    }
+
+    /**
+     * Drops every cached row and zeroes its ciphertext and IV.
+     */
+    public synchronized void clear() {
+        writeGeneration++;
+        for (Account a : rows.values()) wipe(a);
+        rows.clear();
+        weightBytes = 0;
+        complete = false;
+    }
+
+    public synchronized AccountCacheStats getStats() {
+        return new AccountCacheStats(rows.size(), weightBytes, maxWeightBytes,
+                hits.sum(), misses.sum(), evictions.sum());
+    }
+
+    /**
+     * Writes bump the generation both before and after they reach the database, so a read that
+     * overlaps a write in any way sees a different generation and does not cache what it read.
+     */
+    private synchronized void beginWrite() {
+        writeGeneration++;
+    }
+
+    private synchronized void endWrite(boolean keepComplete, int... ids) {
+        writeGeneration++;
+        for (int id : ids) evict(id);
+        if (!keepComplete) complete = false;
+    }
+
+    private synchronized long currentGeneration() {
+        return writeGeneration;
+    }
+
+    private synchronized void cacheIfUnchanged(Account account, long generation) {
+        if (generation == writeGeneration) cache(account);
+    }
+
+    private List<Account> snapshotById() {
+        List<Account> out = new ArrayList<>(rows.size());
+        for (Account a : rows.values()) out.add(copyOf(a));
+        out.sort((x, y) -> Integer.compare(x.getId(), y.getId()));
+        return out;
+    }
+
+    private void cache(Account account) {
+        if (account.getId() <= 0) return;
+        Account copy = copyOf(account);
+        long weight = weightOf(copy);
+        if (weight > maxWeightBytes) {
+            evict(copy.getId());
+            complete = false;
+            return;
+        }
+        Account previous = rows.put(copy.getId(), copy);
+        if (previous != null) {
+            weightBytes -= weightOf(previous);
+            wipe(previous);
+        }
+        weightBytes += weight;
+
+        Iterator<Map.Entry<Integer, Account>> it = rows.entrySet().iterator();
+        while (weightBytes > maxWeightBytes && it.hasNext()) {
+            Account eldest = it.next().getValue();
+            it.remove();
+            weightBytes -= weightOf(eldest);
+            wipe(eldest);
+            evictions.increment();
+            complete = false;
+        }
+    }
+
+    private void evict(int id) {
+        Account previous = rows.remove(id);
+        if (previous != null) {
+            weightBytes -= weightOf(previous);
+            wipe(previous);
+        }
+    }
+
+    private static long weightOf(Account a) {
+        long w = ENTRY_OVERHEAD_BYTES;
+        if (a.getPasswordEncrypted() != null) w += a.getPasswordEncrypted().length;
+        if (a.getIv() != null) w += a.getIv().length;
+        if (a.getEmail() != null) w += 2L * a.getEmail().length();
+        if (a.getWebsite() != null) w += 2L * a.getWebsite().length();
+        return w;
+    }
+
+    private static void wipe(Account a) {
+        if (a.getPasswordEncrypted() != null) Arrays.fill(a.getPasswordEncrypted(), (byte) 0);
+        if (a.getIv() != null) Arrays.fill(a.getIv(), (byte) 0);
+    }
+
+    private static Account copyOf(Account a) {
+        return new Account(a.getId(), a.getEmail(), a.getWebsite(),
+                a.getPasswordEncrypted() == null ? null : a.getPasswordEncrypted().clone(),
+                a.getIv() == null ? null : a.getIv().clone(),
+                a.getEncVersion(), a.getCreatedAt(), a.getUpdatedAt());
+    }
+}
@@ -0,0 +1,77 @@
+package com.doof.passwordmanager.dao;
+
+import com.doof.passwordmanager.model.VaultMetadata;
+
+/**
+ * Keeps the single vault_metadata row in memory so repeated {@code find()} calls, including the
+ * "no vault yet" answer, cost no database round trip. Writes go through to the delegate and then
+ * replace the cached copy. Callers always get their own copy, so wiping a returned salt or hash
+ * cannot corrupt the cache.
+ */
+public class CachingVaultMetadataDao implements VaultMetadataDao {
+
+    private final VaultMetadataDao delegate;
+    private final Object lock = new Object();
+    private volatile Entry cached;
+
+    public CachingVaultMetadataDao(VaultMetadataDao delegate) {
+        this.delegate = delegate;
+    }
+
+    @Override
+    public void insert(VaultMetadata metadata) {
+        synchronized (lock) {
+            cached = null;
+            delegate.insert(metadata);
+            cached = new Entry(copyOf(metadata));
+        }
+    }
+
+    @Override
+    public VaultMetadata find() {
+        Entry e = cached;
+        if (e == null) {
+            synchronized (lock) {
+                e = cached;
+                if (e == null) {
+                    e = new Entry(delegate.find());
+                    cached = e;
+                }
+            }
+        }
+        return e.metadata == null ? null : copyOf(e.metadata);
+    }
+
+    @Override
+    public void update(VaultMetadata metadata) {
+        synchronized (lock) {
+            cached = null;
+            delegate.update(metadata);
+            cached = new Entry(copyOf(metadata));
+        }
+    }
+
+    /**
+     * Forces the next {@code find()} to read from the database, for when the row may have been
+     * changed outside this process.
+     */
+    public void invalidate() {
+        cached = null;
+    }
+
+    private static VaultMetadata copyOf(VaultMetadata m) {
+        return new VaultMetadata(m.getId(),
+                m.getKdfSalt() == null ? null : m.getKdfSalt().clone(),
+                m.getKdfParams(),
+                m.getMasterHash() == null ? null : m.getMasterHash().clone(),
+                m.getEncVersion(), m.getCreatedAt(), m.getUpdatedAt());
+    }
+
+    private static final class Entry {
+        final VaultMetadata metadata;
+
+        Entry(VaultMetadata metadata) {
+            this.metadata = metadata;
+        }
+    }
+}
@@ -0,0 +1,9 @@
+package com.doof.passwordmanager.dao;
+
+import com.doof.passwordmanager.model.Checkpoint;
+
+public interface CheckpointDao {
+    Checkpoint find(String name);
+    void save(Checkpoint checkpoint);
+    void delete(String name);
+}
@@ -0,0 +1,18 @@
+package com.doof.passwordmanager.dao;
+
+import com.doof.passwordmanager.model.DataKey;
+
+import java.util.List;
+
+public interface DataKeyDao {
+    void insert(DataKey dataKey);
+    DataKey find(int id);
+    DataKey findLatest();
+    List<DataKey> findAll();
+    void updateAll(List<DataKey> dataKeys);
+
+    /**
+     * Restore path: inserts the keys with the ids they carry, in one transaction.
+     */
+    void importAll(List<DataKey> dataKeys);
+}
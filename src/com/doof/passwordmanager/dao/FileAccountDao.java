@@ -0,0 +1,121 @@
+package com.doof.passwordmanager.dao;
+
+import com.doof.passwordmanager.model.Account;
+import com.doof.passwordmanager.model.AccountTombstone;
+import com.doof.passwordmanager.store.VaultStore;
+import com.doof.passwordmanager.store.VaultStoreStats;
+
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.function.Consumer;
+
+/**
+ * AccountDao over the local vault file. Same contract as JdbcAccountDao, including the duplicate
+ * (email, website) ValidationException and the errors for missing ids.
+ */
+public class FileAccountDao implements AccountDao {
+
+    private final VaultStore store;
+
+    public FileAccountDao(VaultStore store) {
+        this.store = store;
+    }
+
+    public VaultStoreStats getStoreStats() {
+        return store.getStats();
+    }
+
+    public String getStoreBackgroundError() {
+        return store.getBackgroundError();
+    }
+
+    @Override
+    public void addAccount(Account account) {
+        store.addAccount(account);
+    }
+
+    @Override
+    public int[] addAccounts(List<Account> accounts) {
+        return store.addAccounts(accounts);
+    }
+
+    @Override
+    public List<Account> getAllAccounts() {
+        return store.getAllAccounts();
+    }
+
+    @Override
+    public void forEachAccount(Consumer<Account> action) {
+        store.forEachAccount(action);
+    }
+
+    @Override
+    public List<Account> getAccountsAfter(int afterId, int limit) {
+        return store.getAccountsAfter(afterId, limit);
+    }
+
+    @Override
+    public void forEachAccountUpdatedSince(LocalDateTime since, Consumer<Account> action) {
+        store.forEachAccountUpdatedSince(since, action);
+    }
+
+    @Override
+    public void forEachDeletionSince(LocalDateTime since, Consumer<AccountTombstone> action) {
+        store.forEachDeletionSince(since, action);
+    }
+
+    @Override
+    public List<Account> getAccountsBelowEncVersion(int encVersion, int afterId, int limit) {
+        return store.getAccountsBelowEncVersion(encVersion, afterId, limit);
+    }
+
+    @Override
+    public Account getAccountById(int id) {
+        return store.getAccountById(id);
+    }
+
+    @Override
+    public Account findByEmailAndWebsite(String email, String website) {
+        return store.findByEmailAndWebsite(email, website);
+    }
+
+    @Override
+    public void updateAccount(Account account) {
+        store.updateAccount(account);
+    }
+
+    @Override
+    public void updateAccounts(List<Account> accounts) {
+        store.updateAccounts(accounts);
+    }
+
+    @Override
+    public int upgradeEncryption(List<Account> accounts) {
+        return store.upgradeEncryption(accounts);
+    }
+
+    @Override
+    public void deleteAccount(int id) {
+        store.deleteAccount(id);
+    }
+
+    @Override
+    public void importAccounts(List<Account> accounts) {
+        store.importAccounts(accounts);
+    }
+
+    @Override
+    public void removeAccounts(int[] ids) {
+        store.removeAccounts(ids);
+    }
+
+    @Override
+    public List<Account> search(String query, int limit, int offset) {
+        return store.search(query, limit, offset);
+    }
+
+    @Override
+    public List<Account> searchAfter(String query, int afterId, int limit) {
+        return store.searchAfter(query, afterId, limit);
+    }
+}
@@ -0,0 +1,28 @@
+package com.doof.passwordmanager.dao;
+
+import com.doof.passwordmanager.model.Checkpoint;
+import com.doof.passwordmanager.store.VaultStore;
+
+public class FileCheckpointDao implements CheckpointDao {
+
+    private final VaultStore store;
+
+    public FileCheckpointDao(VaultStore store) {
+        this.store = store;
+    }
+
+    @Override
+    public Checkpoint find(String name) {
+        return store.findCheckpoint(name);
+    }
+
+    @Override
+    public void save(Checkpoint checkpoint) {
+        store.saveCheckpoint(checkpoint);
+    }
+
+    @Override
+    public void delete(String name) {
+        store.deleteCheckpoint(name);
+    }
+}
@@ -0,0 +1,45 @@
+package com.doof.passwordmanager.dao;
+
+import com.doof.passwordmanager.model.DataKey;
+import com.doof.passwordmanager.store.VaultStore;
+
+import java.util.List;
+
+public class FileDataKeyDao implements DataKeyDao {
+
+    private final VaultStore store;
+
+    public FileDataKeyDao(VaultStore store) {
+        this.store = store;
+    }
+
+    @Override
+    public void insert(DataKey dataKey) {
+        store.insertDataKey(dataKey);
+    }
+
+    @Override
+    public DataKey find(int id) {
+        return store.findDataKey(id);
+    }
+
+    @Override
+    public DataKey findLatest() {
+        return store.findLatestDataKey();
+    }
+
+    @Override
+    public List<DataKey> findAll() {
+        return store.findAllDataKeys();
+    }
+
+    @Override
+    public void updateAll(List<DataKey> dataKeys) {
+        store.updateDataKeys(dataKeys);
+    }
+
+    @Override
+    public void importAll(List<DataKey> dataKeys) {
+        store.importDataKeys(dataKeys);
+    }
+}
@@ -0,0 +1,28 @@
+package com.doof.passwordmanager.dao;
+
+import com.doof.passwordmanager.model.VaultMetadata;
+import com.doof.passwordmanager.store.VaultStore;
+
+public class FileVaultMetadataDao implements VaultMetadataDao {
+
+    private final VaultStore store;
+
+    public FileVaultMetadataDao(VaultStore store) {
+        this.store = store;
+    }
+
+    @Override
+    public void insert(VaultMetadata metadata) {
+        store.insertMetadata(metadata);
+    }
+
+    @Override
+    public VaultMetadata find() {
+        return store.findMetadata();
+    }
+
+    @Override
+    public void update(VaultMetadata metadata) {
+        store.updateMetadata(metadata);
+    }
+}
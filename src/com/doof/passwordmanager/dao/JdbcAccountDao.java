@@ -1,15 +1,49 @@
 package com.doof.passwordmanager.dao;
 
 import com.doof.passwordmanager.model.Account;
+import com.doof.passwordmanager.model.AccountTombstone;
 import com.doof.passwordmanager.db.ConnectionManager;
+import com.doof.passwordmanager.util.ValidationException;
 
 import java.sql.*;
 import java.time.LocalDateTime;
 import java.util.ArrayList;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.function.Consumer;
 
 public class JdbcAccountDao implements AccountDao {
 
+    private static final int DEFAULT_FETCH_SIZE = 256;
+    private static final int DEFAULT_BATCH_SIZE = 500;
+    private static final int MYSQL_DUPLICATE_KEY = 1062;
+    // Bound rather than inlined: MySQL reads '\\' as one backslash, H2 reads it as two.
+    private static final String LIKE_ESCAPE = "\\";
+    private static final String DUPLICATE_MESSAGE = "An account with this email and website already exists.";
+
+    private final int fetchSize;
+    private final int batchSize;
+
+    public JdbcAccountDao() {
+        this(DEFAULT_FETCH_SIZE, DEFAULT_BATCH_SIZE);
+    }
+
+    public JdbcAccountDao(int fetchSize) {
+        this(fetchSize, DEFAULT_BATCH_SIZE);
+    }
+
+    public JdbcAccountDao(int fetchSize, int batchSize) {
+        if (fetchSize <= 0) {
+            throw new IllegalArgumentException("fetchSize must be positive");
+        }
+        if (batchSize <= 0) {
+            throw new IllegalArgumentException("batchSize must be positive");
+        }
+        this.fetchSize = fetchSize;
+        this.batchSize = batchSize;
+    }
+
     @Override
     public void addAccount(Account account) {
         String sql = "INSERT INTO accounts (email, password_encrypted, iv, enc_version, website) VALUES (?, ?, ?, ?, ?)";
@@ -33,12 +67,61 @@ public class JdbcAccountDao implements AccountDao {
                     account.setId(rs.getInt(1));
                 }
             }
+            loadTimestamps(conn, List.of(account));
 
         } catch (SQLException e) {
+            if (isDuplicateKey(e)) throw new ValidationException(DUPLICATE_MESSAGE);
             throw new RuntimeException("Error inserting account", e);
         }
     }
 
+    @Override
+    public int[] addAccounts(List<Account> accounts) {
+        String sql = "INSERT INTO accounts (email, password_encrypted, iv, enc_version, website) VALUES (?, ?, ?, ?, ?)";
+        int[] ids = new int[accounts.size()];
+        if (accounts.isEmpty()) return ids;
+
+        try (Connection conn = ConnectionManager.getConnection()) {
+            conn.setAutoCommit(false);
+            try (PreparedStatement ps = conn.prepareStatement(sql, Statement.RETURN_GENERATED_KEYS)) {
+                int assigned = 0;
+                for (int i = 0; i < accounts.size(); i++) {
+                    Account account = accounts.get(i);
+                    ps.setString(1, account.getEmail());
+                    ps.setBytes(2, account.getPasswordEncrypted());
+                    ps.setBytes(3, account.getIv());
+                    ps.setInt(4, account.getEncVersion());
+                    ps.setString(5, account.getWebsite());
+                    ps.addBatch();
+
+                    if ((i + 1) % batchSize == 0 || i == accounts.size() - 1) {
+                        ps.executeBatch();
+                        try (ResultSet rs = ps.getGeneratedKeys()) {
+                            while (rs.next() && assigned <= i) {
+                                ids[assigned++] = rs.getInt(1);
+                            }
+                        }
+                        if (assigned != i + 1) {
+                            throw new SQLException("Batch insert returned " + assigned + " generated keys for " + (i + 1) + " rows.");
+                        }
+                    }
+                }
+                for (int i = 0; i < ids.length; i++) {
+                    accounts.get(i).setId(ids[i]);
+                }
+                loadTimestamps(conn, accounts);
+                conn.commit();
+            } catch (SQLException | RuntimeException e) {
+                conn.rollback();
+                throw e;
+            }
+        } catch (SQLException e) {
+            if (isDuplicateKey(e)) throw new ValidationException(DUPLICATE_MESSAGE);
+            throw new RuntimeException("Error inserting " + accounts.size() + " accounts", e);
+        }
+        return ids;
+    }
+
     @Override
     public List<Account> getAllAccounts() {
         String sql = "SELECT id, email, password_encrypted, iv, enc_version, website, created_at, updated_at FROM accounts";
@@ -59,6 +142,121 @@ public class JdbcAccountDao implements AccountDao {
         }
     }
 
+    @Override
+    public void forEachAccount(Consumer<Account> action) {
+        String sql = "SELECT id, email, password_encrypted, iv, enc_version, website, created_at, updated_at FROM accounts ORDER BY id ASC";
+
+        try (Connection conn = ConnectionManager.getConnection();
+             PreparedStatement ps = conn.prepareStatement(sql, ResultSet.TYPE_FORWARD_ONLY, ResultSet.CONCUR_READ_ONLY)) {
+
+            ps.setFetchSize(fetchSize);
+
+            try (ResultSet rs = ps.executeQuery()) {
+                while (rs.next()) {
+                    action.accept(mapRowToAccount(rs));
+                }
+            }
+
+        } catch (SQLException e) {
+            throw new RuntimeException("Error streaming accounts", e);
+        }
+    }
+
+    @Override
+    public void forEachAccountUpdatedSince(LocalDateTime since, Consumer<Account> action) {
+        String sql = "SELECT id, email, password_encrypted, iv, enc_version, website, created_at, updated_at " +
+                "FROM accounts WHERE updated_at >= ? ORDER BY id ASC";
+
+        try (Connection conn = ConnectionManager.getConnection();
+             PreparedStatement ps = conn.prepareStatement(sql, ResultSet.TYPE_FORWARD_ONLY, ResultSet.CONCUR_READ_ONLY)) {
+
+            ps.setFetchSize(fetchSize);
+            ps.setTimestamp(1, Timestamp.valueOf(since));
+
+            try (ResultSet rs = ps.executeQuery()) {
+                while (rs.next()) {
+                    action.accept(mapRowToAccount(rs));
+                }
+            }
+
+        } catch (SQLException e) {
+            throw new RuntimeException("Error streaming accounts updated since " + since, e);
+        }
+    }
+
+    @Override
+    public void forEachDeletionSince(LocalDateTime since, Consumer<AccountTombstone> action) {
+        String sql = "SELECT account_id, deleted_at FROM account_deletions WHERE deleted_at >= ? ORDER BY id ASC";
+
+        try (Connection conn = ConnectionManager.getConnection();
+             PreparedStatement ps = conn.prepareStatement(sql, ResultSet.TYPE_FORWARD_ONLY, ResultSet.CONCUR_READ_ONLY)) {
+
+            ps.setFetchSize(fetchSize);
+            ps.setTimestamp(1, Timestamp.valueOf(since));
+
+            try (ResultSet rs = ps.executeQuery()) {
+                while (rs.next()) {
+                    action.accept(new AccountTombstone(rs.getInt("account_id"),
+                            rs.getTimestamp("deleted_at").toLocalDateTime()));
+                }
+            }
+
+        } catch (SQLException e) {
+            throw new RuntimeException("Error streaming account deletions since " + since, e);
+        }
+    }
+
+    @Override
+    public List<Account> getAccountsAfter(int afterId, int limit) {
+        String sql = "SELECT id, email, password_encrypted, iv, enc_version, website, created_at, updated_at " +
+                "FROM accounts WHERE id > ? ORDER BY id ASC LIMIT ?";
+        List<Account> accounts = new ArrayList<>();
+
+        try (Connection conn = ConnectionManager.getConnection();
+             PreparedStatement ps = conn.prepareStatement(sql)) {
+
+            ps.setInt(1, afterId);
+            ps.setInt(2, limit);
+
+            try (ResultSet rs = ps.executeQuery()) {
+                while (rs.next()) {
+                    accounts.add(mapRowToAccount(rs));
+                }
+            }
+
+            return accounts;
+
+        } catch (SQLException e) {
+            throw new RuntimeException("Error fetching accounts after id: " + afterId, e);
+        }
+    }
+
+    @Override
+    public List<Account> getAccountsBelowEncVersion(int encVersion, int afterId, int limit) {
+        String sql = "SELECT id, email, password_encrypted, iv, enc_version, website, created_at, updated_at " +
+                "FROM accounts WHERE enc_version < ? AND id > ? ORDER BY id ASC LIMIT ?";
+        List<Account> accounts = new ArrayList<>();
+
+        try (Connection conn = ConnectionManager.getConnection();
+             PreparedStatement ps = conn.prepareStatement(sql)) {
+
+            ps.setInt(1, encVersion);
+            ps.setInt(2, afterId);
+            ps.setInt(3, limit);
+
+            try (ResultSet rs = ps.executeQuery()) {
+                while (rs.next()) {
+                    accounts.add(mapRowToAccount(rs));
+                }
+            }
+
+            return accounts;
+
+        } catch (SQLException e) {
+            throw new RuntimeException("Error fetching accounts below enc_version " + encVersion, e);
+        }
+    }
+
     @Override
     public Account getAccountById(int id) {
         String sql = "SELECT id, email, password_encrypted, iv, enc_version, website, created_at, updated_at FROM accounts WHERE id = ?";
@@ -81,6 +279,30 @@ public class JdbcAccountDao implements AccountDao {
         }
     }
 
+    /**
+     * Exact lookup on the unique (email, website) key. The column collation is case-insensitive,
+     * so this matches the same rows the constraint would.
+     */
+    @Override
+    public Account findByEmailAndWebsite(String email, String website) {
+        String sql = "SELECT id, email, password_encrypted, iv, enc_version, website, created_at, updated_at " +
+                "FROM accounts WHERE email = ? AND website = ?";
+
+        try (Connection conn = ConnectionManager.getConnection();
+             PreparedStatement ps = conn.prepareStatement(sql)) {
+
+            ps.setString(1, email);
+            ps.setString(2, website);
+
+            try (ResultSet rs = ps.executeQuery()) {
+                return rs.next() ? mapRowToAccount(rs) : null;
+            }
+
+        } catch (SQLException e) {
+            throw new RuntimeException("Error looking up account by email and website", e);
+        }
+    }
+
     @Override
     public void updateAccount(Account account) {
         String sql = "UPDATE accounts SET email = ?, password_encrypted = ?, iv = ?, enc_version = ?, website = ?, updated_at = CURRENT_TIMESTAMP WHERE id = ?";
@@ -99,48 +321,207 @@ public class JdbcAccountDao implements AccountDao {
             if (affected == 0) {
                 throw new RuntimeException("Update failed: account with id " + account.getId() + " does not exist.");
             }
+            loadTimestamps(conn, List.of(account));
 
         } catch (SQLException e) {
+            if (isDuplicateKey(e)) throw new ValidationException(DUPLICATE_MESSAGE);
             throw new RuntimeException("Error updating account with id: " + account.getId(), e);
         }
     }
 
+    @Override
+    public void updateAccounts(List<Account> accounts) {
+        String sql = "UPDATE accounts SET email = ?, password_encrypted = ?, iv = ?, enc_version = ?, website = ?, updated_at = CURRENT_TIMESTAMP WHERE id = ?";
+        if (accounts.isEmpty()) return;
+
+        try (Connection conn = ConnectionManager.getConnection()) {
+            conn.setAutoCommit(false);
+            try (PreparedStatement ps = conn.prepareStatement(sql)) {
+                int batchStart = 0;
+                for (int i = 0; i < accounts.size(); i++) {
+                    Account account = accounts.get(i);
+                    ps.setString(1, account.getEmail());
+                    ps.setBytes(2, account.getPasswordEncrypted());
+                    ps.setBytes(3, account.getIv());
+                    ps.setInt(4, account.getEncVersion());
+                    ps.setString(5, account.getWebsite());
+                    ps.setInt(6, account.getId());
+                    ps.addBatch();
+
+                    if ((i + 1) % batchSize == 0 || i == accounts.size() - 1) {
+                        int[] counts = ps.executeBatch();
+                        for (int k = 0; k < counts.length; k++) {
+                            if (counts[k] == 0) {
+                                throw new RuntimeException("Update failed: account with id "
+                                        + accounts.get(batchStart + k).getId() + " does not exist.");
+                            }
+                        }
+                        batchStart = i + 1;
+                    }
+                }
+                loadTimestamps(conn, accounts);
+                conn.commit();
+            } catch (SQLException | RuntimeException e) {
+                conn.rollback();
+                throw e;
+            }
+        } catch (SQLException e) {
+            if (isDuplicateKey(e)) throw new ValidationException(DUPLICATE_MESSAGE);
+            throw new RuntimeException("Error updating " + accounts.size() + " accounts", e);
+        }
+    }
+
+    /**
+     * Rewrites only the ciphertext, IV and enc_version, and only where the stored enc_version is
+     * still lower than the new one, so a row the user changed in the meantime is left alone.
+     * Returns how many rows were upgraded.
+     */
+    @Override
+    public int upgradeEncryption(List<Account> accounts) {
+        String sql = "UPDATE accounts SET password_encrypted = ?, iv = ?, enc_version = ?, updated_at = CURRENT_TIMESTAMP " +
+                "WHERE id = ? AND enc_version < ?";
+        if (accounts.isEmpty()) return 0;
+
+        try (Connection conn = ConnectionManager.getConnection()) {
+            conn.setAutoCommit(false);
+            try (PreparedStatement ps = conn.prepareStatement(sql)) {
+                for (Account account : accounts) {
+                    ps.setBytes(1, account.getPasswordEncrypted());
+                    ps.setBytes(2, account.getIv());
+                    ps.setInt(3, account.getEncVersion());
+                    ps.setInt(4, account.getId());
+                    ps.setInt(5, account.getEncVersion());
+                    ps.addBatch();
+                }
+                int upgraded = 0;
+                for (int count : ps.executeBatch()) {
+                    if (count > 0 || count == Statement.SUCCESS_NO_INFO) upgraded++;
+                }
+                conn.commit();
+                return upgraded;
+            } catch (SQLException | RuntimeException e) {
+                conn.rollback();
+                throw e;
+            }
+        } catch (SQLException e) {
+            throw new RuntimeException("Error upgrading encryption of " + accounts.size() + " accounts", e);
+        }
+    }
+
     @Override
     public void deleteAccount(int id) {
         String sql = "DELETE FROM accounts WHERE id = ?";
+        String logSql = "INSERT INTO account_deletions (account_id) VALUES (?)";
 
-        try (Connection conn = ConnectionManager.getConnection();
-             PreparedStatement ps = conn.prepareStatement(sql)) {
+        try (Connection conn = ConnectionManager.getConnection()) {
+            conn.setAutoCommit(false);
+            try (PreparedStatement ps = conn.prepareStatement(sql);
+                 PreparedStatement log = conn.prepareStatement(logSql)) {
 
-            ps.setInt(1, id);
+                ps.setInt(1, id);
 
-            int affected = ps.executeUpdate();
-            if (affected == 0) {
-                throw new RuntimeException("Delete failed: account with id " + id + " does not exist.");
-            }
+                int affected = ps.executeUpdate();
+                if (affected == 0) {
+                    throw new RuntimeException("Delete failed: account with id " + id + " does not exist.");
+                }
 
+                log.setInt(1, id);
+                log.executeUpdate();
+                conn.commit();
+            } catch (SQLException | RuntimeException e) {
+                conn.rollback();
+                throw e;
+            }
         } catch (SQLException e) {
             throw new RuntimeException("Error deleting account with id: " + id, e);
         }
     }
 
+    /**
+     * Null timestamps fall back to the current time, so a restored row is never invisible to the
+     * next incremental backup.
+     */
+    @Override
+    public void importAccounts(List<Account> accounts) {
+        String sql = "INSERT INTO accounts (id, email, password_encrypted, iv, enc_version, website, created_at, updated_at) " +
+                "VALUES (?, ?, ?, ?, ?, ?, COALESCE(?, CURRENT_TIMESTAMP), COALESCE(?, CURRENT_TIMESTAMP))";
+        if (accounts.isEmpty()) return;
+
+        try (Connection conn = ConnectionManager.getConnection()) {
+            conn.setAutoCommit(false);
+            try (PreparedStatement ps = conn.prepareStatement(sql)) {
+                for (int i = 0; i < accounts.size(); i++) {
+                    Account account = accounts.get(i);
+                    ps.setInt(1, account.getId());
+                    ps.setString(2, account.getEmail());
+                    ps.setBytes(3, account.getPasswordEncrypted());
+                    ps.setBytes(4, account.getIv());
+                    ps.setInt(5, account.getEncVersion());
+                    ps.setString(6, account.getWebsite());
+                    ps.setTimestamp(7, toTimestamp(account.getCreatedAt()));
+                    ps.setTimestamp(8, toTimestamp(account.getUpdatedAt()));
+                    ps.addBatch();
+
+                    if ((i + 1) % batchSize == 0 || i == accounts.size() - 1) {
+                        ps.executeBatch();
+                    }
+                }
+                conn.commit();
+            } catch (SQLException | RuntimeException e) {
+                conn.rollback();
+                throw e;
+            }
+        } catch (SQLException e) {
+            if (isDuplicateKey(e)) throw new ValidationException(DUPLICATE_MESSAGE);
+            throw new RuntimeException("Error importing " + accounts.size() + " accounts", e);
+        }
+    }
+
+    @Override
+    public void removeAccounts(int[] ids) {
+        String sql = "DELETE FROM accounts WHERE id = ?";
+        if (ids.length == 0) return;
+
+        try (Connection conn = ConnectionManager.getConnection()) {
+            conn.setAutoCommit(false);
+            try (PreparedStatement ps = conn.prepareStatement(sql)) {
+                for (int i = 0; i < ids.length; i++) {
+                    ps.setInt(1, ids[i]);
+                    ps.addBatch();
+
+                    if ((i + 1) % batchSize == 0 || i == ids.length - 1) {
+                        ps.executeBatch();
+                    }
+                }
+                conn.commit();
+            } catch (SQLException | RuntimeException e) {
+                conn.rollback();
+                throw e;
+            }
+        } catch (SQLException e) {
+            throw new RuntimeException("Error removing " + ids.length + " accounts", e);
+        }
+    }
+
     @Override
     public List<Account> search(String query, int limit, int offset) {
         String sql = "SELECT id, email, password_encrypted, iv, enc_version, website, created_at, updated_at " +
                 "FROM accounts " +
-                "WHERE email LIKE ? OR website LIKE ? " +
+                "WHERE email LIKE ? ESCAPE ? OR website LIKE ? ESCAPE ? " +
                 "ORDER BY id ASC " +
                 "LIMIT ? OFFSET ?";
         List<Account> accounts = new ArrayList<>();
-        String like = "%" + query + "%";
+        String like = containsPattern(query);
 
         try (Connection conn = ConnectionManager.getConnection();
              PreparedStatement ps = conn.prepareStatement(sql)) {
 
             ps.setString(1, like);
-            ps.setString(2, like);
-            ps.setInt(3, limit);
-            ps.setInt(4, offset);
+            ps.setString(2, LIKE_ESCAPE);
+            ps.setString(3, like);
+            ps.setString(4, LIKE_ESCAPE);
+            ps.setInt(5, limit);
+            ps.setInt(6, offset);
 
             try (ResultSet rs = ps.executeQuery()) {
                 while (rs.next()) {
@@ -155,6 +536,96 @@ public class JdbcAccountDao implements AccountDao {
         }
     }
 
+    @Override
+    public List<Account> searchAfter(String query, int afterId, int limit) {
+        String sql = "SELECT id, email, password_encrypted, iv, enc_version, website, created_at, updated_at " +
+                "FROM accounts " +
+                "WHERE id > ? AND (email LIKE ? ESCAPE ? OR website LIKE ? ESCAPE ?) " +
+                "ORDER BY id ASC " +
+                "LIMIT ?";
+        List<Account> accounts = new ArrayList<>();
+        String like = containsPattern(query);
+
+        try (Connection conn = ConnectionManager.getConnection();
+             PreparedStatement ps = conn.prepareStatement(sql)) {
+
+            ps.setInt(1, afterId);
+            ps.setString(2, like);
+            ps.setString(3, LIKE_ESCAPE);
+            ps.setString(4, like);
+            ps.setString(5, LIKE_ESCAPE);
+            ps.setInt(6, limit);
+
+            try (ResultSet rs = ps.executeQuery()) {
+                while (rs.next()) {
+                    accounts.add(mapRowToAccount(rs));
+                }
+            }
+
+            return accounts;
+
+        } catch (SQLException e) {
+            throw new RuntimeException("Error searching accounts after id: " + afterId, e);
+        }
+    }
+
+    /**
+     * Reads back created_at and updated_at for rows just written on {@code conn}; both come from
+     * the database clock, so they cannot be filled in up front.
+     */
+    private void loadTimestamps(Connection conn, List<Account> accounts) throws SQLException {
+        for (int from = 0; from < accounts.size(); from += batchSize) {
+            List<Account> chunk = accounts.subList(from, Math.min(accounts.size(), from + batchSize));
+            StringBuilder sql = new StringBuilder("SELECT id, created_at, updated_at FROM accounts WHERE id IN (");
+            for (int i = 0; i < chunk.size(); i++) sql.append(i == 0 ? "?" : ", ?");
+            sql.append(')');
+            Map<Integer, Account> byId = new HashMap<>(chunk.size() * 2);
+            try (PreparedStatement ps = conn.prepareStatement(sql.toString())) {
+                for (int i = 0; i < chunk.size(); i++) {
+                    ps.setInt(i + 1, chunk.get(i).getId());
+                    byId.put(chunk.get(i).getId(), chunk.get(i));
+                }
+                try (ResultSet rs = ps.executeQuery()) {
+                    while (rs.next()) {
+                        Account a = byId.get(rs.getInt(1));
+                        Timestamp created = rs.getTimestamp(2);
+                        Timestamp updated = rs.getTimestamp(3);
+                        a.setCreatedAt(created == null ? null : created.toLocalDateTime());
+                        a.setUpdatedAt(updated == null ? null : updated.toLocalDateTime());
+                    }
+                }
+            }
+        }
+    }
+
+    /**
+     * Builds a LIKE pattern matching {@code query} anywhere, with the wildcards
+     * {@code %} and {@code _} (and the escape character itself) taken literally.
+     */
+    private static String containsPattern(String query) {
+        StringBuilder sb = new StringBuilder(query.length() + 8).append('%');
+        for (int i = 0; i < query.length(); i++) {
+            char c = query.charAt(i);
+            if (c == '\\' || c == '%' || c == '_') sb.append('\\');
+            sb.append(c);
+        }
+        return sb.append('%').toString();
+    }
+
+    private static boolean isDuplicateKey(SQLException e) {
+        for (Throwable t = e; t != null; t = t.getCause()) {
+            if (t instanceof SQLException s && s.getErrorCode() == MYSQL_DUPLICATE_KEY) return true;
+        }
+        for (SQLException next = e.getNextException(); next != null; next = next.getNextException()) {
+            if (next.getErrorCode() == MYSQL_DUPLICATE_KEY) return true;
+        }
+        return false;
+    }
+
+    private static Timestamp toTimestamp(LocalDateTime time) {
+        return time == null ? null : Timestamp.valueOf(time);
+    }
+
     private Account mapRowToAccount(ResultSet rs) throws SQLException {
         Account account = new Account();
         account.setId(rs.getInt("id"));
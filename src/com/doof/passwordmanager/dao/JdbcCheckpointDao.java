@@ -0,0 +1,66 @@
+package com.doof.passwordmanager.dao;
+
+import com.doof.passwordmanager.db.ConnectionManager;
+import com.doof.passwordmanager.model.Checkpoint;
+
+import java.sql.*;
+
+public class JdbcCheckpointDao implements CheckpointDao {
+
+    @Override
+    public Checkpoint find(String name) {
+        String sql = "SELECT name, position, payload, updated_at FROM vault_checkpoints WHERE name = ?";
+
+        try (Connection conn = ConnectionManager.getConnection();
+             PreparedStatement ps = conn.prepareStatement(sql)) {
+
+            ps.setString(1, name);
+
+            try (ResultSet rs = ps.executeQuery()) {
+                if (!rs.next()) {
+                    return null;
+                }
+                Checkpoint checkpoint = new Checkpoint(rs.getString("name"), rs.getLong("position"), rs.getString("payload"));
+                Timestamp updatedTs = rs.getTimestamp("updated_at");
+                if (updatedTs != null) checkpoint.setUpdatedAt(updatedTs.toLocalDateTime());
+                return checkpoint;
+            }
+
+        } catch (SQLException e) {
+            throw new RuntimeException("Error reading checkpoint: " + name, e);
+        }
+    }
+
+    @Override
+    public void save(Checkpoint checkpoint) {
+        String sql = "INSERT INTO vault_checkpoints (name, position, payload) VALUES (?, ?, ?) " +
+                "ON DUPLICATE KEY UPDATE position = VALUES(position), payload = VALUES(payload), updated_at = CURRENT_TIMESTAMP";
+
+        try (Connection conn = ConnectionManager.getConnection();
+             PreparedStatement ps = conn.prepareStatement(sql)) {
+
+            ps.setString(1, checkpoint.getName());
+            ps.setLong(2, checkpoint.getPosition());
+            ps.setString(3, checkpoint.getPayload());
+            ps.executeUpdate();
+
+        } catch (SQLException e) {
+            throw new RuntimeException("Error saving checkpoint: " + checkpoint.getName(), e);
+        }
+    }
+
+    @Override
+    public void delete(String name) {
+        String sql = "DELETE FROM vault_checkpoints WHERE name = ?";
+
+        try (Connection conn = ConnectionManager.getConnection();
+             PreparedStatement ps = conn.prepareStatement(sql)) {
+
+            ps.setString(1, name);
+            ps.executeUpdate();
+
+        } catch (SQLException e) {
+            throw new RuntimeException("Error deleting checkpoint: " + name, e);
+        }
+    }
+}
@@ -0,0 +1,144 @@
+package com.doof.passwordmanager.dao;
+
+import com.doof.passwordmanager.db.ConnectionManager;
+import com.doof.passwordmanager.model.DataKey;
+
+import java.sql.*;
+import java.util.ArrayList;
+import java.util.List;
+
+public class JdbcDataKeyDao implements DataKeyDao {
+
+    private static final String COLUMNS = "SELECT id, wrapped_key, iv, created_at FROM account_data_keys";
+
+    @Override
+    public void insert(DataKey dataKey) {
+        String sql = "INSERT INTO account_data_keys (wrapped_key, iv) VALUES (?, ?)";
+
+        try (Connection conn = ConnectionManager.getConnection();
+             PreparedStatement ps = conn.prepareStatement(sql, Statement.RETURN_GENERATED_KEYS)) {
+
+            ps.setBytes(1, dataKey.getWrappedKey());
+            ps.setBytes(2, dataKey.getIv());
+
+            if (ps.executeUpdate() == 0) {
+                throw new RuntimeException("Inserting data key failed, no rows affected.");
+            }
+            try (ResultSet keys = ps.getGeneratedKeys()) {
+                if (keys.next()) {
+                    dataKey.setId(keys.getInt(1));
+                } else {
+                    throw new RuntimeException("Inserting data key failed, no ID obtained.");
+                }
+            }
+
+        } catch (SQLException e) {
+            throw new RuntimeException("Error inserting data key", e);
+        }
+    }
+
+    @Override
+    public DataKey find(int id) {
+        return queryOne(COLUMNS + " WHERE id = ?", id);
+    }
+
+    @Override
+    public DataKey findLatest() {
+        return queryOne(COLUMNS + " ORDER BY id DESC LIMIT 1", null);
+    }
+
+    @Override
+    public List<DataKey> findAll() {
+        List<DataKey> keys = new ArrayList<>();
+
+        try (Connection conn = ConnectionManager.getConnection();
+             PreparedStatement ps = conn.prepareStatement(COLUMNS + " ORDER BY id ASC");
+             ResultSet rs = ps.executeQuery()) {
+
+            while (rs.next()) {
+                keys.add(mapRow(rs));
+            }
+            return keys;
+
+        } catch (SQLException e) {
+            throw new RuntimeException("Error fetching data keys", e);
+        }
+    }
+
+    /**
+     * Rewrites the wrapped bytes of every given key in one transaction, so a master key change
+     * never leaves the keys wrapped under two different masters.
+     */
+    @Override
+    public void updateAll(List<DataKey> dataKeys) {
+        String sql = "UPDATE account_data_keys SET wrapped_key = ?, iv = ? WHERE id = ?";
+        if (dataKeys.isEmpty()) return;
+
+        try (Connection conn = ConnectionManager.getConnection()) {
+            conn.setAutoCommit(false);
+            try (PreparedStatement ps = conn.prepareStatement(sql)) {
+                for (DataKey k : dataKeys) {
+                    ps.setBytes(1, k.getWrappedKey());
+                    ps.setBytes(2, k.getIv());
+                    ps.setInt(3, k.getId());
+                    ps.addBatch();
+                }
+                ps.executeBatch();
+                conn.commit();
+            } catch (SQLException | RuntimeException e) {
+                conn.rollback();
+                throw e;
+            }
+        } catch (SQLException e) {
+            throw new RuntimeException("Error updating " + dataKeys.size() + " data keys", e);
+        }
+    }
+
+    @Override
+    public void importAll(List<DataKey> dataKeys) {
+        String sql = "INSERT INTO account_data_keys (id, wrapped_key, iv, created_at) " +
+                "VALUES (?, ?, ?, COALESCE(?, CURRENT_TIMESTAMP))";
+        if (dataKeys.isEmpty()) return;
+
+        try (Connection conn = ConnectionManager.getConnection()) {
+            conn.setAutoCommit(false);
+            try (PreparedStatement ps = conn.prepareStatement(sql)) {
+                for (DataKey k : dataKeys) {
+                    ps.setInt(1, k.getId());
+                    ps.setBytes(2, k.getWrappedKey());
+                    ps.setBytes(3, k.getIv());
+                    ps.setTimestamp(4, k.getCreatedAt() == null ? null : Timestamp.valueOf(k.getCreatedAt()));
+                    ps.addBatch();
+                }
+                ps.executeBatch();
+                conn.commit();
+            } catch (SQLException | RuntimeException e) {
+                conn.rollback();
+                throw e;
+            }
+        } catch (SQLException e) {
+            throw new RuntimeException("Error importing " + dataKeys.size() + " data keys", e);
+        }
+    }
+
+    private DataKey queryOne(String sql, Integer id) {
+        try (Connection conn = ConnectionManager.getConnection();
+             PreparedStatement ps = conn.prepareStatement(sql)) {
+
+            if (id != null) ps.setInt(1, id);
+
+            try (ResultSet rs = ps.executeQuery()) {
+                return rs.next() ? mapRow(rs) : null;
+            }
+
+        } catch (SQLException e) {
+            throw new RuntimeException("Error fetching data key", e);
+        }
+    }
+
+    private DataKey mapRow(ResultSet rs) throws SQLException {
+        Timestamp createdTs = rs.getTimestamp("created_at");
+        return new DataKey(rs.getInt("id"), rs.getBytes("wrapped_key"), rs.getBytes("iv"),
+                createdTs == null ? null : createdTs.toLocalDateTime());
+    }
+}
@@ -1,23 +1,59 @@
 package com.doof.passwordmanager.db;
 
 import java.sql.Connection;
-import java.sql.DriverManager;
 import java.sql.SQLException;
 
 public class ConnectionManager {
 
-    private static final String URL = "jdbc:mysql://localhost:3306/Password_Manager?sslMode=VERIFY_IDENTITY";
-    private static final String USER = "appuser";
-    private static final String PASSWORD = "appuser";
+    private static final String URL = System.getProperty("doof.db.url",
+            "jdbc:mysql://localhost:3306/Password_Manager?sslMode=VERIFY_IDENTITY&useCursorFetch=true&rewriteBatchedStatements=true");
+    private static final String USER = System.getProperty("doof.db.user", "appuser");
+    private static final String PASSWORD = System.getProperty("doof.db.password", "appuser");
+    private static final String DRIVER = System.getProperty("doof.db.driver", "com.mysql.cj.jdbc.Driver");
+
+    private static final int POOL_MAX_SIZE = Integer.getInteger("doof.db.pool.maxSize", 10);
+    private static final long POOL_MAX_WAIT_MS = Long.getLong("doof.db.pool.maxWaitMs", 30_000L);
+    private static final long POOL_IDLE_TIMEOUT_MS = Long.getLong("doof.db.pool.idleTimeoutMs", 10 * 60 * 1000L);
+    private static final long POOL_MAX_LIFETIME_MS = Long.getLong("doof.db.pool.maxLifetimeMs", 30 * 60 * 1000L);
+
+    private static volatile ConnectionPool pool;
 
     private ConnectionManager() {}
 
     public static Connection getConnection() throws SQLException {
-        try {
-            Class.forName("com.mysql.cj.jdbc.Driver");
-        } catch (ClassNotFoundException e) {
-            throw new SQLException("MySQL JDBC Driver not found. Add mysql-connector-j to the project.", e);
+        return pool().borrow();
+    }
+
+    public static int getPoolMaxSize() {
+        return POOL_MAX_SIZE;
+    }
+
+    public static PoolStats getPoolStats() {
+        ConnectionPool p = pool;
+        return p == null ? null : p.getStats();
+    }
+
+    public static synchronized void shutdown() {
+        if (pool != null) {
+            pool.close();
+            pool = null;
+        }
+    }
+
+    private static ConnectionPool pool() throws SQLException {
+        ConnectionPool p = pool;
+        if (p != null) return p;
+        synchronized (ConnectionManager.class) {
+            if (pool == null) {
+                try {
+                    Class.forName(DRIVER);
+                } catch (ClassNotFoundException e) {
+                    throw new SQLException("MySQL JDBC Driver not found. Add mysql-connector-j to the project.", e);
+                }
+                pool = new ConnectionPool(URL, USER, PASSWORD, POOL_MAX_SIZE,
+                        POOL_MAX_WAIT_MS, POOL_IDLE_TIMEOUT_MS, POOL_MAX_LIFETIME_MS);
+            }
+            return pool;
         }
-        return DriverManager.getConnection(URL, USER, PASSWORD);
     }
 }
@@ -0,0 +1,481 @@
+package com.doof.passwordmanager.db;
+
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.sql.CallableStatement;
+import java.sql.Connection;
+import java.sql.DatabaseMetaData;
+import java.sql.DriverManager;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.SQLTimeoutException;
+import java.sql.Statement;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Objects;
+import java.util.Set;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Bounded pool of physical JDBC connections. Borrowed connections are proxies whose
+ * {@code close()} hands the physical connection back to the pool, so callers keep using
+ * try-with-resources exactly as they would with {@link DriverManager}.
+ *
+ * <p>Statements, metadata and result sets obtained from a lease are proxied too, so neither
+ * {@code getConnection()}, {@code ResultSet.getStatement()} nor {@code unwrap} can leak the
+ * physical connection past its return.
+ * A lease that changed read-only mode, isolation or catalog has them restored before the
+ * connection is reused.
+ */
+public class ConnectionPool implements AutoCloseable {
+
+    private static final int VALIDATION_TIMEOUT_SECONDS = 2;
+    private static final long VALIDATION_INTERVAL_MS = 500;
+    private static final long EVICTION_INTERVAL_MS = 30_000;
+    private static final Set<Class<?>> LEASED_TYPES = Set.of(
+            Statement.class, PreparedStatement.class, CallableStatement.class, DatabaseMetaData.class,
+            ResultSet.class);
+
+    private final String url;
+    private final String user;
+    private final String password;
+    private final int maxSize;
+    private final long maxWaitNanos;
+    private final long idleTimeoutMs;
+    private final long maxLifetimeMs;
+
+    private final ReentrantLock lock = new ReentrantLock();
+    private final Condition available = lock.newCondition();
+    private final Deque<PooledEntry> idle = new ArrayDeque<>();
+    private int total;
+    private int waiting;
+    private boolean closed;
+
+    private final ScheduledExecutorService housekeeper;
+
+    private final LongAdder borrowCount = new LongAdder();
+    private final LongAdder createdCount = new LongAdder();
+    private final LongAdder destroyedCount = new LongAdder();
+    private final LongAdder timeoutCount = new LongAdder();
+    private final LongAdder validationFailures = new LongAdder();
+    private final LongAdder totalWaitNanos = new LongAdder();
+    private final AtomicLong maxWaitNanosSeen = new AtomicLong();
+
+    public ConnectionPool(String url, String user, String password, int maxSize,
+                          long maxWaitMs, long idleTimeoutMs, long maxLifetimeMs) {
+        if (maxSize <= 0) {
+            throw new IllegalArgumentException("maxSize must be positive");
+        }
+        this.url = url;
+        this.user = user;
+        this.password = password;
+        this.maxSize = maxSize;
+        this.maxWaitNanos = TimeUnit.MILLISECONDS.toNanos(maxWaitMs);
+        this.idleTimeoutMs = idleTimeoutMs;
+        this.maxLifetimeMs = maxLifetimeMs;
+
+        this.housekeeper = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread t = new Thread(r, "connection-pool-housekeeper");
+            t.setDaemon(true);
+            return t;
+        });
+        // Sweep at least twice per idle timeout so a short timeout is not overshot by the default interval.
+        long sweepMs = idleTimeoutMs > 0 ? Math.max(100, Math.min(EVICTION_INTERVAL_MS, idleTimeoutMs / 2)) : EVICTION_INTERVAL_MS;
+        housekeeper.scheduleWithFixedDelay(this::evictIdle, sweepMs, sweepMs, TimeUnit.MILLISECONDS);
+    }
+
+    public Connection borrow() throws SQLException {
+        long start = System.nanoTime();
+        long deadline = start + maxWaitNanos;
+
+        while (true) {
+            PooledEntry entry;
+            boolean create = false;
+
+            lock.lock();
+            try {
+                while (true) {
+                    if (closed) {
+                        throw new SQLException("Connection pool is closed.");
+                    }
+                    entry = idle.pollFirst();
+                    if (entry != null) break;
+                    if (total < maxSize) {
+                        total++;
+                        create = true;
+                        break;
+                    }
+                    long remaining = deadline - System.nanoTime();
+                    if (remaining <= 0) {
+                        timeoutCount.increment();
+                        throw new SQLTimeoutException("Timed out after " + TimeUnit.NANOSECONDS.toMillis(maxWaitNanos)
+                                + " ms waiting for a database connection (pool size " + maxSize + ").");
+                    }
+                    waiting++;
+                    try {
+                        available.awaitNanos(remaining);
+                    } catch (InterruptedException e) {
+                        Thread.currentThread().interrupt();
+                        throw new SQLException("Interrupted while waiting for a database connection.", e);
+                    } finally {
+                        waiting--;
+                    }
+                }
+            } finally {
+                lock.unlock();
+            }
+
+            if (create) {
+                try {
+                    entry = open();
+                    createdCount.increment();
+                } catch (SQLException e) {
+                    releaseSlot();
+                    throw e;
+                }
+            } else if (!isUsable(entry)) {
+                destroy(entry);
+                continue;
+            }
+
+            recordWait(System.nanoTime() - start);
+            return entry.lease();
+        }
+    }
+
+    public PoolStats getStats() {
+        lock.lock();
+        try {
+            long borrows = borrowCount.sum();
+            return new PoolStats(
+                    total,
+                    idle.size(),
+                    total - idle.size(),
+                    waiting,
+                    maxSize,
+                    borrows,
+                    createdCount.sum(),
+                    destroyedCount.sum(),
+                    timeoutCount.sum(),
+                    validationFailures.sum(),
+                    borrows == 0 ? 0 : totalWaitNanos.sum() / borrows,
+                    maxWaitNanosSeen.get()
+            );
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    @Override
+    public void close() {
+        List<PooledEntry> toClose;
+        lock.lock();
+        try {
+            if (closed) return;
+            closed = true;
+            toClose = new ArrayList<>(idle);
+            total -= idle.size();
+            idle.clear();
+            available.signalAll();
+        } finally {
+            lock.unlock();
+        }
+        housekeeper.shutdownNow();
+        for (PooledEntry e : toClose) {
+            closeQuietly(e);
+        }
+    }
+
+    private PooledEntry open() throws SQLException {
+        Connection physical = DriverManager.getConnection(url, user, password);
+        try {
+            return new PooledEntry(physical);
+        } catch (SQLException e) {
+            try {
+                physical.close();
+            } catch (SQLException suppressed) {
+                e.addSuppressed(suppressed);
+            }
+            throw e;
+        }
+    }
+
+    private boolean isUsable(PooledEntry entry) {
+        long now = System.currentTimeMillis();
+        if (isExpired(entry, now)) {
+            return false;
+        }
+        if (now - entry.lastReturnedAt < VALIDATION_INTERVAL_MS) {
+            return true;
+        }
+        try {
+            if (entry.physical.isValid(VALIDATION_TIMEOUT_SECONDS)) {
+                return true;
+            }
+        } catch (SQLException ignored) {
+        }
+        validationFailures.increment();
+        return false;
+    }
+
+    private boolean isExpired(PooledEntry entry, long now) {
+        return maxLifetimeMs > 0 && now - entry.createdAt >= maxLifetimeMs;
+    }
+
+    private void giveBack(PooledEntry entry) {
+        boolean reusable = !isExpired(entry, System.currentTimeMillis());
+        if (reusable) {
+            try {
+                Connection c = entry.physical;
+                if (!c.getAutoCommit()) {
+                    c.rollback();
+                    c.setAutoCommit(true);
+                }
+                if (entry.sessionChanged) {
+                    entry.restoreSession();
+                }
+                c.clearWarnings();
+            } catch (SQLException e) {
+                reusable = false;
+            }
+        }
+
+        if (reusable) {
+            lock.lock();
+            try {
+                if (!closed) {
+                    entry.lastReturnedAt = System.currentTimeMillis();
+                    idle.offerFirst(entry);
+                    available.signal();
+                    return;
+                }
+            } finally {
+                lock.unlock();
+            }
+        }
+        destroy(entry);
+    }
+
+    private void evictIdle() {
+        List<PooledEntry> evicted = new ArrayList<>();
+        long now = System.currentTimeMillis();
+        lock.lock();
+        try {
+            Iterator<PooledEntry> it = idle.descendingIterator();
+            while (it.hasNext()) {
+                PooledEntry e = it.next();
+                if (isExpired(e, now) || (idleTimeoutMs > 0 && now - e.lastReturnedAt >= idleTimeoutMs)) {
+                    it.remove();
+                    evicted.add(e);
+                }
+            }
+            total -= evicted.size();
+            if (!evicted.isEmpty()) available.signalAll();
+        } finally {
+            lock.unlock();
+        }
+        for (PooledEntry e : evicted) {
+            closeQuietly(e);
+        }
+    }
+
+    private void destroy(PooledEntry entry) {
+        closeQuietly(entry);
+        releaseSlot();
+    }
+
+    private void releaseSlot() {
+        lock.lock();
+        try {
+            total--;
+            available.signal();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private void closeQuietly(PooledEntry entry) {
+        destroyedCount.increment();
+        try {
+            entry.physical.close();
+        } catch (SQLException ignored) {
+        }
+    }
+
+    private void recordWait(long nanos) {
+        borrowCount.increment();
+        totalWaitNanos.add(nanos);
+        maxWaitNanosSeen.accumulateAndGet(nanos, Math::max);
+    }
+
+    private final class PooledEntry {
+        final Connection physical;
+        final long createdAt;
+        volatile long lastReturnedAt;
+        final boolean initialReadOnly;
+        final int initialIsolation;
+        final String initialCatalog;
+        boolean sessionChanged;
+
+        PooledEntry(Connection physical) throws SQLException {
+            this.physical = physical;
+            this.createdAt = System.currentTimeMillis();
+            this.lastReturnedAt = createdAt;
+            this.initialReadOnly = physical.isReadOnly();
+            this.initialIsolation = physical.getTransactionIsolation();
+            this.initialCatalog = physical.getCatalog();
+        }
+
+        void restoreSession() throws SQLException {
+            if (physical.isReadOnly() != initialReadOnly) physical.setReadOnly(initialReadOnly);
+            if (physical.getTransactionIsolation() != initialIsolation) physical.setTransactionIsolation(initialIsolation);
+            if (initialCatalog != null && !initialCatalog.equals(physical.getCatalog())) physical.setCatalog(initialCatalog);
+            sessionChanged = false;
+        }
+
+        Connection lease() {
+            return (Connection) Proxy.newProxyInstance(
+                    ConnectionPool.class.getClassLoader(),
+                    new Class<?>[]{Connection.class},
+                    new LeaseHandler(this));
+        }
+    }
+
+    private final class LeaseHandler implements InvocationHandler {
+        private final PooledEntry entry;
+        private boolean returned;
+
+        LeaseHandler(PooledEntry entry) {
+            this.entry = entry;
+        }
+
+        @Override
+        public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+            switch (method.getName()) {
+                case "close":
+                    if (!returned) {
+                        returned = true;
+                        giveBack(entry);
+                    }
+                    return null;
+                case "isClosed":
+                    return returned || entry.physical.isClosed();
+                case "equals":
+                    return proxy == args[0];
+                case "hashCode":
+                    return System.identityHashCode(proxy);
+                case "toString":
+                    return "PooledConnection[" + entry.physical + "]";
+                case "unwrap":
+                    return unwrap(proxy, (Class<?>) args[0]);
+                case "isWrapperFor":
+                    return ((Class<?>) args[0]).isInstance(proxy);
+                case "setReadOnly":
+                case "setTransactionIsolation":
+                case "setCatalog":
+                    entry.sessionChanged = true;
+                    break;
+                default:
+                    break;
+            }
+            checkLeased();
+            Object result;
+            try {
+                result = method.invoke(entry.physical, args);
+            } catch (InvocationTargetException e) {
+                throw e.getCause();
+            }
+            return wrap(method.getReturnType(), result, (Connection) proxy, null);
+        }
+
+        Object wrap(Class<?> type, Object result, Connection connection, Statement owner) {
+            if (result == null || !LEASED_TYPES.contains(type)) {
+                return result;
+            }
+            return Proxy.newProxyInstance(ConnectionPool.class.getClassLoader(), new Class<?>[]{type},
+                    new ChildHandler(this, connection, owner, result));
+        }
+
+        void checkLeased() throws SQLException {
+            if (returned) {
+                throw new SQLException("Connection has already been returned to the pool.");
+            }
+        }
+    }
+
+    /**
+     * Statement, DatabaseMetaData or ResultSet handed out by a lease. It reports the lease proxy as
+     * its connection, and a result set reports the statement proxy that produced it (null for
+     * metadata results). It stops working, except for {@code close()}, once the lease is returned.
+     */
+    private static final class ChildHandler implements InvocationHandler {
+        private final LeaseHandler lease;
+        private final Connection connection;
+        private final Statement owner;
+        private final Object target;
+
+        ChildHandler(LeaseHandler lease, Connection connection, Statement owner, Object target) {
+            this.lease = lease;
+            this.connection = connection;
+            this.owner = owner;
+            this.target = target;
+        }
+
+        @Override
+        public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+            switch (method.getName()) {
+                case "getConnection":
+                    lease.checkLeased();
+                    return connection;
+                case "getStatement":
+                    lease.checkLeased();
+                    return owner;
+                case "unwrap":
+                    return unwrap(proxy, (Class<?>) args[0]);
+                case "isWrapperFor":
+                    return ((Class<?>) args[0]).isInstance(proxy);
+                case "equals":
+                    return proxy == args[0];
+                case "hashCode":
+                    return System.identityHashCode(proxy);
+                case "toString":
+                    return "Pooled" + Objects.toString(target);
+                case "isClosed":
+                    if (lease.returned) return true;
+                    break;
+                case "close":
+                    break;
+                default:
+                    lease.checkLeased();
+                    break;
+            }
+            Object result;
+            try {
+                result = method.invoke(target, args);
+            } catch (InvocationTargetException e) {
+                throw e.getCause();
+            }
+            return lease.wrap(method.getReturnType(), result, connection,
+                    proxy instanceof Statement statement ? statement : null);
+        }
+    }
+
+    private static Object unwrap(Object proxy, Class<?> iface) throws SQLException {
+        if (iface.isInstance(proxy)) {
+            return proxy;
+        }
+        throw new SQLException("Pooled JDBC objects cannot be unwrapped to " + iface.getName() + ".");
+    }
+}
@@ -0,0 +1,59 @@
+package com.doof.passwordmanager.db;
+
+import java.util.concurrent.TimeUnit;
+
+public final class PoolStats {
+    private final int totalConnections;
+    private final int idleConnections;
+    private final int activeConnections;
+    private final int waitingThreads;
+    private final int maxSize;
+    private final long borrowCount;
+    private final long createdCount;
+    private final long destroyedCount;
+    private final long timeoutCount;
+    private final long validationFailures;
+    private final long averageWaitNanos;
+    private final long maxWaitNanos;
+
+    PoolStats(int totalConnections, int idleConnections, int activeConnections, int waitingThreads, int maxSize,
+              long borrowCount, long createdCount, long destroyedCount, long timeoutCount,
+              long validationFailures, long averageWaitNanos, long maxWaitNanos) {
+        this.totalConnections = totalConnections;
+        this.idleConnections = idleConnections;
+        this.activeConnections = activeConnections;
+        this.waitingThreads = waitingThreads;
+        this.maxSize = maxSize;
+        this.borrowCount = borrowCount;
+        this.createdCount = createdCount;
+        this.destroyedCount = destroyedCount;
+        this.timeoutCount = timeoutCount;
+        this.validationFailures = validationFailures;
+        this.averageWaitNanos = averageWaitNanos;
+        this.maxWaitNanos = maxWaitNanos;
+    }
+
+    public int getTotalConnections() { return totalConnections; }
+    public int getIdleConnections() { return idleConnections; }
+    public int getActiveConnections() { return activeConnections; }
+    public int getWaitingThreads() { return waitingThreads; }
+    public int getMaxSize() { return maxSize; }
+    public long getBorrowCount() { return borrowCount; }
+    public long getCreatedCount() { return createdCount; }
+    public long getDestroyedCount() { return destroyedCount; }
+    public long getTimeoutCount() { return timeoutCount; }
+    public long getValidationFailures() { return validationFailures; }
+    public long getAverageWaitNanos() { return averageWaitNanos; }
+    public long getMaxWaitNanos() { return maxWaitNanos; }
+
+    @Override
+    public String toString() {
+        return String.format(
+                "PoolStats{total=%d, idle=%d, active=%d, waiting=%d, max=%d, borrows=%d, created=%d, destroyed=%d, " +
+                        "timeouts=%d, validationFailures=%d, avgWaitUs=%d, maxWaitUs=%d}",
+                totalConnections, idleConnections, activeConnections, waitingThreads, maxSize, borrowCount,
+                createdCount, destroyedCount, timeoutCount, validationFailures,
+                TimeUnit.NANOSECONDS.toMicros(averageWaitNanos), TimeUnit.NANOSECONDS.toMicros(maxWaitNanos)
+        );
+    }
+}
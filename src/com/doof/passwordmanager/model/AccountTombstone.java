@@ -0,0 +1,40 @@
+package com.doof.passwordmanager.model;
+
+import java.time.LocalDateTime;
+
+/**
+ * Record that an account was deleted, kept so incremental backups can carry the delete.
+ */
+public class AccountTombstone {
+    private int accountId;
+    private LocalDateTime deletedAt;
+
+    public AccountTombstone() {
+    }
+
+    public AccountTombstone(int accountId, LocalDateTime deletedAt) {
+        this.accountId = accountId;
+        this.deletedAt = deletedAt;
+    }
+
+    public int getAccountId() {
+        return accountId;
+    }
+
+    public void setAccountId(int accountId) {
+        this.accountId = accountId;
+    }
+
+    public LocalDateTime getDeletedAt() {
+        return deletedAt;
+    }
+
+    public void setDeletedAt(LocalDateTime deletedAt) {
+        this.deletedAt = deletedAt;
+    }
+
+    @Override
+    public String toString() {
+        return String.format("AccountTombstone{accountId=%d, deletedAt=%s}", accountId, deletedAt);
+    }
+}
@@ -0,0 +1,61 @@
+package com.doof.passwordmanager.model;
+
+import java.time.LocalDateTime;
+
+/**
+ * Progress marker for a long-running job that walks the accounts table in id order, so the job can
+ * pick up after the last committed position instead of starting over. {@code payload} holds
+ * whatever job-specific state the job needs to resume.
+ */
+public class Checkpoint {
+    private String name;
+    private long position;
+    private String payload;
+    private LocalDateTime updatedAt;
+
+    public Checkpoint() {
+    }
+
+    public Checkpoint(String name, long position, String payload) {
+        this.name = name;
+        this.position = position;
+        this.payload = payload;
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public void setName(String name) {
+        this.name = name;
+    }
+
+    public long getPosition() {
+        return position;
+    }
+
+    public void setPosition(long position) {
+        this.position = position;
+    }
+
+    public String getPayload() {
+        return payload;
+    }
+
+    public void setPayload(String payload) {
+        this.payload = payload;
+    }
+
+    public LocalDateTime getUpdatedAt() {
+        return updatedAt;
+    }
+
+    public void setUpdatedAt(LocalDateTime updatedAt) {
+        this.updatedAt = updatedAt;
+    }
+
+    @Override
+    public String toString() {
+        return String.format("Checkpoint{name=%s, position=%d, updatedAt=%s}", name, position, updatedAt);
+    }
+}
@@ -0,0 +1,61 @@
+package com.doof.passwordmanager.model;
+
+import java.time.LocalDateTime;
+
+/**
+ * An account data key as stored: AES key bytes encrypted under the vault's master encryption key.
+ * Accounts written under enc_version 3 name the data key their password was encrypted with.
+ */
+public class DataKey {
+    private int id;
+    private byte[] wrappedKey;
+    private byte[] iv;
+    private LocalDateTime createdAt;
+
+    public DataKey() {
+    }
+
+    public DataKey(int id, byte[] wrappedKey, byte[] iv, LocalDateTime createdAt) {
+        this.id = id;
+        this.wrappedKey = wrappedKey;
+        this.iv = iv;
+        this.createdAt = createdAt;
+    }
+
+    public int getId() {
+        return id;
+    }
+
+    public void setId(int id) {
+        this.id = id;
+    }
+
+    public byte[] getWrappedKey() {
+        return wrappedKey;
+    }
+
+    public void setWrappedKey(byte[] wrappedKey) {
+        this.wrappedKey = wrappedKey;
+    }
+
+    public byte[] getIv() {
+        return iv;
+    }
+
+    public void setIv(byte[] iv) {
+        this.iv = iv;
+    }
+
+    public LocalDateTime getCreatedAt() {
+        return createdAt;
+    }
+
+    public void setCreatedAt(LocalDateTime createdAt) {
+        this.createdAt = createdAt;
+    }
+
+    @Override
+    public String toString() {
+        return String.format("DataKey{id=%d, createdAt=%s}", id, createdAt);
+    }
+}
@@ -0,0 +1,59 @@
+package com.doof.passwordmanager.model;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Base64;
+import java.util.List;
+
+public class Page<T> {
+    private static final String TOKEN_PREFIX = "after:";
+
+    private final List<T> items;
+    private final String nextPageToken;
+
+    public Page(List<T> items, String nextPageToken) {
+        this.items = items;
+        this.nextPageToken = nextPageToken;
+    }
+
+    public List<T> getItems() {
+        return items;
+    }
+
+    public String getNextPageToken() {
+        return nextPageToken;
+    }
+
+    public boolean hasNext() {
+        return nextPageToken != null;
+    }
+
+    public static String tokenAfter(int lastSeenId) {
+        byte[] raw = (TOKEN_PREFIX + lastSeenId).getBytes(StandardCharsets.US_ASCII);
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(raw);
+    }
+
+    public static int decodeToken(String pageToken) {
+        if (pageToken == null || pageToken.isEmpty()) {
+            return 0;
+        }
+        String raw;
+        try {
+            raw = new String(Base64.getUrlDecoder().decode(pageToken), StandardCharsets.US_ASCII);
+        } catch (IllegalArgumentException e) {
+            throw new IllegalArgumentException("Invalid page token", e);
+        }
+        if (!raw.startsWith(TOKEN_PREFIX)) {
+            throw new IllegalArgumentException("Invalid page token");
+        }
+        try {
+            return Integer.parseInt(raw.substring(TOKEN_PREFIX.length()));
+        } catch (NumberFormatException e) {
+            throw new IllegalArgumentException("Invalid page token", e);
+        }
+    }
+
+    @Override
+    public String toString() {
+        return String.format("Page{items=%d, hasNext=%s}", items.size(), hasNext());
+    }
+}
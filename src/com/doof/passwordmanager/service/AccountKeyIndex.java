@@ -0,0 +1,53 @@
+package com.doof.passwordmanager.service;
+
+import com.doof.passwordmanager.model.Account;
+
+import java.util.HashMap;
+import java.util.Locale;
+import java.util.Map;
+
+/**
+ * Normalized (email, website) key of every account, mapped to its id, so duplicate checks are a
+ * hash lookup instead of a query. The unique key on the accounts table stays the final guard.
+ */
+class AccountKeyIndex {
+
+    private final Map<String, Integer> idsByKey = new HashMap<>();
+    private final Map<Integer, String> keysById = new HashMap<>();
+
+    synchronized void put(Account account) {
+        String key = keyOf(account.getEmail(), account.getWebsite());
+        String previous = keysById.put(account.getId(), key);
+        if (previous != null && !previous.equals(key)) {
+            idsByKey.remove(previous, account.getId());
+        }
+        idsByKey.put(key, account.getId());
+    }
+
+    synchronized void remove(int id) {
+        String key = keysById.remove(id);
+        if (key != null) {
+            idsByKey.remove(key, id);
+        }
+    }
+
+    /**
+     * Returns the id of the account holding this email and website, or null if there is none.
+     */
+    synchronized Integer find(String email, String website) {
+        return idsByKey.get(keyOf(email, website));
+    }
+
+    synchronized int size() {
+        return keysById.size();
+    }
+
+    synchronized void clear() {
+        idsByKey.clear();
+        keysById.clear();
+    }
+
+    static String keyOf(String email, String website) {
+        return email.trim().toLowerCase(Locale.ROOT) + '\n' + website.trim().toLowerCase(Locale.ROOT);
+    }
+}
@@ -1,18 +1,27 @@
 package com.doof.passwordmanager.service;
 
+import com.doof.passwordmanager.dao.AccountCacheStats;
 import com.doof.passwordmanager.dao.AccountDao;
+import com.doof.passwordmanager.dao.CachingAccountDao;
 import com.doof.passwordmanager.model.Account;
+import com.doof.passwordmanager.model.Page;
 import com.doof.passwordmanager.util.InputValidator;
 import com.doof.passwordmanager.util.PasswordEncryptor;
+import com.doof.passwordmanager.util.SecretBuffer;
 import com.doof.passwordmanager.util.ValidationException;
 
-import javax.crypto.SecretKey;
-import java.nio.charset.StandardCharsets;
 import java.time.LocalDateTime;
 import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.HashSet;
 import java.util.List;
 import java.util.Objects;
+import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.Future;
+import java.util.function.Consumer;
 
 public class AccountService {
     public static class AccountView {
@@ -40,12 +49,80 @@ public class AccountService {
         public LocalDateTime getUpdatedAt() { return updatedAt; }
     }
 
+    public static class AccountInput {
+        private final int id;
+        private final String email;
+        private final String website;
+        private final char[] password;
+
+        public AccountInput(String email, String website, char[] password) {
+            this(0, email, website, password);
+        }
+
+        public AccountInput(int id, String email, String website, char[] password) {
+            this.id = id;
+            this.email = email;
+            this.website = website;
+            this.password = password;
+        }
+
+        public int getId() { return id; }
+        public String getEmail() { return email; }
+        public String getWebsite() { return website; }
+        public char[] getPassword() { return password; }
+    }
+
+    private static final int DEFAULT_PARALLEL_DECRYPT_THRESHOLD = 2_000;
+    private static final int MIN_ROWS_PER_DECRYPT_TASK = 256;
+    private static final long DEFAULT_SEARCH_INDEX_MAX_BYTES = Long.getLong("doof.search.index.maxBytes", 256L << 20);
+
     private final AccountDao accountDao;
     private final VaultService vaultService;
+    private volatile boolean parallelDecrypt;
+    private volatile int parallelDecryptThreshold = DEFAULT_PARALLEL_DECRYPT_THRESHOLD;
+
+    private final Object indexLock = new Object();
+    private volatile SearchIndex searchIndex;
+    private volatile AccountKeyIndex keyIndex;
+    private long indexGeneration;
+    private List<PendingIndexWrite> pendingIndexWrites;
+    private volatile long searchIndexMaxBytes = DEFAULT_SEARCH_INDEX_MAX_BYTES;
+    private volatile String searchIndexProblem;
 
     public AccountService(AccountDao accountDao, VaultService vaultService) {
         this.accountDao = accountDao;
         this.vaultService = vaultService;
+        vaultService.addUnlockListener(this::rebuildIndexes);
+        vaultService.addLockListener(this::dropIndexes);
+        if (accountDao instanceof CachingAccountDao cache) {
+            vaultService.addLockListener(cache::clear);
+        }
+    }
+
+    /**
+     * Returns the row cache counters, or null when the DAO is not cached.
+     */
+    public AccountCacheStats getAccountCacheStats() {
+        return accountDao instanceof CachingAccountDao cache ? cache.getStats() : null;
+    }
+
+    public void setSearchIndexMaxBytes(long maxBytes) {
+        if (maxBytes <= 0) {
+            throw new IllegalArgumentException("maxBytes must be positive");
+        }
+        this.searchIndexMaxBytes = maxBytes;
+    }
+
+    public boolean isSearchIndexReady() {
+        return searchIndex != null;
+    }
+
+    /**
+     * Returns why searches are not using the in-memory index, or null when it is in use or still
+     * being built.
+     */
+    public String getSearchIndexProblem() {
+        return searchIndexProblem;
     }
 
     public List<Account> getAllAccounts() {
@@ -56,50 +133,71 @@ public class AccountService {
         return accountDao.getAccountById(id);
     }
 
+    public void setParallelDecrypt(boolean enabled) {
+        this.parallelDecrypt = enabled;
+    }
+
+    public void setParallelDecryptThreshold(int rows) {
+        if (rows < 1) {
+            throw new IllegalArgumentException("threshold must be positive");
+        }
+        this.parallelDecryptThreshold = rows;
+    }
+
     public List<AccountView> getAllAccountsDecrypted() {
         checkUnlocked();
-        List<Account> rows = accountDao.getAllAccounts();
-        List<AccountView> result = new ArrayList<>(rows.size());
-        for (Account stored : rows) {
-            char[] plain = null;
+        if (parallelDecrypt) {
+            List<Account> rows = accountDao.getAllAccounts();
+            return rows.size() >= parallelDecryptThreshold ? decryptAllParallel(rows) : decryptAll(rows);
+        }
+        List<AccountView> result = new ArrayList<>();
+        try {
+            accountDao.forEachAccount(stored -> result.add(decryptToView(stored)));
+        } catch (RuntimeException e) {
+            for (AccountView v : result) Arrays.fill(v.getPassword(), '\0');
+            throw e;
+        }
+        return result;
+    }
+
+    /**
+     * Streams every account through {@code action}, decrypting one row at a time. The view's
+     * password is wiped as soon as {@code action} returns, so callers must copy anything they keep.
+     */
+    public void forEachAccountDecrypted(Consumer<AccountView> action) {
+        checkUnlocked();
+        accountDao.forEachAccount(stored -> {
+            AccountView view = decryptToView(stored);
             try {
-                plain = decryptPasswordBytesToCharArray(stored.getPasswordEncrypted(), stored.getIv());
-                result.add(new AccountView(
-                        stored.getId(),
-                        stored.getEmail(),
-                        stored.getWebsite(),
-                        plain,
-                        stored.getCreatedAt(),
-                        stored.getUpdatedAt()
-                ));
-                plain = null;
+                action.accept(view);
             } finally {
-                if (plain != null) Arrays.fill(plain, '\0');
+                Arrays.fill(view.getPassword(), '\0');
             }
-        }
-        return result;
+        });
     }
 
     public AccountView getAccountByIdDecrypted(int id) {
         checkUnlocked();
         Account stored = accountDao.getAccountById(id);
         if (stored == null) return null;
-        char[] plain = null;
-        try {
-            plain = decryptPasswordBytesToCharArray(stored.getPasswordEncrypted(), stored.getIv());
-            return new AccountView(
-                    stored.getId(),
-                    stored.getEmail(),
-                    stored.getWebsite(),
-                    plain,
-                    stored.getCreatedAt(),
-                    stored.getUpdatedAt()
-            );
-        } finally {
-            if (plain != null) Arrays.fill(plain, '\0');
+        return decryptToView(stored);
+    }
+
+    /**
+     * Decrypts a single stored row on demand, for callers that keep only ciphertext around.
+     */
+    public char[] decryptPassword(Account stored) {
+        Objects.requireNonNull(stored, "account is required");
+        try (SecretBuffer plaintext = cipher().decrypt(stored)) {
+            return plaintext.toChars();
         }
     }
 
+    public List<AccountView> searchDecrypted(String query, int limit, int offset) {
+        checkUnlocked();
+        return decryptAll(search(query, limit, offset));
+    }
+
     public int addAccount(String email, String website, char[] plaintextPassword) {
         Objects.requireNonNull(email, "email is required");
         Objects.requireNonNull(website, "website is required");
@@ -113,7 +211,7 @@ public class AccountService {
         InputValidator.validateEmail(email);
         InputValidator.validateWebsite(website);
         InputValidator.validatePassword(plaintextPassword);
-        InputValidator.checkDuplicate(accountDao, email, website);
+        checkDuplicateExcluding(email, website, 0);
 
         checkUnlocked();
         EncryptedData ed = null;
@@ -124,8 +222,9 @@ public class AccountService {
             account.setWebsite(website);
             account.setPasswordEncrypted(ed.ciphertext);
             account.setIv(ed.iv);
-            account.setEncVersion(vaultService.getMetadata().getEncVersion());
+            account.setEncVersion(ed.encVersion);
             accountDao.addAccount(account);
+            indexPut(account);
             return account.getId();
         } finally {
             if (ed != null) {
@@ -154,12 +253,7 @@ public class AccountService {
                 || !existing.getWebsite().equalsIgnoreCase(website);
 
         if (changedEmailOrWebsite) {
-            List<Account> found = accountDao.search(email, 10, 0);
-            boolean duplicate = found.stream()
-                    .anyMatch(a -> a.getEmail().equalsIgnoreCase(email) && a.getWebsite().equalsIgnoreCase(website) && a.getId() != account.getId());
-            if (duplicate) {
-                throw new ValidationException("An account with this email and website already exists.");
-            }
+            checkDuplicateExcluding(email, website, account.getId());
             account.setEmail(email);
             account.setWebsite(website);
         }
@@ -171,8 +265,9 @@ public class AccountService {
                 ed = encryptPassword(plaintextPassword);
                 account.setPasswordEncrypted(ed.ciphertext);
                 account.setIv(ed.iv);
-                account.setEncVersion(vaultService.getMetadata().getEncVersion());
+                account.setEncVersion(ed.encVersion);
                 accountDao.updateAccount(account);
+                indexPut(account);
             } finally {
                 if (ed != null) {
                     if (ed.ciphertext != null) Arrays.fill(ed.ciphertext, (byte) 0);
@@ -181,17 +276,322 @@ public class AccountService {
                 Arrays.fill(plaintextPassword, '\0');
             }
         } else {
+            account.setPasswordEncrypted(existing.getPasswordEncrypted());
+            account.setIv(existing.getIv());
+            account.setEncVersion(existing.getEncVersion());
             accountDao.updateAccount(account);
+            indexPut(account);
+        }
+    }
+
+    /**
+     * Validates and encrypts the whole batch before anything is written, then inserts it in one
+     * transaction. Every input password is wiped when this returns.
+     */
+    public int[] addAccounts(List<AccountInput> inputs) {
+        Objects.requireNonNull(inputs, "inputs are required");
+        checkUnlocked();
+        List<Account> accounts = new ArrayList<>(inputs.size());
+        try {
+            Set<String> batchKeys = new HashSet<>();
+            List<String[]> cleaned = new ArrayList<>(inputs.size());
+            for (int i = 0; i < inputs.size(); i++) {
+                AccountInput in = inputs.get(i);
+                String[] ew = validateInput(in, i);
+                if (!batchKeys.add(AccountKeyIndex.keyOf(ew[0], ew[1]))) {
+                    throw new ValidationException("Row " + (i + 1) + ": duplicate email and website in batch.");
+                }
+                try {
+                    checkDuplicateExcluding(ew[0], ew[1], 0);
+                } catch (ValidationException e) {
+                    throw new ValidationException("Row " + (i + 1) + ": " + e.getMessage());
+                }
+                cleaned.add(ew);
+            }
+
+            for (int i = 0; i < inputs.size(); i++) {
+                EncryptedData ed = encryptPassword(inputs.get(i).getPassword());
+                accounts.add(new Account(cleaned.get(i)[0], cleaned.get(i)[1], ed.ciphertext, ed.iv, ed.encVersion));
+            }
+
+            int[] ids = accountDao.addAccounts(accounts);
+            for (Account a : accounts) indexPut(a);
+            return ids;
+        } finally {
+            wipeBatch(inputs, accounts);
+        }
+    }
+
+    /**
+     * Checks an import batch without writing anything or wiping the passwords, and returns one
+     * "Row N: ..." message per rejected row in input order. An empty list means {@link #addAccounts}
+     * would accept the batch as it stands.
+     */
+    public List<String> validateAccounts(List<AccountInput> inputs) {
+        Objects.requireNonNull(inputs, "inputs are required");
+        List<String> errors = new ArrayList<>();
+        Set<String> batchKeys = new HashSet<>();
+        for (int i = 0; i < inputs.size(); i++) {
+            AccountInput in = inputs.get(i);
+            String error = checkInput(in);
+            if (error == null) {
+                String email = InputValidator.sanitize(in.getEmail());
+                String website = InputValidator.sanitize(in.getWebsite());
+                if (!batchKeys.add(AccountKeyIndex.keyOf(email, website))) {
+                    error = "duplicate email and website in batch.";
+                } else {
+                    try {
+                        checkDuplicateExcluding(email, website, 0);
+                    } catch (ValidationException e) {
+                        error = e.getMessage();
+                    }
+                }
+            }
+            if (error != null) errors.add("Row " + (i + 1) + ": " + error);
+        }
+        return errors;
+    }
+
+    /**
+     * Re-encrypts and rewrites a batch of existing accounts in one transaction. Each input must
+     * carry the account id and a new password; nothing is written unless the whole batch is valid.
+     */
+    public void updateAccounts(List<AccountInput> inputs) {
+        Objects.requireNonNull(inputs, "inputs are required");
+        checkUnlocked();
+        List<Account> accounts = new ArrayList<>(inputs.size());
+        try {
+            Set<String> batchKeys = new HashSet<>();
+            Set<Integer> batchIds = new HashSet<>();
+            List<String[]> cleaned = new ArrayList<>(inputs.size());
+            for (int i = 0; i < inputs.size(); i++) {
+                AccountInput in = inputs.get(i);
+                if (in.getId() <= 0 || !batchIds.add(in.getId())) {
+                    throw new ValidationException("Row " + (i + 1) + ": a unique account id is required.");
+                }
+                String[] ew = validateInput(in, i);
+                if (!batchKeys.add(AccountKeyIndex.keyOf(ew[0], ew[1]))) {
+                    throw new ValidationException("Row " + (i + 1) + ": duplicate email and website in batch.");
+                }
+                try {
+                    checkDuplicateExcluding(ew[0], ew[1], in.getId());
+                } catch (ValidationException e) {
+                    throw new ValidationException("Row " + (i + 1) + ": " + e.getMessage());
+                }
+                cleaned.add(ew);
+            }
+
+            for (int i = 0; i < inputs.size(); i++) {
+                EncryptedData ed = encryptPassword(inputs.get(i).getPassword());
+                Account account = new Account(cleaned.get(i)[0], cleaned.get(i)[1], ed.ciphertext, ed.iv, ed.encVersion);
+                account.setId(inputs.get(i).getId());
+                accounts.add(account);
+            }
+
+            accountDao.updateAccounts(accounts);
+            for (Account a : accounts) indexPut(a);
+        } finally {
+            wipeBatch(inputs, accounts);
         }
     }
 
     public void deleteAccount(int id) {
         checkUnlocked();
         accountDao.deleteAccount(id);
+        indexRemove(id);
     }
 
     public List<Account> search(String query, int limit, int offset) {
-        return accountDao.search(query, limit, offset);
+        SearchIndex index = searchIndex;
+        if (index == null) {
+            return accountDao.search(query, limit, offset);
+        }
+        List<Account> rows = index.search(query, 0, offset + limit);
+        return rows.size() <= offset ? new ArrayList<>() : new ArrayList<>(rows.subList(offset, rows.size()));
+    }
+
+    public Page<Account> searchPage(String query, String pageToken, int pageSize) {
+        if (pageSize <= 0) {
+            throw new IllegalArgumentException("pageSize must be positive");
+        }
+        int afterId = Page.decodeToken(pageToken);
+        SearchIndex index = searchIndex;
+        String q = query == null ? "" : query;
+        List<Account> rows = index != null
+                ? index.search(q, afterId, pageSize + 1)
+                : accountDao.searchAfter(q, afterId, pageSize + 1);
+        if (rows.size() <= pageSize) {
+            return new Page<>(rows, null);
+        }
+        List<Account> items = new ArrayList<>(rows.subList(0, pageSize));
+        return new Page<>(items, Page.tokenAfter(items.get(pageSize - 1).getId()));
+    }
+
+    public Page<AccountView> searchPageDecrypted(String query, String pageToken, int pageSize) {
+        checkUnlocked();
+        Page<Account> page = searchPage(query, pageToken, pageSize);
+        return new Page<>(decryptAll(page.getItems()), page.getNextPageToken());
+    }
+
+    private void rebuildIndexes() {
+        long generation;
+        synchronized (indexLock) {
+            generation = ++indexGeneration;
+            searchIndex = null;
+            keyIndex = null;
+            searchIndexProblem = null;
+            pendingIndexWrites = new ArrayList<>();
+        }
+        Thread builder = new Thread(() -> buildIndexes(generation), "account-index-builder");
+        builder.setDaemon(true);
+        builder.start();
+    }
+
+    /**
+     * Streams the vault once into a fresh search index and duplicate-key index, off the caller's
+     * thread. Writes made while the build runs are logged in {@code pendingIndexWrites} and replayed
+     * in order before the indexes are installed, so rows the stream read before they changed end up
+     * current. Until then, searches and duplicate checks go to the DAO. The key index is small and
+     * always kept; the search index is dropped if the vault does not fit its budget.
+     */
+    private void buildIndexes(long generation) {
+        SearchIndex index = new SearchIndex(searchIndexMaxBytes);
+        AccountKeyIndex keys = new AccountKeyIndex();
+        boolean[] searchFits = {true};
+        try {
+            accountDao.forEachAccount(a -> {
+                keys.put(a);
+                if (searchFits[0] && !index.put(a)) {
+                    searchFits[0] = false;
+                    index.clear();
+                }
+            });
+        } catch (RuntimeException e) {
+            synchronized (indexLock) {
+                if (generation == indexGeneration) {
+                    pendingIndexWrites = null;
+                    searchIndexProblem = "Search index build failed: " + e.getMessage();
+                }
+            }
+            return;
+        }
+        synchronized (indexLock) {
+            if (generation != indexGeneration) return;
+            for (PendingIndexWrite w : pendingIndexWrites) {
+                if (w.account == null) {
+                    keys.remove(w.id);
+                    if (searchFits[0]) index.remove(w.id);
+                    continue;
+                }
+                keys.put(w.account);
+                if (searchFits[0] && !index.put(w.account)) {
+                    searchFits[0] = false;
+                    index.clear();
+                }
+            }
+            pendingIndexWrites = null;
+            keyIndex = keys;
+            searchIndex = searchFits[0] ? index : null;
+            if (!searchFits[0]) {
+                searchIndexProblem = overBudget();
+            }
+        }
+    }
+
+    private void dropIndexes() {
+        SearchIndex index;
+        AccountKeyIndex keys;
+        synchronized (indexLock) {
+            indexGeneration++;
+            pendingIndexWrites = null;
+            index = searchIndex;
+            keys = keyIndex;
+            searchIndex = null;
+            keyIndex = null;
+        }
+        if (index != null) index.clear();
+        if (keys != null) keys.clear();
+    }
+
+    /**
+     * Refreshes the in-memory indexes after a row was rewritten outside this service.
+     */
+    void reindex(Account account) {
+        indexPut(account);
+    }
+
+    private void indexPut(Account account) {
+        synchronized (indexLock) {
+            if (pendingIndexWrites != null) {
+                // Copied: callers such as the migrator wipe their rows once this returns.
+                pendingIndexWrites.add(new PendingIndexWrite(account.getId(), SearchIndex.copyOf(account)));
+            }
+            SearchIndex index = searchIndex;
+            if (index != null && !index.put(account)) {
+                searchIndex = null;
+                searchIndexProblem = overBudget();
+                index.clear();
+            }
+            AccountKeyIndex keys = keyIndex;
+            if (keys != null) keys.put(account);
+        }
+    }
+
+    private String overBudget() {
+        return "Search index disabled: vault exceeds the " + searchIndexMaxBytes + " byte budget.";
+    }
+
+    private void indexRemove(int id) {
+        synchronized (indexLock) {
+            if (pendingIndexWrites != null) {
+                pendingIndexWrites.add(new PendingIndexWrite(id, null));
+            }
+            SearchIndex index = searchIndex;
+            if (index != null) index.remove(id);
+            AccountKeyIndex keys = keyIndex;
+            if (keys != null) keys.remove(id);
+        }
+    }
+
+    private String[] validateInput(AccountInput in, int index) {
+        String error = checkInput(in);
+        if (error != null) {
+            throw new ValidationException("Row " + (index + 1) + ": " + error);
+        }
+        return new String[]{InputValidator.sanitize(in.getEmail()), InputValidator.sanitize(in.getWebsite())};
+    }
+
+    private static String checkInput(AccountInput in) {
+        if (in == null) return "account input is required";
+        return InputValidator.checkAccount(in.getEmail(), in.getWebsite(), in.getPassword());
+    }
+
+    /**
+     * Rejects an (email, website) pair already held by an account other than {@code selfId}. Uses
+     * the in-memory key index once it is built and an exact lookup on the unique key before that.
+     */
+    private void checkDuplicateExcluding(String email, String website, int selfId) {
+        AccountKeyIndex keys = keyIndex;
+        Integer ownerId;
+        if (keys != null) {
+            ownerId = keys.find(email, website);
+        } else {
+            Account owner = accountDao.findByEmailAndWebsite(email, website);
+            ownerId = owner == null ? null : owner.getId();
+        }
+        if (ownerId != null && ownerId != selfId) {
+            throw new ValidationException("An account with this email and website already exists.");
+        }
+    }
+
+    private static void wipeBatch(List<AccountInput> inputs, List<Account> accounts) {
+        for (AccountInput in : inputs) {
+            if (in != null && in.getPassword() != null) Arrays.fill(in.getPassword(), '\0');
+        }
+        for (Account a : accounts) {
+            if (a.getPasswordEncrypted() != null) Arrays.fill(a.getPasswordEncrypted(), (byte) 0);
+            if (a.getIv() != null) Arrays.fill(a.getIv(), (byte) 0);
+        }
     }
 
     private void checkUnlocked() {
@@ -200,39 +600,128 @@ public class AccountService {
         }
     }
 
-    private EncryptedData encryptPassword(char[] plaintextPassword) {
-        checkUnlocked();
-        SecretKey key = vaultService.getSessionKeyForServices();
-        byte[] iv = PasswordEncryptor.generateIV();
-        byte[] plaintextBytes = null;
+    private List<AccountView> decryptAll(List<Account> rows) {
+        List<AccountView> result = new ArrayList<>(rows.size());
         try {
-            plaintextBytes = new String(plaintextPassword).getBytes(StandardCharsets.UTF_8);
-            byte[] ciphertext = PasswordEncryptor.encrypt(plaintextBytes, key, iv);
-            return new EncryptedData(ciphertext, iv);
-        } finally {
-            if (plaintextBytes != null) Arrays.fill(plaintextBytes, (byte) 0);
+            for (Account stored : rows) {
+                result.add(decryptToView(stored));
+            }
+        } catch (RuntimeException e) {
+            for (AccountView v : result) Arrays.fill(v.getPassword(), '\0');
+            throw e;
         }
+        return result;
     }
 
-    private char[] decryptPasswordBytesToCharArray(byte[] ciphertext, byte[] iv) {
+    /**
+     * Splits the rows into contiguous chunks decrypted on the common fork-join pool; workers
+     * draw Ciphers from PasswordEncryptor's pool. Results are written by index, so the output keeps
+     * the input order.
+     */
+    private List<AccountView> decryptAllParallel(List<Account> rows) {
         checkUnlocked();
-        SecretKey key = vaultService.getSessionKeyForServices();
-        byte[] plaintextBytes = PasswordEncryptor.decrypt(ciphertext, key, iv);
+        AccountView[] out = new AccountView[rows.size()];
+        int parallelism = ForkJoinPool.getCommonPoolParallelism();
+        int chunks = Math.max(1, Math.min(parallelism * 4, rows.size() / MIN_ROWS_PER_DECRYPT_TASK));
+        int chunkSize = (rows.size() + chunks - 1) / chunks;
+
+        List<Callable<Void>> tasks = new ArrayList<>(chunks);
+        for (int start = 0; start < rows.size(); start += chunkSize) {
+            int from = start;
+            int to = Math.min(rows.size(), start + chunkSize);
+            tasks.add(() -> {
+                for (int i = from; i < to; i++) {
+                    Account stored = rows.get(i);
+                    out[i] = decryptToView(stored);
+                }
+                return null;
+            });
+        }
+
         try {
-            String s = new String(plaintextBytes, StandardCharsets.UTF_8);
-            char[] chars = s.toCharArray();
-            return chars;
+            for (Future<Void> f : ForkJoinPool.commonPool().invokeAll(tasks)) {
+                f.get();
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            wipeViews(out);
+            throw new RuntimeException("Interrupted while decrypting accounts", e);
+        } catch (ExecutionException e) {
+            wipeViews(out);
+            Throwable cause = e.getCause();
+            if (cause instanceof RuntimeException re) throw re;
+            throw new RuntimeException("Error decrypting accounts", cause);
+        }
+        return Arrays.asList(out);
+    }
+
+    private static void wipeViews(AccountView[] views) {
+        for (AccountView v : views) {
+            if (v != null) Arrays.fill(v.getPassword(), '\0');
+        }
+    }
+
+    /**
+     * Decrypts with the key matching the row's enc_version, so rows written before an upgrade
+     * still decrypt. The plaintext stays off-heap until it is decoded into the view's char[].
+     */
+    private AccountView decryptToView(Account stored) {
+        try (SecretBuffer plaintext = cipher().decrypt(stored)) {
+            return decryptToView(stored, plaintext.toChars());
+        }
+    }
+
+    private RowCipher cipher() {
+        RowCipher cipher = vaultService.rowCipher();
+        if (cipher == null) {
+            throw new RuntimeException("Vault is locked. Unlock first.");
+        }
+        return cipher;
+    }
+
+    private AccountView decryptToView(Account stored, char[] plain) {
+        try {
+            AccountView view = new AccountView(
+                    stored.getId(),
+                    stored.getEmail(),
+                    stored.getWebsite(),
+                    plain,
+                    stored.getCreatedAt(),
+                    stored.getUpdatedAt()
+            );
+            plain = null;
+            return view;
         } finally {
-            if (plaintextBytes != null) Arrays.fill(plaintextBytes, (byte) 0);
+            if (plain != null) Arrays.fill(plain, '\0');
+        }
+    }
+
+    private EncryptedData encryptPassword(char[] plaintextPassword) {
+        RowCipher cipher = cipher();
+        byte[] iv = PasswordEncryptor.generateIV();
+        try (SecretBuffer plaintext = SecretBuffer.encode(plaintextPassword)) {
+            return new EncryptedData(cipher.encrypt(plaintext, iv), iv, cipher.getWriteVersion());
+        }
+    }
+
+    /** A write made during an index build; a null account means the row was deleted. */
+    private static final class PendingIndexWrite {
+        final int id;
+        final Account account;
+        PendingIndexWrite(int id, Account account) {
+            this.id = id;
+            this.account = account;
         }
     }
 
     private static class EncryptedData {
         final byte[] ciphertext;
         final byte[] iv;
-        EncryptedData(byte[] ciphertext, byte[] iv) {
+        final int encVersion;
+        EncryptedData(byte[] ciphertext, byte[] iv, int encVersion) {
             this.ciphertext = ciphertext;
             this.iv = iv;
+            this.encVersion = encVersion;
         }
     }
 }
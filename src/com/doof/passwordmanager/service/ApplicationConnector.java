@@ -1,23 +1,46 @@
 package com.doof.passwordmanager.service;
 
+import com.doof.passwordmanager.backup.BackupInfo;
+import com.doof.passwordmanager.dao.AccountCacheStats;
 import com.doof.passwordmanager.dao.AccountDao;
+import com.doof.passwordmanager.dao.CheckpointDao;
+import com.doof.passwordmanager.dao.DataKeyDao;
+import com.doof.passwordmanager.dao.FileAccountDao;
 import com.doof.passwordmanager.dao.VaultMetadataDao;
 import com.doof.passwordmanager.model.Account;
+import com.doof.passwordmanager.model.Page;
+import com.doof.passwordmanager.service.AccountService.AccountInput;
 import com.doof.passwordmanager.service.AccountService.AccountView;
+import com.doof.passwordmanager.store.VaultStoreStats;
+import com.doof.passwordmanager.util.KdfParams;
 
+import java.nio.file.Path;
 import java.util.List;
 import java.util.Objects;
+import java.util.function.Consumer;
 
 public class ApplicationConnector {
 
+    private final AccountDao accountDao;
     private final VaultService vaultService;
     private final AccountService accountService;
+    private final EncVersionMigrator migrator;
+    private final VaultBackup backup;
 
-    public ApplicationConnector(VaultMetadataDao vaultMetadataDao, AccountDao accountDao) {
+    public ApplicationConnector(VaultMetadataDao vaultMetadataDao, AccountDao accountDao,
+                                CheckpointDao checkpointDao, DataKeyDao dataKeyDao) {
         Objects.requireNonNull(vaultMetadataDao);
         Objects.requireNonNull(accountDao);
-        this.vaultService = new VaultService(vaultMetadataDao);
+        Objects.requireNonNull(checkpointDao);
+        Objects.requireNonNull(dataKeyDao);
+        this.accountDao = accountDao;
+        this.vaultService = new VaultService(vaultMetadataDao, accountDao, checkpointDao, dataKeyDao);
         this.accountService = new AccountService(accountDao, vaultService);
+        this.migrator = new EncVersionMigrator(accountDao, checkpointDao, vaultService,
+                EncVersionMigrator.DEFAULT_ROWS_PER_SECOND, accountService::reindex);
+        this.backup = new VaultBackup(vaultMetadataDao, accountDao, dataKeyDao, checkpointDao);
+        vaultService.addUnlockListener(migrator::start);
+        vaultService.addLockListener(migrator::stop);
     }
 
 
@@ -25,6 +48,18 @@ public class ApplicationConnector {
         return vaultService.isVaultInitialized();
     }
 
+    public void setNewVaultKdfParams(KdfParams params) {
+        vaultService.setNewVaultKdfParams(Objects.requireNonNull(params));
+    }
+
+    public void setNewVaultKdfTargetMillis(long targetMillis) {
+        vaultService.setNewVaultKdfTargetMillis(targetMillis);
+    }
+
+    public KdfParams getNewVaultKdfParams() {
+        return vaultService.getNewVaultKdfParams();
+    }
+
     public void createVault(char[] masterPassword) {
         vaultService.createVault(masterPassword);
     }
@@ -37,6 +72,27 @@ public class ApplicationConnector {
         vaultService.lockVault();
     }
 
+    /**
+     * Returns a problem the last create or unlock ran into without failing, or else one the vault
+     * file's background sync or compaction is still hitting, or null.
+     */
+    public String getVaultWarning() {
+        String warning = vaultService.getWarning();
+        if (warning != null) return warning;
+        return accountDao instanceof FileAccountDao file ? file.getStoreBackgroundError() : null;
+    }
+
+    /**
+     * Returns the vault file's counters, or null when the vault is not file-backed.
+     */
+    public VaultStoreStats getVaultStoreStats() {
+        return accountDao instanceof FileAccountDao file ? file.getStoreStats() : null;
+    }
+
+    public void rotateVault(char[] oldMasterPassword, char[] newMasterPassword, String newKdfParamsJson) {
+        vaultService.rotateVault(oldMasterPassword, newMasterPassword, newKdfParamsJson);
+    }
+
     public boolean isUnlocked() {
         return vaultService.isUnlocked();
     }
@@ -52,10 +108,50 @@ public class ApplicationConnector {
         return accountService.getAllAccounts();
     }
 
+    public void setParallelDecrypt(boolean enabled) {
+        accountService.setParallelDecrypt(enabled);
+    }
+
+    public void setParallelDecryptThreshold(int rows) {
+        accountService.setParallelDecryptThreshold(rows);
+    }
+
+    public AccountCacheStats getAccountCacheStats() {
+        return accountService.getAccountCacheStats();
+    }
+
+    /**
+     * Caps how many outdated rows per second the background enc_version migration rewrites.
+     * Zero pauses it.
+     */
+    public void setMigrationRowsPerSecond(int rowsPerSecond) {
+        migrator.setRowsPerSecond(rowsPerSecond);
+    }
+
+    public MigrationProgress getMigrationProgress() {
+        return migrator.getProgress();
+    }
+
+    public boolean isSearchIndexReady() {
+        return accountService.isSearchIndexReady();
+    }
+
+    public String getSearchIndexProblem() {
+        return accountService.getSearchIndexProblem();
+    }
+
+    public void setSearchIndexMaxBytes(long maxBytes) {
+        accountService.setSearchIndexMaxBytes(maxBytes);
+    }
+
     public List<AccountView> getAllAccountsDecrypted() {
         return accountService.getAllAccountsDecrypted();
     }
 
+    public void forEachAccountDecrypted(Consumer<AccountView> action) {
+        accountService.forEachAccountDecrypted(action);
+    }
+
     public Account getAccountById(int id) {
         return accountService.getAccountById(id);
     }
@@ -64,6 +160,17 @@ public class ApplicationConnector {
         return accountService.getAccountByIdDecrypted(id);
     }
 
+    public char[] decryptPassword(Account stored) {
+        return accountService.decryptPassword(stored);
+    }
+
+    /**
+     * Length in bytes of a stored password, whatever its enc_version; no key is needed.
+     */
+    public static int passwordLength(Account stored) {
+        return RowCipher.plaintextLength(stored);
+    }
+
     public int addAccount(String email, String website, char[] plaintextPassword) {
         return accountService.addAccount(email, website, plaintextPassword);
     }
@@ -72,6 +179,18 @@ public class ApplicationConnector {
         accountService.updateAccount(account, plaintextPassword);
     }
 
+    public int[] addAccounts(List<AccountInput> inputs) {
+        return accountService.addAccounts(inputs);
+    }
+
+    public List<String> validateAccounts(List<AccountInput> inputs) {
+        return accountService.validateAccounts(inputs);
+    }
+
+    public void updateAccounts(List<AccountInput> inputs) {
+        accountService.updateAccounts(inputs);
+    }
+
     public void deleteAccount(int id) {
         accountService.deleteAccount(id);
     }
@@ -79,4 +198,48 @@ public class ApplicationConnector {
     public List<Account> search(String query, int limit, int offset) {
         return accountService.search(query, limit, offset);
     }
+
+    public List<AccountView> searchDecrypted(String query, int limit, int offset) {
+        return accountService.searchDecrypted(query, limit, offset);
+    }
+
+    public Page<Account> searchPage(String query, String pageToken, int pageSize) {
+        return accountService.searchPage(query, pageToken, pageSize);
+    }
+
+    public Page<AccountView> searchPageDecrypted(String query, String pageToken, int pageSize) {
+        return accountService.searchPageDecrypted(query, pageToken, pageSize);
+    }
+
+    /**
+     * Writes a full encrypted backup; the vault does not need to be unlocked.
+     */
+    public BackupInfo exportBackup(Path target) {
+        return backup.export(target);
+    }
+
+    /**
+     * Restores a backup into an empty vault, which then unlocks with the backup's master password.
+     */
+    public BackupInfo restoreBackup(Path source) {
+        return backup.restore(source);
+    }
+
+    /**
+     * Writes only what changed since the previous export, or a full backup if there was none.
+     */
+    public BackupInfo exportIncrementalBackup(Path target) {
+        return backup.exportIncremental(target);
+    }
+
+    /**
+     * Applies an incremental backup to a vault restored from the same chain. The vault must be
+     * locked, so no cached rows or keys outlive the change.
+     */
+    public BackupInfo applyIncrementalBackup(Path source) {
+        if (vaultService.isUnlocked()) {
+            throw new IllegalStateException("Lock the vault before applying a backup.");
+        }
+        return backup.applyIncremental(source);
+    }
 }
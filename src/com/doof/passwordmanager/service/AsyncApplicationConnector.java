@@ -0,0 +1,113 @@
+package com.doof.passwordmanager.service;
+
+import com.doof.passwordmanager.backup.BackupInfo;
+import com.doof.passwordmanager.model.Account;
+import com.doof.passwordmanager.model.Page;
+import com.doof.passwordmanager.service.AccountService.AccountInput;
+import com.doof.passwordmanager.service.AccountService.AccountView;
+import com.doof.passwordmanager.util.BoundedAsyncExecutor;
+
+import java.nio.file.Path;
+import java.util.List;
+import java.util.Objects;
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * CompletableFuture-returning front for {@link ApplicationConnector}, meant for the Swing layer.
+ * Each call runs on its own virtual thread, with concurrency capped at {@code maxConcurrent} (sized
+ * to the backing store by the caller), so the UI can fire off overlapping reads (a search plus a
+ * prefetch of the next page, say) without one SwingWorker per call. Completion stages run on the
+ * worker thread; hop back to the EDT before touching components.
+ */
+public class AsyncApplicationConnector implements AutoCloseable {
+
+    private final ApplicationConnector connector;
+    private final BoundedAsyncExecutor executor;
+
+    public AsyncApplicationConnector(ApplicationConnector connector, int maxConcurrent) {
+        this.connector = Objects.requireNonNull(connector);
+        this.executor = new BoundedAsyncExecutor("app-connector", maxConcurrent);
+    }
+
+    public ApplicationConnector getConnector() {
+        return connector;
+    }
+
+    public CompletableFuture<List<Account>> getAllAccounts() {
+        return executor.submit(connector::getAllAccounts);
+    }
+
+    public CompletableFuture<List<AccountView>> getAllAccountsDecrypted() {
+        return executor.submit(connector::getAllAccountsDecrypted);
+    }
+
+    public CompletableFuture<Account> getAccountById(int id) {
+        return executor.submit(() -> connector.getAccountById(id));
+    }
+
+    public CompletableFuture<AccountView> getAccountByIdDecrypted(int id) {
+        return executor.submit(() -> connector.getAccountByIdDecrypted(id));
+    }
+
+    public CompletableFuture<char[]> decryptPassword(Account stored) {
+        return executor.submit(() -> connector.decryptPassword(stored));
+    }
+
+    public CompletableFuture<Integer> addAccount(String email, String website, char[] plaintextPassword) {
+        return executor.submit(() -> connector.addAccount(email, website, plaintextPassword));
+    }
+
+    public CompletableFuture<Void> updateAccount(Account account, char[] plaintextPassword) {
+        return executor.submit(() -> {
+            connector.updateAccount(account, plaintextPassword);
+            return null;
+        });
+    }
+
+    public CompletableFuture<int[]> addAccounts(List<AccountInput> inputs) {
+        return executor.submit(() -> connector.addAccounts(inputs));
+    }
+
+    public CompletableFuture<Void> updateAccounts(List<AccountInput> inputs) {
+        return executor.submit(() -> {
+            connector.updateAccounts(inputs);
+            return null;
+        });
+    }
+
+    public CompletableFuture<Void> deleteAccount(int id) {
+        return executor.submit(() -> {
+            connector.deleteAccount(id);
+            return null;
+        });
+    }
+
+    public CompletableFuture<List<Account>> search(String query, int limit, int offset) {
+        return executor.submit(() -> connector.search(query, limit, offset));
+    }
+
+    public CompletableFuture<List<AccountView>> searchDecrypted(String query, int limit, int offset) {
+        return executor.submit(() -> connector.searchDecrypted(query, limit, offset));
+    }
+
+    public CompletableFuture<Page<Account>> searchPage(String query, String pageToken, int pageSize) {
+        return executor.submit(() -> connector.searchPage(query, pageToken, pageSize));
+    }
+
+    public CompletableFuture<Page<AccountView>> searchPageDecrypted(String query, String pageToken, int pageSize) {
+        return executor.submit(() -> connector.searchPageDecrypted(query, pageToken, pageSize));
+    }
+
+    public CompletableFuture<BackupInfo> exportBackup(Path target) {
+        return executor.submit(() -> connector.exportBackup(target));
+    }
+
+    public CompletableFuture<BackupInfo> exportIncrementalBackup(Path target) {
+        return executor.submit(() -> connector.exportIncrementalBackup(target));
+    }
+
+    @Override
+    public void close() {
+        executor.close();
+    }
+}
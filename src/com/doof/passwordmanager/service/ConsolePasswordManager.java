@@ -1,11 +1,14 @@
 package com.doof.passwordmanager.service;
 
+import com.doof.passwordmanager.dao.CachingVaultMetadataDao;
 import com.doof.passwordmanager.dao.JdbcAccountDao;
+import com.doof.passwordmanager.dao.JdbcCheckpointDao;
+import com.doof.passwordmanager.dao.JdbcDataKeyDao;
 import com.doof.passwordmanager.dao.JdbcVaultMetadataDao;
 import com.doof.passwordmanager.dao.AccountDao;
 import com.doof.passwordmanager.dao.VaultMetadataDao;
+import com.doof.passwordmanager.db.ConnectionManager;
 
-import java.util.List;
 import java.util.Scanner;
 import java.util.Arrays;
 
@@ -14,9 +17,9 @@ public class ConsolePasswordManager {
     private static final Scanner scanner = new Scanner(System.in);
 
     public static void main(String[] args) {
-        VaultMetadataDao vaultDao = new JdbcVaultMetadataDao();
-        VaultService vaultService = new VaultService(vaultDao);
+        VaultMetadataDao vaultDao = new CachingVaultMetadataDao(new JdbcVaultMetadataDao());
         AccountDao accountDao = new JdbcAccountDao();
+        VaultService vaultService = new VaultService(vaultDao, accountDao, new JdbcCheckpointDao(), new JdbcDataKeyDao());
         AccountService accountService = new AccountService(accountDao, vaultService);
 
         while (true) {
@@ -33,6 +36,7 @@ public class ConsolePasswordManager {
                     case "6" -> {
                         System.out.println("Goodbye!");
                         vaultService.lockVault();
+                        ConnectionManager.shutdown();
                         return;
                     }
                     default -> System.out.println("Invalid option. Try again.");
@@ -95,16 +99,14 @@ public class ConsolePasswordManager {
     }
 
     private static void showAccounts(AccountService accountService) {
-        List<AccountService.AccountView> list = accountService.getAllAccountsDecrypted();
-        if (list.isEmpty()) {
-            System.out.println("No accounts found.");
-            return;
-        }
-        System.out.println("\nStored accounts:");
-        for (AccountService.AccountView v : list) {
+        int[] count = {0};
+        accountService.forEachAccountDecrypted(v -> {
+            if (count[0]++ == 0) System.out.println("\nStored accounts:");
             System.out.printf("ID: %d | Email: %s | Website: %s | Password: %s%n",
                     v.getId(), v.getEmail(), v.getWebsite(), new String(v.getPassword()));
-            Arrays.fill(v.getPassword(), '\0');
+        });
+        if (count[0] == 0) {
+            System.out.println("No accounts found.");
         }
     }
 
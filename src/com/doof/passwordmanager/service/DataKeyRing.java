@@ -0,0 +1,153 @@
+package com.doof.passwordmanager.service;
+
+import com.doof.passwordmanager.dao.DataKeyDao;
+import com.doof.passwordmanager.model.DataKey;
+import com.doof.passwordmanager.util.OffHeapSecretKey;
+import com.doof.passwordmanager.util.PasswordEncryptor;
+import com.doof.passwordmanager.util.SecretBuffer;
+
+import javax.crypto.SecretKey;
+import java.nio.ByteBuffer;
+import java.security.SecureRandom;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Data keys unwrapped under one master key. Enc_version 3 blobs are the 4-byte id of the data key
+ * followed by the AES-GCM ciphertext; the row's iv column holds the IV as before. New writes share
+ * one data key until it has sealed {@link #SHARD_SIZE} passwords in this session, then a fresh key
+ * is wrapped and stored.
+ */
+class DataKeyRing {
+
+    static final int SHARD_SIZE = 1024;
+    private static final int DATA_KEY_BYTES = 32;
+    static final int HEADER_BYTES = Integer.BYTES;
+    private static final SecureRandom RANDOM = new SecureRandom();
+
+    private final DataKeyDao dataKeyDao;
+    private final SecretKey masterKey;
+    private final Map<Integer, OffHeapSecretKey> unwrapped = new ConcurrentHashMap<>();
+
+    private final Object writeLock = new Object();
+    private int activeId;
+    private int activeUses;
+
+    DataKeyRing(DataKeyDao dataKeyDao, SecretKey masterKey) {
+        this.dataKeyDao = dataKeyDao;
+        this.masterKey = masterKey;
+    }
+
+    byte[] encrypt(SecretBuffer plaintext, byte[] iv) {
+        int id = nextWriteKey();
+        byte[] blob = new byte[HEADER_BYTES + PasswordEncryptor.ciphertextLength(plaintext.length())];
+        ByteBuffer.wrap(blob).putInt(id);
+        PasswordEncryptor.encrypt(plaintext.asByteBuffer(), ByteBuffer.wrap(blob, HEADER_BYTES, blob.length - HEADER_BYTES),
+                unwrapped.get(id), iv);
+        return blob;
+    }
+
+    SecretBuffer decrypt(byte[] blob, byte[] iv) {
+        if (blob == null || blob.length < HEADER_BYTES) {
+            throw new RuntimeException("Malformed envelope ciphertext");
+        }
+        int id = ByteBuffer.wrap(blob).getInt();
+        return PasswordEncryptor.decryptToBuffer(blob, HEADER_BYTES, blob.length - HEADER_BYTES, keyFor(id), iv);
+    }
+
+    /**
+     * Zeroes every unwrapped data key.
+     */
+    void destroy() {
+        synchronized (writeLock) {
+            activeId = 0;
+            activeUses = 0;
+        }
+        for (OffHeapSecretKey key : unwrapped.values()) {
+            key.destroy();
+        }
+        unwrapped.clear();
+    }
+
+    private SecretKey keyFor(int id) {
+        OffHeapSecretKey key = unwrapped.get(id);
+        if (key != null) return key;
+        DataKey stored = dataKeyDao.find(id);
+        if (stored == null) {
+            throw new RuntimeException("Unknown data key: " + id);
+        }
+        key = unwrap(stored, masterKey);
+        OffHeapSecretKey raced = unwrapped.putIfAbsent(id, key);
+        if (raced == null) return key;
+        key.destroy();
+        return raced;
+    }
+
+    private int nextWriteKey() {
+        synchronized (writeLock) {
+            if (activeId == 0) {
+                DataKey latest = dataKeyDao.findLatest();
+                if (latest != null) {
+                    keyFor(latest.getId());
+                    activeId = latest.getId();
+                }
+            }
+            if (activeId == 0 || activeUses >= SHARD_SIZE) {
+                activeId = createKey();
+                activeUses = 0;
+            }
+            activeUses++;
+            return activeId;
+        }
+    }
+
+    private int createKey() {
+        byte[] raw = new byte[DATA_KEY_BYTES];
+        RANDOM.nextBytes(raw);
+        try {
+            byte[] iv = PasswordEncryptor.generateIV();
+            DataKey dataKey = new DataKey(0, PasswordEncryptor.encrypt(raw.clone(), masterKey, iv), iv, null);
+            dataKeyDao.insert(dataKey);
+            unwrapped.put(dataKey.getId(), OffHeapSecretKey.copyOf(raw, "AES"));
+            return dataKey.getId();
+        } finally {
+            PasswordEncryptor.wipe(raw);
+        }
+    }
+
+    /**
+     * Re-wraps every stored data key from {@code oldMaster} to {@code newMaster} in one DAO call.
+     * If the keys already open under {@code newMaster}, an earlier attempt got this far and nothing
+     * is written. Returns the number of keys rewrapped.
+     */
+    static int rewrapAll(DataKeyDao dataKeyDao, SecretKey oldMaster, SecretKey newMaster) {
+        List<DataKey> keys = dataKeyDao.findAll();
+        if (keys.isEmpty()) return 0;
+        try {
+            unwrap(keys.get(0), newMaster).destroy();
+            return 0;
+        } catch (RuntimeException notYet) {
+            // Still under the old master key.
+        }
+
+        List<DataKey> rewrapped = new ArrayList<>(keys.size());
+        for (DataKey k : keys) {
+            byte[] raw = PasswordEncryptor.decrypt(k.getWrappedKey(), oldMaster, k.getIv());
+            byte[] iv = PasswordEncryptor.generateIV();
+            rewrapped.add(new DataKey(k.getId(), PasswordEncryptor.encrypt(raw, newMaster, iv), iv, k.getCreatedAt()));
+        }
+        dataKeyDao.updateAll(rewrapped);
+        return rewrapped.size();
+    }
+
+    private static OffHeapSecretKey unwrap(DataKey stored, SecretKey masterKey) {
+        byte[] raw = PasswordEncryptor.decrypt(stored.getWrappedKey(), masterKey, stored.getIv());
+        try {
+            return OffHeapSecretKey.copyOf(raw, "AES");
+        } finally {
+            PasswordEncryptor.wipe(raw);
+        }
+    }
+}
@@ -0,0 +1,235 @@
+package com.doof.passwordmanager.service;
+
+import com.doof.passwordmanager.dao.AccountDao;
+import com.doof.passwordmanager.dao.CheckpointDao;
+import com.doof.passwordmanager.model.Account;
+import com.doof.passwordmanager.model.Checkpoint;
+import com.doof.passwordmanager.model.VaultMetadata;
+import com.doof.passwordmanager.util.PasswordEncryptor;
+import com.doof.passwordmanager.util.SecretBuffer;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Consumer;
+
+/**
+ * Re-encrypts rows left under an older enc_version for the vault's current one, in the background
+ * while the vault is unlocked. Work is paced to a rows-per-second budget so interactive calls keep
+ * their share of the connection pool, and the last id handled is checkpointed after every batch so
+ * the next unlock carries on from there.
+ *
+ * <p>Rows are written with {@link AccountDao#upgradeEncryption}, which skips any row the user has
+ * rewritten since it was read. A row that cannot be re-encrypted holds the checkpoint just below
+ * it, so the migration is not reported complete and the next unlock tries that row again.
+ */
+class EncVersionMigrator {
+
+    static final String CHECKPOINT_NAME = "enc-version-migration";
+    static final int DEFAULT_ROWS_PER_SECOND = 200;
+    private static final int MAX_BATCH_SIZE = 100;
+
+    private final AccountDao accountDao;
+    private final CheckpointDao checkpointDao;
+    private final VaultService vaultService;
+    private final Consumer<Account> onUpgraded;
+    private volatile int rowsPerSecond;
+
+    private final Object monitor = new Object();
+    private Thread worker;
+    private boolean stopRequested;
+
+    private volatile boolean complete;
+    private volatile int targetVersion;
+    private volatile long lastId;
+    private int retryFrom;
+    private volatile String lastError;
+    private final LongAdder upgraded = new LongAdder();
+    private final LongAdder skipped = new LongAdder();
+    private final LongAdder failed = new LongAdder();
+
+    EncVersionMigrator(AccountDao accountDao, CheckpointDao checkpointDao, VaultService vaultService,
+                       int rowsPerSecond, Consumer<Account> onUpgraded) {
+        this.accountDao = accountDao;
+        this.checkpointDao = checkpointDao;
+        this.vaultService = vaultService;
+        this.onUpgraded = onUpgraded;
+        setRowsPerSecond(rowsPerSecond);
+    }
+
+    /**
+     * Zero pauses the migration; it picks up again once the budget is raised.
+     */
+    void setRowsPerSecond(int rowsPerSecond) {
+        if (rowsPerSecond < 0) {
+            throw new IllegalArgumentException("rowsPerSecond must not be negative");
+        }
+        this.rowsPerSecond = rowsPerSecond;
+        synchronized (monitor) {
+            monitor.notifyAll();
+        }
+    }
+
+    void start() {
+        VaultMetadata meta = vaultService.getMetadata();
+        if (meta == null) return;
+        synchronized (monitor) {
+            if (worker != null) return;
+            stopRequested = false;
+            complete = false;
+            lastError = null;
+            targetVersion = meta.getEncVersion();
+            worker = new Thread(this::runLoop, "enc-version-migrator");
+            worker.setDaemon(true);
+            worker.start();
+        }
+    }
+
+    /**
+     * Stops the worker and waits for the batch in flight, so no migration write is still running
+     * once the vault has been locked.
+     */
+    void stop() {
+        Thread t;
+        synchronized (monitor) {
+            t = worker;
+            if (t == null) return;
+            stopRequested = true;
+            monitor.notifyAll();
+        }
+        if (t == Thread.currentThread()) return;
+        try {
+            t.join();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    MigrationProgress getProgress() {
+        boolean running;
+        synchronized (monitor) {
+            running = worker != null;
+        }
+        return new MigrationProgress(running, complete, targetVersion, lastId,
+                upgraded.sum(), skipped.sum(), failed.sum(), rowsPerSecond, lastError);
+    }
+
+    private void runLoop() {
+        int target = targetVersion;
+        try {
+            int position = resumePosition(target);
+            lastId = position;
+            retryFrom = -1;
+            long windowStart = System.nanoTime();
+            long windowRows = 0;
+
+            while (!isStopRequested()) {
+                int rate = rowsPerSecond;
+                if (rate == 0) {
+                    pause(TimeUnit.SECONDS.toNanos(1));
+                    windowStart = System.nanoTime();
+                    windowRows = 0;
+                    continue;
+                }
+
+                RowCipher cipher = vaultService.rowCipher();
+                if (cipher == null || cipher.getWriteVersion() != target) break;
+
+                List<Account> batch = accountDao.getAccountsBelowEncVersion(target, position, Math.min(MAX_BATCH_SIZE, rate));
+                if (batch.isEmpty()) {
+                    if (retryFrom < 0) {
+                        checkpointDao.delete(CHECKPOINT_NAME);
+                        complete = true;
+                    }
+                    break;
+                }
+
+                List<Account> rewritten = reencrypt(batch, cipher);
+                try {
+                    int count = rewritten.isEmpty() ? 0 : accountDao.upgradeEncryption(rewritten);
+                    upgraded.add(count);
+                    skipped.add(rewritten.size() - count);
+                    for (Account a : rewritten) {
+                        // When some rows were skipped we cannot tell which, so re-read them all.
+                        Account current = count == rewritten.size() ? a : accountDao.getAccountById(a.getId());
+                        if (current != null) onUpgraded.accept(current);
+                    }
+                } finally {
+                    wipe(rewritten);
+                    wipe(batch);
+                }
+
+                position = batch.get(batch.size() - 1).getId();
+                lastId = position;
+                checkpointDao.save(new Checkpoint(CHECKPOINT_NAME, retryFrom < 0 ? position : retryFrom, "target=" + target));
+
+                windowRows += batch.size();
+                long due = windowStart + windowRows * 1_000_000_000L / rate;
+                pause(due - System.nanoTime());
+            }
+        } catch (RuntimeException e) {
+            lastError = "Migration stopped: " + e.getMessage();
+        } finally {
+            synchronized (monitor) {
+                worker = null;
+                monitor.notifyAll();
+            }
+        }
+    }
+
+    private int resumePosition(int target) {
+        Checkpoint c = checkpointDao.find(CHECKPOINT_NAME);
+        if (c == null || !("target=" + target).equals(c.getPayload())) {
+            return 0;
+        }
+        return (int) c.getPosition();
+    }
+
+    private List<Account> reencrypt(List<Account> batch, RowCipher cipher) {
+        List<Account> out = new ArrayList<>(batch.size());
+        for (Account stored : batch) {
+            try (SecretBuffer plain = cipher.decrypt(stored)) {
+                byte[] iv = PasswordEncryptor.generateIV();
+                out.add(new Account(stored.getId(), stored.getEmail(), stored.getWebsite(),
+                        cipher.encrypt(plain, iv), iv, cipher.getWriteVersion(),
+                        stored.getCreatedAt(), stored.getUpdatedAt()));
+            } catch (RuntimeException e) {
+                failed.increment();
+                if (retryFrom < 0) retryFrom = stored.getId() - 1;
+                lastError = "Account " + stored.getId() + " could not be re-encrypted: " + e.getMessage();
+            }
+        }
+        return out;
+    }
+
+    private boolean isStopRequested() {
+        synchronized (monitor) {
+            return stopRequested;
+        }
+    }
+
+    private void pause(long nanos) {
+        if (nanos <= 0) return;
+        long deadline = System.nanoTime() + nanos;
+        synchronized (monitor) {
+            long remaining;
+            while (!stopRequested && (remaining = deadline - System.nanoTime()) > 0) {
+                try {
+                    TimeUnit.NANOSECONDS.timedWait(monitor, remaining);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    stopRequested = true;
+                }
+            }
+        }
+    }
+
+    private static void wipe(List<Account> accounts) {
+        for (Account a : accounts) {
+            if (a.getPasswordEncrypted() != null) Arrays.fill(a.getPasswordEncrypted(), (byte) 0);
+            if (a.getIv() != null) Arrays.fill(a.getIv(), (byte) 0);
+        }
+    }
+}
@@ -0,0 +1,46 @@
+package com.doof.passwordmanager.service;
+
+public final class MigrationProgress {
+    private final boolean running;
+    private final boolean complete;
+    private final int targetVersion;
+    private final long lastId;
+    private final long upgradedCount;
+    private final long skippedCount;
+    private final long failedCount;
+    private final int rowsPerSecond;
+    private final String lastError;
+
+    MigrationProgress(boolean running, boolean complete, int targetVersion, long lastId,
+                      long upgradedCount, long skippedCount, long failedCount, int rowsPerSecond,
+                      String lastError) {
+        this.running = running;
+        this.complete = complete;
+        this.targetVersion = targetVersion;
+        this.lastId = lastId;
+        this.upgradedCount = upgradedCount;
+        this.skippedCount = skippedCount;
+        this.failedCount = failedCount;
+        this.rowsPerSecond = rowsPerSecond;
+        this.lastError = lastError;
+    }
+
+    public boolean isRunning() { return running; }
+    public boolean isComplete() { return complete; }
+    public int getTargetVersion() { return targetVersion; }
+    public long getLastId() { return lastId; }
+    public long getUpgradedCount() { return upgradedCount; }
+    public long getSkippedCount() { return skippedCount; }
+    public long getFailedCount() { return failedCount; }
+    public int getRowsPerSecond() { return rowsPerSecond; }
+    /** The most recent failure in this run, or null. */
+    public String getLastError() { return lastError; }
+
+    @Override
+    public String toString() {
+        return String.format(
+                "MigrationProgress{running=%s, complete=%s, target=%d, lastId=%d, upgraded=%d, skipped=%d, failed=%d, rate=%d/s, lastError=%s}",
+                running, complete, targetVersion, lastId, upgradedCount, skippedCount, failedCount, rowsPerSecond, lastError
+        );
+    }
+}
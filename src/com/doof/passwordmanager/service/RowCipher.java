@@ -0,0 +1,86 @@
+package com.doof.passwordmanager.service;
+
+import com.doof.passwordmanager.model.Account;
+import com.doof.passwordmanager.util.KdfParams;
+import com.doof.passwordmanager.util.OffHeapSecretKey;
+import com.doof.passwordmanager.util.PasswordEncryptor;
+import com.doof.passwordmanager.util.SecretBuffer;
+
+import javax.crypto.SecretKey;
+
+/**
+ * The keys of one unlocked session, resolving each row's enc_version:
+ * <ul>
+ *   <li>1: AES-GCM under the raw PBKDF2 output;</li>
+ *   <li>2: AES-GCM under the HKDF-derived master encryption key;</li>
+ *   <li>3: AES-GCM under a data key wrapped by the master encryption key (see {@link DataKeyRing}).</li>
+ * </ul>
+ * Keys are held off-heap and zeroed by {@link #destroy()}; plaintext goes in and out through
+ * confined {@link SecretBuffer}s.
+ */
+final class RowCipher {
+
+    static final int ENC_VERSION_ENVELOPE = 3;
+    static final int CURRENT_ENC_VERSION = ENC_VERSION_ENVELOPE;
+
+    private final OffHeapSecretKey legacyKey;
+    private final OffHeapSecretKey masterKey;
+    private final DataKeyRing dataKeys;
+    private final int writeVersion;
+
+    RowCipher(OffHeapSecretKey legacyKey, OffHeapSecretKey masterKey, DataKeyRing dataKeys, int writeVersion) {
+        this.legacyKey = legacyKey;
+        this.masterKey = masterKey;
+        this.dataKeys = dataKeys;
+        this.writeVersion = writeVersion;
+    }
+
+    int getWriteVersion() {
+        return writeVersion;
+    }
+
+    /**
+     * Plaintext password bytes in a confined buffer the caller closes.
+     */
+    SecretBuffer decrypt(Account stored) {
+        return switch (stored.getEncVersion()) {
+            case KdfParams.VERSION_LEGACY -> PasswordEncryptor.decryptToBuffer(stored.getPasswordEncrypted(), legacyKey, stored.getIv());
+            case KdfParams.VERSION_HKDF -> PasswordEncryptor.decryptToBuffer(stored.getPasswordEncrypted(), masterKey, stored.getIv());
+            case ENC_VERSION_ENVELOPE -> dataKeys.decrypt(stored.getPasswordEncrypted(), stored.getIv());
+            default -> throw new RuntimeException("Unsupported enc_version: " + stored.getEncVersion());
+        };
+    }
+
+    /**
+     * Encrypts for {@link #getWriteVersion()}; {@code plaintext} is left open.
+     */
+    byte[] encrypt(SecretBuffer plaintext, byte[] iv) {
+        return switch (writeVersion) {
+            case KdfParams.VERSION_LEGACY -> PasswordEncryptor.encrypt(plaintext, legacyKey, iv);
+            case KdfParams.VERSION_HKDF -> PasswordEncryptor.encrypt(plaintext, masterKey, iv);
+            case ENC_VERSION_ENVELOPE -> dataKeys.encrypt(plaintext, iv);
+            default -> throw new RuntimeException("Unsupported enc_version: " + writeVersion);
+        };
+    }
+
+    /**
+     * Plaintext size of a stored password in bytes, without decrypting it. Envelope rows carry the
+     * data key id in front of the GCM ciphertext.
+     */
+    static int plaintextLength(Account stored) {
+        byte[] ct = stored.getPasswordEncrypted();
+        if (ct == null) return 0;
+        int header = stored.getEncVersion() == ENC_VERSION_ENVELOPE ? DataKeyRing.HEADER_BYTES : 0;
+        return PasswordEncryptor.plaintextLength(Math.max(0, ct.length - header));
+    }
+
+    SecretKey getMasterKey() {
+        return masterKey;
+    }
+
+    void destroy() {
+        dataKeys.destroy();
+        legacyKey.destroy();
+        masterKey.destroy();
+    }
+}
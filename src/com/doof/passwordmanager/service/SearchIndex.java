@@ -0,0 +1,261 @@
+package com.doof.passwordmanager.service;
+
+import com.doof.passwordmanager.model.Account;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * In-memory trigram index over account email and website. Posting lists hold account ids in
+ * ascending order, so a substring query walks the rarest trigram's list from the last-seen id and
+ * verifies each candidate, which gives the same keyset paging as {@code AccountDao.searchAfter}.
+ * Matching is case-insensitive; queries shorter than three characters fall back to a scan of the
+ * in-memory rows.
+ */
+class SearchIndex {
+
+    private static final long ENTRY_OVERHEAD_BYTES = 160;
+    private static final long POSTING_LIST_OVERHEAD_BYTES = 80;
+
+    private final long maxBytes;
+    private final TreeMap<Integer, Account> rows = new TreeMap<>();
+    private final Map<Long, Postings> postings = new HashMap<>();
+    private final ReentrantReadWriteLock lock = new ReentrantReadWriteLock();
+    private long estimatedBytes;
+
+    SearchIndex(long maxBytes) {
+        this.maxBytes = maxBytes;
+    }
+
+    /**
+     * Adds or replaces a row. Returns false, leaving the index unchanged, when the row would push
+     * the index past its memory budget.
+     */
+    boolean put(Account account) {
+        Account copy = copyOf(account);
+        long[] grams = trigramsOf(copy.getEmail(), copy.getWebsite());
+        lock.writeLock().lock();
+        try {
+            Account previous = rows.get(copy.getId());
+            long delta = estimateEntryBytes(copy, grams.length)
+                    - (previous == null ? 0 : estimateEntryBytes(previous, trigramsOf(previous.getEmail(), previous.getWebsite()).length));
+            if (estimatedBytes + delta > maxBytes) {
+                return false;
+            }
+            if (previous != null) {
+                unlink(previous);
+            }
+            rows.put(copy.getId(), copy);
+            for (long g : grams) {
+                Postings list = postings.get(g);
+                if (list == null) {
+                    list = new Postings();
+                    postings.put(g, list);
+                    estimatedBytes += POSTING_LIST_OVERHEAD_BYTES;
+                }
+                list.insert(copy.getId());
+            }
+            estimatedBytes += delta;
+            return true;
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    void remove(int id) {
+        lock.writeLock().lock();
+        try {
+            Account previous = rows.remove(id);
+            if (previous != null) {
+                unlink(previous);
+                estimatedBytes -= estimateEntryBytes(previous, trigramsOf(previous.getEmail(), previous.getWebsite()).length);
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    List<Account> search(String query, int afterId, int limit) {
+        String q = query == null ? "" : query;
+        long[] grams = trigramsOf(q, null);
+        List<Account> result = new ArrayList<>(Math.min(limit, 64));
+
+        lock.readLock().lock();
+        try {
+            if (grams.length == 0) {
+                for (Account a : rows.tailMap(afterId, false).values()) {
+                    if (matches(a, q)) {
+                        result.add(copyOf(a));
+                        if (result.size() >= limit) break;
+                    }
+                }
+                return result;
+            }
+
+            Postings rarest = null;
+            for (long g : grams) {
+                Postings list = postings.get(g);
+                if (list == null) return result;
+                if (rarest == null || list.size < rarest.size) rarest = list;
+            }
+
+            for (int i = rarest.firstAfter(afterId); i < rarest.size && result.size() < limit; i++) {
+                Account a = rows.get(rarest.ids[i]);
+                if (a != null && matches(a, q)) {
+                    result.add(copyOf(a));
+                }
+            }
+            return result;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    int size() {
+        lock.readLock().lock();
+        try {
+            return rows.size();
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    long getEstimatedBytes() {
+        lock.readLock().lock();
+        try {
+            return estimatedBytes;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    void clear() {
+        lock.writeLock().lock();
+        try {
+            rows.clear();
+            postings.clear();
+            estimatedBytes = 0;
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    private void unlink(Account previous) {
+        for (long g : trigramsOf(previous.getEmail(), previous.getWebsite())) {
+            Postings list = postings.get(g);
+            if (list != null && list.remove(previous.getId()) && list.size == 0) {
+                postings.remove(g);
+                estimatedBytes -= POSTING_LIST_OVERHEAD_BYTES;
+            }
+        }
+    }
+
+    private static boolean matches(Account a, String query) {
+        return containsIgnoreCase(a.getEmail(), query) || containsIgnoreCase(a.getWebsite(), query);
+    }
+
+    static boolean containsIgnoreCase(String haystack, String needle) {
+        if (haystack == null) return false;
+        int n = needle.length();
+        int last = haystack.length() - n;
+        outer:
+        for (int start = 0; start <= last; start++) {
+            for (int k = 0; k < n; k++) {
+                if (Character.toLowerCase(haystack.charAt(start + k)) != Character.toLowerCase(needle.charAt(k))) {
+                    continue outer;
+                }
+            }
+            return true;
+        }
+        return false;
+    }
+
+    /**
+     * Distinct lower-cased trigrams of both strings, each packed as three UTF-16 units in a long.
+     */
+    static long[] trigramsOf(String a, String b) {
+        int capacity = Math.max(0, (a == null ? 0 : a.length() - 2)) + Math.max(0, (b == null ? 0 : b.length() - 2));
+        long[] out = new long[capacity];
+        int n = collect(a, out, 0);
+        n = collect(b, out, n);
+        Arrays.sort(out, 0, n);
+        int distinct = 0;
+        for (int i = 0; i < n; i++) {
+            if (distinct == 0 || out[distinct - 1] != out[i]) out[distinct++] = out[i];
+        }
+        return distinct == out.length ? out : Arrays.copyOf(out, distinct);
+    }
+
+    private static int collect(String s, long[] out, int n) {
+        if (s == null || s.length() < 3) return n;
+        long c0 = Character.toLowerCase(s.charAt(0));
+        long c1 = Character.toLowerCase(s.charAt(1));
+        for (int i = 2; i < s.length(); i++) {
+            long c2 = Character.toLowerCase(s.charAt(i));
+            out[n++] = (c0 << 32) | (c1 << 16) | c2;
+            c0 = c1;
+            c1 = c2;
+        }
+        return n;
+    }
+
+    private static long estimateEntryBytes(Account a, int trigramCount) {
+        long bytes = ENTRY_OVERHEAD_BYTES + trigramCount * 4L;
+        bytes += a.getEmail() == null ? 0 : 40 + a.getEmail().length();
+        bytes += a.getWebsite() == null ? 0 : 40 + a.getWebsite().length();
+        bytes += a.getPasswordEncrypted() == null ? 0 : 16 + a.getPasswordEncrypted().length;
+        bytes += a.getIv() == null ? 0 : 16 + a.getIv().length;
+        return bytes;
+    }
+
+    static Account copyOf(Account a) {
+        return new Account(a.getId(), a.getEmail(), a.getWebsite(),
+                a.getPasswordEncrypted() == null ? null : a.getPasswordEncrypted().clone(),
+                a.getIv() == null ? null : a.getIv().clone(),
+                a.getEncVersion(), a.getCreatedAt(), a.getUpdatedAt());
+    }
+
+    private static final class Postings {
+        int[] ids = new int[4];
+        int size;
+
+        void insert(int id) {
+            if (size == 0 || ids[size - 1] < id) {
+                ensureCapacity();
+                ids[size++] = id;
+                return;
+            }
+            int pos = Arrays.binarySearch(ids, 0, size, id);
+            if (pos >= 0) return;
+            pos = -pos - 1;
+            ensureCapacity();
+            System.arraycopy(ids, pos, ids, pos + 1, size - pos);
+            ids[pos] = id;
+            size++;
+        }
+
+        boolean remove(int id) {
+            int pos = Arrays.binarySearch(ids, 0, size, id);
+            if (pos < 0) return false;
+            System.arraycopy(ids, pos + 1, ids, pos, size - pos - 1);
+            size--;
+            return true;
+        }
+
+        int firstAfter(int afterId) {
+            int pos = Arrays.binarySearch(ids, 0, size, afterId);
+            return pos >= 0 ? pos + 1 : -pos - 1;
+        }
+
+        private void ensureCapacity() {
+            if (size == ids.length) {
+                ids = Arrays.copyOf(ids, ids.length + (ids.length >> 1) + 1);
+            }
+        }
+    }
+}
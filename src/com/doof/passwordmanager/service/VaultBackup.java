@@ -0,0 +1,258 @@
+package com.doof.passwordmanager.service;
+
+import com.doof.passwordmanager.backup.BackupInfo;
+import com.doof.passwordmanager.backup.BackupReader;
+import com.doof.passwordmanager.backup.BackupWriter;
+import com.doof.passwordmanager.dao.AccountDao;
+import com.doof.passwordmanager.dao.CheckpointDao;
+import com.doof.passwordmanager.dao.DataKeyDao;
+import com.doof.passwordmanager.dao.VaultMetadataDao;
+import com.doof.passwordmanager.model.Account;
+import com.doof.passwordmanager.model.Checkpoint;
+import com.doof.passwordmanager.model.DataKey;
+import com.doof.passwordmanager.model.VaultMetadata;
+
+import java.nio.file.Path;
+import java.security.MessageDigest;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+
+/**
+ * Backups of the encrypted vault. Export streams rows from the DAO into a {@link BackupWriter}
+ * without decrypting anything, so it works while the vault is locked; the backup opens with the
+ * master password that was current when it was taken. Restore goes through the import path one
+ * block at a time and keeps account and data key ids, so later incremental backups line up.
+ *
+ * <p>Every export records a high-water mark: the newest updated_at or deleted_at it saw. An
+ * incremental export carries only the rows updated and the deletes logged since then, plus the
+ * vault metadata and data keys, which are small. It starts {@link #OVERLAP} before the mark,
+ * because updated_at is set when a statement runs rather than when it commits, and MySQL keeps it
+ * to the second; rows in the overlap are simply exported twice. A vault restored from a full
+ * backup records how far it is restored, and incrementals are applied on top in order.
+ */
+class VaultBackup {
+
+    static final String EXPORT_CHECKPOINT = "backup-high-water";
+    static final String RESTORE_CHECKPOINT = "backup-restored-through";
+    static final Duration OVERLAP = Duration.ofMinutes(1);
+
+    private final VaultMetadataDao metadataDao;
+    private final AccountDao accountDao;
+    private final DataKeyDao dataKeyDao;
+    private final CheckpointDao checkpointDao;
+
+    VaultBackup(VaultMetadataDao metadataDao, AccountDao accountDao, DataKeyDao dataKeyDao, CheckpointDao checkpointDao) {
+        this.metadataDao = metadataDao;
+        this.accountDao = accountDao;
+        this.dataKeyDao = dataKeyDao;
+        this.checkpointDao = checkpointDao;
+    }
+
+    /**
+     * Data keys are read after the rows, so every key a row refers to is in the file even if new
+     * ones were created during the export. A master password change rewraps the keys, so one that
+     * is running or completes meanwhile fails the export rather than mixing keys from both sides.
+     */
+    BackupInfo export(Path target) {
+        return export(target, null);
+    }
+
+    /**
+     * Exports what changed since the last export's high-water mark, or everything if there has
+     * been no export yet.
+     */
+    BackupInfo exportIncremental(Path target) {
+        Checkpoint last = checkpointDao.find(EXPORT_CHECKPOINT);
+        return export(target, last == null ? null : fromMicros(last.getPosition()).minus(OVERLAP));
+    }
+
+    /**
+     * Restores a full backup into an empty, uninitialized vault. The whole file is verified before
+     * anything is written, and the vault metadata goes in last: until then the vault still reads
+     * as uninitialized.
+     */
+    BackupInfo restore(Path source) {
+        if (metadataDao.find() != null || !accountDao.getAccountsAfter(0, 1).isEmpty()
+                || dataKeyDao.findLatest() != null) {
+            throw new IllegalStateException("Restore needs an empty vault.");
+        }
+        try (BackupReader reader = new BackupReader(source)) {
+            if (reader.isIncremental()) {
+                throw new IllegalArgumentException("Restore needs a full backup; " + source + " is incremental.");
+            }
+            VaultMetadata[] metadata = new VaultMetadata[1];
+            List<DataKey> keys = new ArrayList<>();
+            BackupInfo info = reader.verify(m -> metadata[0] = m, keys::addAll);
+
+            dataKeyDao.importAll(keys);
+            reader.forEachAccountBlock(accountDao::importAccounts);
+            if (info.getHighWaterMark() != null) {
+                checkpointDao.save(new Checkpoint(RESTORE_CHECKPOINT, toMicros(info.getHighWaterMark()),
+                        String.valueOf(source.getFileName())));
+            }
+            metadataDao.insert(metadata[0]);
+            return info;
+        }
+    }
+
+    /**
+     * Applies an incremental backup to a vault restored from the same chain. The backup must start
+     * no later than the point the vault is restored through, or changes in between would be
+     * missing. Deleted and changed rows are removed first and the changed ones imported after, so
+     * a (email, website) pair that moved between rows does not collide. If it fails part-way,
+     * applying the same file again completes it. The vault must not have been written to since it
+     * was restored.
+     */
+    BackupInfo applyIncremental(Path source) {
+        VaultMetadata current = metadataDao.find();
+        Checkpoint restored = checkpointDao.find(RESTORE_CHECKPOINT);
+        if (current == null || restored == null) {
+            throw new IllegalStateException("Incremental backups apply only to a vault restored from a full backup.");
+        }
+        LocalDateTime restoredThrough = fromMicros(restored.getPosition());
+        try (BackupReader reader = new BackupReader(source)) {
+            if (!reader.isIncremental()) {
+                throw new IllegalArgumentException(source + " is a full backup; restore it into an empty vault.");
+            }
+            if (reader.getSince().isAfter(restoredThrough)) {
+                throw new IllegalStateException("Backup " + source + " starts at " + reader.getSince()
+                        + " but the vault is restored only through " + restoredThrough
+                        + "; apply the backups in between first.");
+            }
+            VaultMetadata[] metadata = new VaultMetadata[1];
+            List<DataKey> keys = new ArrayList<>();
+            BackupInfo info = reader.verify(m -> metadata[0] = m, keys::addAll);
+
+            applyDataKeys(keys);
+            Set<Integer> deleted = new HashSet<>();
+            reader.forEachTombstoneBlock(block -> {
+                int[] ids = new int[block.size()];
+                for (int i = 0; i < ids.length; i++) {
+                    ids[i] = block.get(i).getAccountId();
+                    deleted.add(ids[i]);
+                }
+                accountDao.removeAccounts(ids);
+            });
+            reader.forEachAccountBlock(block -> accountDao.removeAccounts(idsOf(block)));
+            reader.forEachAccountBlock(block -> {
+                block.removeIf(a -> deleted.contains(a.getId()));
+                accountDao.importAccounts(block);
+            });
+            if (changed(current, metadata[0])) metadataDao.update(metadata[0]);
+
+            LocalDateTime through = info.getHighWaterMark();
+            if (through != null && through.isAfter(restoredThrough)) {
+                checkpointDao.save(new Checkpoint(RESTORE_CHECKPOINT, toMicros(through),
+                        String.valueOf(source.getFileName())));
+            }
+            return info;
+        }
+    }
+
+    private BackupInfo export(Path target, LocalDateTime since) {
+        VaultMetadata metadata = metadataDao.find();
+        if (metadata == null) {
+            throw new RuntimeException("Vault is not initialized");
+        }
+        checkNoRotation();
+        LocalDateTime[] highWater = {metadata.getUpdatedAt()};
+        BackupInfo info;
+        try (BackupWriter writer = new BackupWriter(target, since)) {
+            writer.writeMetadata(metadata);
+            if (since == null) {
+                accountDao.forEachAccount(a -> {
+                    highWater[0] = later(highWater[0], a.getUpdatedAt());
+                    writer.writeAccount(a);
+                });
+            } else {
+                accountDao.forEachAccountUpdatedSince(since, a -> {
+                    highWater[0] = later(highWater[0], a.getUpdatedAt());
+                    writer.writeAccount(a);
+                });
+                // After the rows: a row deleted while they were read still gets its tombstone.
+                accountDao.forEachDeletionSince(since, t -> {
+                    highWater[0] = later(highWater[0], t.getDeletedAt());
+                    writer.writeTombstone(t);
+                });
+            }
+            writer.writeDataKeys(dataKeyDao.findAll());
+
+            VaultMetadata after = metadataDao.find();
+            checkNoRotation();
+            if (after == null || !MessageDigest.isEqual(after.getMasterHash(), metadata.getMasterHash())) {
+                throw new RuntimeException("The master password changed during the backup; run it again.");
+            }
+            if (since != null) highWater[0] = later(highWater[0], since.plus(OVERLAP));
+            info = writer.finish(highWater[0]);
+        }
+        if (highWater[0] != null) {
+            checkpointDao.save(new Checkpoint(EXPORT_CHECKPOINT, toMicros(highWater[0]),
+                    String.valueOf(target.getFileName())));
+        }
+        return info;
+    }
+
+    /**
+     * Inserts keys the vault does not have yet and rewrites the ones a master password change
+     * rewrapped.
+     */
+    private void applyDataKeys(List<DataKey> keys) {
+        Map<Integer, DataKey> existing = new HashMap<>();
+        for (DataKey k : dataKeyDao.findAll()) existing.put(k.getId(), k);
+        List<DataKey> added = new ArrayList<>();
+        List<DataKey> rewrapped = new ArrayList<>();
+        for (DataKey k : keys) {
+            DataKey stored = existing.get(k.getId());
+            if (stored == null) {
+                added.add(k);
+            } else if (!Arrays.equals(stored.getWrappedKey(), k.getWrappedKey()) || !Arrays.equals(stored.getIv(), k.getIv())) {
+                rewrapped.add(k);
+            }
+        }
+        dataKeyDao.importAll(added);
+        dataKeyDao.updateAll(rewrapped);
+    }
+
+    private static boolean changed(VaultMetadata current, VaultMetadata incoming) {
+        return current.getEncVersion() != incoming.getEncVersion()
+                || !Objects.equals(current.getKdfParams(), incoming.getKdfParams())
+                || !Arrays.equals(current.getKdfSalt(), incoming.getKdfSalt())
+                || !Arrays.equals(current.getMasterHash(), incoming.getMasterHash());
+    }
+
+    private static int[] idsOf(List<Account> block) {
+        int[] ids = new int[block.size()];
+        for (int i = 0; i < ids.length; i++) ids[i] = block.get(i).getId();
+        return ids;
+    }
+
+    private static LocalDateTime later(LocalDateTime a, LocalDateTime b) {
+        if (a == null) return b;
+        return b == null || !b.isAfter(a) ? a : b;
+    }
+
+    /** Checkpoint positions hold timestamps as epoch microseconds of the local date-time. */
+    private static long toMicros(LocalDateTime time) {
+        return time.toEpochSecond(ZoneOffset.UTC) * 1_000_000L + time.getNano() / 1000;
+    }
+
+    private static LocalDateTime fromMicros(long micros) {
+        return LocalDateTime.ofEpochSecond(Math.floorDiv(micros, 1_000_000L),
+                (int) Math.floorMod(micros, 1_000_000L) * 1000, ZoneOffset.UTC);
+    }
+
+    private void checkNoRotation() {
+        if (checkpointDao.find(VaultRotator.CHECKPOINT_NAME) != null) {
+            throw new IllegalStateException("A master password change is in progress; finish it before backing up.");
+        }
+    }
+}
@@ -0,0 +1,213 @@
+package com.doof.passwordmanager.service;
+
+import com.doof.passwordmanager.dao.AccountDao;
+import com.doof.passwordmanager.dao.CheckpointDao;
+import com.doof.passwordmanager.dao.DataKeyDao;
+import com.doof.passwordmanager.model.Account;
+import com.doof.passwordmanager.model.Checkpoint;
+import com.doof.passwordmanager.util.KdfParams;
+import com.doof.passwordmanager.util.PasswordEncryptor;
+import com.doof.passwordmanager.util.SecretBuffer;
+
+import javax.crypto.SecretKey;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Base64;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.Future;
+
+/**
+ * Moves a vault from one master key to another in two steps. First, rows still encrypted directly
+ * under the old master (enc_version 1 and 2) are converted to envelope rows under the old session's
+ * data keys. They are read in id order one chunk at a time, with the next chunk fetched while the
+ * current one is processed, so at most two chunks are in memory; each chunk is re-encrypted in
+ * parallel on the common fork-join pool and written in one transaction before the checkpoint
+ * advances to its last id. Second, every data key is rewrapped under the new master in a single
+ * transaction, so the cost of a rotation is O(data keys) once the vault is fully on envelope rows.
+ */
+class VaultRotator {
+
+    static final String CHECKPOINT_NAME = "vault-rotation";
+    private static final int MIN_ROWS_PER_TASK = 128;
+
+    private final AccountDao accountDao;
+    private final DataKeyDao dataKeyDao;
+    private final CheckpointDao checkpointDao;
+    private final int chunkSize;
+
+    VaultRotator(AccountDao accountDao, DataKeyDao dataKeyDao, CheckpointDao checkpointDao, int chunkSize) {
+        if (chunkSize <= 0) {
+            throw new IllegalArgumentException("chunkSize must be positive");
+        }
+        this.accountDao = accountDao;
+        this.dataKeyDao = dataKeyDao;
+        this.checkpointDao = checkpointDao;
+        this.chunkSize = chunkSize;
+    }
+
+    Pending findPending() {
+        Checkpoint c = checkpointDao.find(CHECKPOINT_NAME);
+        return c == null ? null : Pending.decode(c.getPayload(), c.getPosition());
+    }
+
+    void begin(Pending pending) {
+        checkpointDao.save(new Checkpoint(CHECKPOINT_NAME, 0, pending.encode()));
+    }
+
+    void finish() {
+        checkpointDao.delete(CHECKPOINT_NAME);
+    }
+
+    /**
+     * Converts the remaining direct rows after {@code pending.position} to envelope rows with
+     * {@code oldCipher}, then rewraps the data keys under {@code newMasterKey}. Returns the number
+     * of rows rewritten.
+     */
+    long run(Pending pending, RowCipher oldCipher, SecretKey newMasterKey) {
+        long rewrittenRows = 0;
+        int position = (int) pending.position;
+        String payload = pending.encode();
+
+        try (ExecutorService reader = Executors.newVirtualThreadPerTaskExecutor()) {
+            CompletableFuture<List<Account>> next = read(reader, position);
+            while (true) {
+                List<Account> chunk = join(next);
+                if (chunk.isEmpty()) break;
+                int lastId = chunk.get(chunk.size() - 1).getId();
+                boolean more = chunk.size() >= chunkSize;
+                next = more ? read(reader, lastId) : CompletableFuture.completedFuture(List.of());
+
+                List<Account> rewritten = reencrypt(chunk, oldCipher);
+                try {
+                    accountDao.upgradeEncryption(rewritten);
+                } finally {
+                    wipe(rewritten);
+                    wipe(chunk);
+                }
+                rewrittenRows += rewritten.size();
+                checkpointDao.save(new Checkpoint(CHECKPOINT_NAME, lastId, payload));
+                if (!more) break;
+            }
+        }
+
+        DataKeyRing.rewrapAll(dataKeyDao, oldCipher.getMasterKey(), newMasterKey);
+        return rewrittenRows;
+    }
+
+    private CompletableFuture<List<Account>> read(ExecutorService reader, int afterId) {
+        return CompletableFuture.supplyAsync(() -> accountDao.getAccountsBelowEncVersion(RowCipher.ENC_VERSION_ENVELOPE, afterId, chunkSize), reader);
+    }
+
+    private List<Account> reencrypt(List<Account> chunk, RowCipher cipher) {
+        Account[] out = new Account[chunk.size()];
+        int tasks = Math.max(1, Math.min(ForkJoinPool.getCommonPoolParallelism(), chunk.size() / MIN_ROWS_PER_TASK));
+        if (tasks == 1) {
+            for (int i = 0; i < chunk.size(); i++) out[i] = reencrypt(chunk.get(i), cipher);
+        } else {
+            int per = (chunk.size() + tasks - 1) / tasks;
+            List<Callable<Void>> work = new ArrayList<>(tasks);
+            for (int start = 0; start < chunk.size(); start += per) {
+                int from = start;
+                int to = Math.min(chunk.size(), start + per);
+                work.add(() -> {
+                    for (int i = from; i < to; i++) out[i] = reencrypt(chunk.get(i), cipher);
+                    return null;
+                });
+            }
+            try {
+                for (Future<Void> f : ForkJoinPool.commonPool().invokeAll(work)) {
+                    f.get();
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                wipe(Arrays.asList(out));
+                throw new RuntimeException("Interrupted while re-encrypting accounts", e);
+            } catch (ExecutionException e) {
+                wipe(Arrays.asList(out));
+                Throwable cause = e.getCause();
+                if (cause instanceof RuntimeException re) throw re;
+                throw new RuntimeException("Error re-encrypting accounts", cause);
+            }
+        }
+        return new ArrayList<>(Arrays.asList(out));
+    }
+
+    private static Account reencrypt(Account stored, RowCipher cipher) {
+        try (SecretBuffer plain = cipher.decrypt(stored)) {
+            byte[] iv = PasswordEncryptor.generateIV();
+            byte[] ciphertext = cipher.encrypt(plain, iv);
+            return new Account(stored.getId(), stored.getEmail(), stored.getWebsite(), ciphertext, iv,
+                    cipher.getWriteVersion(), stored.getCreatedAt(), stored.getUpdatedAt());
+        }
+    }
+
+    private static <T> T join(CompletableFuture<T> future) {
+        try {
+            return future.join();
+        } catch (CompletionException e) {
+            if (e.getCause() instanceof RuntimeException re) throw re;
+            throw e;
+        }
+    }
+
+    private static void wipe(List<Account> accounts) {
+        for (Account a : accounts) {
+            if (a == null) continue;
+            if (a.getPasswordEncrypted() != null) Arrays.fill(a.getPasswordEncrypted(), (byte) 0);
+            if (a.getIv() != null) Arrays.fill(a.getIv(), (byte) 0);
+        }
+    }
+
+    /**
+     * Target of a rotation that has begun but not finished: the new salt, KDF parameters and
+     * verifier, plus the last account id committed under the new key.
+     */
+    static final class Pending {
+        final byte[] salt;
+        final KdfParams params;
+        final byte[] verifier;
+        final long position;
+
+        Pending(byte[] salt, KdfParams params, byte[] verifier, long position) {
+            this.salt = salt;
+            this.params = params;
+            this.verifier = verifier;
+            this.position = position;
+        }
+
+        String encode() {
+            Base64.Encoder b64 = Base64.getEncoder();
+            return "salt=" + b64.encodeToString(salt) + "\n"
+                    + "verifier=" + b64.encodeToString(verifier) + "\n"
+                    + "kdf=" + params.toJson();
+        }
+
+        static Pending decode(String payload, long position) {
+            byte[] salt = null;
+            byte[] verifier = null;
+            KdfParams params = null;
+            for (String line : payload.split("\n")) {
+                int eq = line.indexOf('=');
+                if (eq < 0) continue;
+                String value = line.substring(eq + 1);
+                switch (line.substring(0, eq)) {
+                    case "salt" -> salt = Base64.getDecoder().decode(value);
+                    case "verifier" -> verifier = Base64.getDecoder().decode(value);
+                    case "kdf" -> params = KdfParams.parse(value);
+                    default -> { }
+                }
+            }
+            if (salt == null || verifier == null || params == null) {
+                throw new IllegalStateException("Corrupt vault rotation checkpoint");
+            }
+            return new Pending(salt, params, verifier, position);
+        }
+    }
+}
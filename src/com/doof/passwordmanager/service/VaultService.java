@@ -1,11 +1,20 @@
 package com.doof.passwordmanager.service;
 
+import com.doof.passwordmanager.dao.AccountDao;
+import com.doof.passwordmanager.dao.CheckpointDao;
+import com.doof.passwordmanager.dao.DataKeyDao;
 import com.doof.passwordmanager.dao.VaultMetadataDao;
 import com.doof.passwordmanager.model.VaultMetadata;
+import com.doof.passwordmanager.util.DerivedKeys;
+import com.doof.passwordmanager.util.KdfParams;
+import com.doof.passwordmanager.util.OffHeapSecretKey;
+import com.doof.passwordmanager.util.PasswordEncryptor;
 import com.doof.passwordmanager.util.PasswordHasher;
 
-import javax.crypto.SecretKey;
+import java.security.MessageDigest;
 import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
 import java.util.concurrent.Executors;
 import java.util.concurrent.ScheduledExecutorService;
 import java.util.concurrent.ScheduledFuture;
@@ -13,112 +22,316 @@ import java.util.concurrent.TimeUnit;
 
 class VaultService {
 
+    private static final int ROTATION_CHUNK_SIZE = Integer.getInteger("doof.vault.rotation.chunkSize", 1000);
+
     private final VaultMetadataDao metadataDao;
-    private volatile SecretKey sessionKey;
-    private VaultMetadata cachedMetadata;
+    private final DataKeyDao dataKeyDao;
+    private final VaultRotator rotator;
+    private volatile RowCipher rowCipher;
+    private volatile VaultMetadata cachedMetadata;
     private final long sessionTimeoutMs = 5 * 60 * 1000L;
     private final ScheduledExecutorService scheduler = Executors.newSingleThreadScheduledExecutor();
     private ScheduledFuture<?> autoLockTask;
+    private final List<Runnable> unlockListeners = new CopyOnWriteArrayList<>();
+    private final List<Runnable> lockListeners = new CopyOnWriteArrayList<>();
+    private volatile KdfParams newVaultKdfParams = KdfParams.defaults();
+    private volatile long newVaultKdfTargetMillis;
+    private volatile String warning;
 
-    VaultService(VaultMetadataDao metadataDao) {
+    VaultService(VaultMetadataDao metadataDao, AccountDao accountDao, CheckpointDao checkpointDao, DataKeyDao dataKeyDao) {
         this.metadataDao = metadataDao;
+        this.dataKeyDao = dataKeyDao;
+        this.rotator = new VaultRotator(accountDao, dataKeyDao, checkpointDao, ROTATION_CHUNK_SIZE);
+    }
+
+    void addUnlockListener(Runnable listener) {
+        unlockListeners.add(listener);
+    }
+
+    void addLockListener(Runnable listener) {
+        lockListeners.add(listener);
+    }
+
+    /**
+     * KDF settings used by the next createVault, typically from {@link KdfParams#calibrated(long)}.
+     * Existing vaults keep the cost stored in their own kdf_params.
+     */
+    void setNewVaultKdfParams(KdfParams params) {
+        if (params.getVersion() != KdfParams.CURRENT_VERSION) {
+            throw new IllegalArgumentException("New vaults must use KDF version " + KdfParams.CURRENT_VERSION);
+        }
+        this.newVaultKdfParams = params;
+    }
+
+    KdfParams getNewVaultKdfParams() {
+        return newVaultKdfParams;
+    }
+
+    /**
+     * When positive, createVault calibrates PBKDF2 on this machine for roughly this unlock time
+     * instead of using {@link #setNewVaultKdfParams}. Zero turns calibration off.
+     */
+    void setNewVaultKdfTargetMillis(long targetMillis) {
+        if (targetMillis < 0) {
+            throw new IllegalArgumentException("targetMillis must not be negative");
+        }
+        this.newVaultKdfTargetMillis = targetMillis;
+    }
+
+    /**
+     * Returns the last problem that did not stop the vault from opening, such as a failed in-place
+     * upgrade or a failing listener, or null. Cleared by the next create or unlock.
+     */
+    String getWarning() {
+        return warning;
     }
 
     boolean isVaultInitialized() {
-        VaultMetadata meta = metadataDao.find();
-        return meta != null;
+        return cachedMetadata != null || metadataDao.find() != null;
     }
 
     void createVault(char[] masterPassword) {
         if (isVaultInitialized()) {
             throw new RuntimeException("Vault already exists");
         }
+        warning = null;
 
         byte[] salt = null;
         byte[] masterHash = null;
+        DerivedKeys keys = null;
         try {
-            salt = PasswordHasher.generateSalt();
-            masterHash = PasswordHasher.hashPassword(masterPassword, salt);
-            String kdfParamsJson = PasswordHasher.getDefaultKdfParamsJson();
+            long target = newVaultKdfTargetMillis;
+            KdfParams params = target > 0 ? KdfParams.calibrated(target) : newVaultKdfParams;
+            salt = PasswordHasher.generateSalt(params.getSaltLength());
+            keys = PasswordHasher.deriveKeys(masterPassword, salt, params);
+            masterHash = keys.verifier();
+            String kdfParamsJson = params.toJson();
 
             VaultMetadata metadata = new VaultMetadata();
             metadata.setKdfSalt(salt);
             metadata.setKdfParams(kdfParamsJson);
             metadata.setMasterHash(masterHash);
-            metadata.setEncVersion(1);
+            metadata.setEncVersion(RowCipher.CURRENT_ENC_VERSION);
 
             metadataDao.insert(metadata);
 
-            SecretKey key = PasswordHasher.deriveKey(masterPassword, salt);
-            this.sessionKey = key;
-            this.cachedMetadata = metadata;
+            installRowCipher(newRowCipher(keys, metadata.getEncVersion()));
+            this.cachedMetadata = new VaultMetadata(metadata.getId(), salt.clone(), kdfParamsJson,
+                    masterHash.clone(), metadata.getEncVersion(), null, null);
+            fire(unlockListeners);
         } catch (Exception e) {
             throw new RuntimeException("Failed to create vault", e);
         } finally {
             PasswordHasher.wipe(masterPassword);
+            if (keys != null) keys.wipe();
             if (masterHash != null) Arrays.fill(masterHash, (byte) 0);
             if (salt != null) Arrays.fill(salt, (byte) 0);
         }
     }
 
+    /**
+     * Derives once from the master password and checks the stored verifier. An older vault is
+     * upgraded in place: its master_hash is replaced by the HKDF verifier and new rows are written
+     * under the current enc_version. Rows already written under versions 1 and 2 stay readable
+     * through the keys that come out of the same derivation.
+     */
     void unlockVault(char[] masterPassword) {
+        warning = null;
         VaultMetadata meta = metadataDao.find();
         if (meta == null) {
             throw new RuntimeException("Vault is not initialized");
         }
 
-        boolean verified;
+        DerivedKeys keys = null;
         try {
-            verified = PasswordHasher.verifyPassword(masterPassword, meta.getKdfSalt(), meta.getMasterHash());
-            if (!verified) {
+            checkNoInterruptedRotation(meta);
+            KdfParams params = KdfParams.parse(meta.getKdfParams());
+            keys = PasswordHasher.deriveKeys(masterPassword, meta.getKdfSalt(), params);
+            if (!keys.matches(meta.getMasterHash(), params.getVersion())) {
                 throw new RuntimeException("Invalid master password");
             }
 
-            SecretKey key = PasswordHasher.deriveKey(masterPassword, meta.getKdfSalt());
-            this.sessionKey = key;
+            if (params.getVersion() < KdfParams.CURRENT_VERSION || meta.getEncVersion() < RowCipher.CURRENT_ENC_VERSION) {
+                meta = upgradeMetadata(meta, params, keys);
+            }
+
+            installRowCipher(newRowCipher(keys, meta.getEncVersion()));
             this.cachedMetadata = meta;
 
             startAutoLockTimer();
+            fire(unlockListeners);
 
         } catch (RuntimeException e) {
             throw e;
         } catch (Exception e) {
             throw new RuntimeException("Failed to unlock vault", e);
         } finally {
+            if (keys != null) keys.wipe();
             PasswordHasher.wipe(masterPassword);
         }
     }
 
-    void lockVault() {
-        SecretKey key = this.sessionKey;
-        if (key != null) {
-            try {
-                byte[] encoded = key.getEncoded();
-                if (encoded != null) {
-                    Arrays.fill(encoded, (byte) 0);
-                }
-            } catch (Exception ignored) {
-            }
+    private VaultMetadata upgradeMetadata(VaultMetadata meta, KdfParams params, DerivedKeys keys) {
+        VaultMetadata upgraded = new VaultMetadata(meta.getId(), meta.getKdfSalt(),
+                params.withVersion(KdfParams.CURRENT_VERSION).toJson(), keys.verifier(),
+                RowCipher.CURRENT_ENC_VERSION, meta.getCreatedAt(), meta.getUpdatedAt());
+        try {
+            metadataDao.update(upgraded);
+            return upgraded;
+        } catch (RuntimeException e) {
+            warning = "Vault upgrade failed, staying on KDF version " + params.getVersion()
+                    + " and enc_version " + meta.getEncVersion() + ": " + e.getMessage();
+            return meta;
         }
-        this.sessionKey = null;
+    }
+
+    private RowCipher newRowCipher(DerivedKeys keys, int writeVersion) {
+        OffHeapSecretKey masterKey = keys.encryptionKey();
+        return new RowCipher(keys.legacyKey(), masterKey, new DataKeyRing(dataKeyDao, masterKey), writeVersion);
+    }
+
+    private void installRowCipher(RowCipher cipher) {
+        RowCipher previous = this.rowCipher;
+        this.rowCipher = cipher;
+        if (previous != null) previous.destroy();
+    }
+
+    /**
+     * Lock listeners run before the session keys are zeroed, so a background job can finish the
+     * batch it has in flight.
+     */
+    void lockVault() {
+        RowCipher cipher = this.rowCipher;
+        this.rowCipher = null;
         this.cachedMetadata = null;
         cancelAutoLockTimer();
+        fire(lockListeners);
+        if (cipher != null) cipher.destroy();
+        PasswordEncryptor.clearCipherPool();
     }
 
     boolean isUnlocked() {
-        return sessionKey != null;
+        return rowCipher != null;
     }
 
     VaultMetadata getMetadata() {
         return cachedMetadata;
     }
 
-    SecretKey getSessionKeyForServices() {
-        return sessionKey;
+    /**
+     * Keys of the current session, or null while locked.
+     */
+    RowCipher rowCipher() {
+        return rowCipher;
     }
 
+    /**
+     * Changes the master password. Rows still encrypted directly under the old master key are
+     * converted to envelope rows, then the data keys are rewrapped under the new master key. The
+     * vault is locked for the duration so nothing is written under the old key mid-way, and is left
+     * unlocked with the new password when done. A null {@code newKdfParamsJson} uses the new-vault
+     * settings.
+     *
+     * <p>Progress is checkpointed per chunk. If a rotation is interrupted the vault refuses to
+     * unlock until rotateVault is run again with the same two passwords, which resumes it.
+     */
     void rotateVault(char[] oldMasterPassword, char[] newMasterPassword, String newKdfParamsJson) {
-        throw new UnsupportedOperationException("Not implemented yet");
+        VaultMetadata meta = metadataDao.find();
+        if (meta == null) {
+            throw new RuntimeException("Vault is not initialized");
+        }
+
+        DerivedKeys oldKeys = null;
+        DerivedKeys newKeys = null;
+        byte[] newSalt = null;
+        try {
+            VaultRotator.Pending pending = rotator.findPending();
+            if (pending != null && MessageDigest.isEqual(pending.verifier, meta.getMasterHash())) {
+                // Metadata was written but the checkpoint outlived it; only the cleanup is left.
+                rotator.finish();
+                unlockVault(newMasterPassword);
+                return;
+            }
+
+            KdfParams oldParams = KdfParams.parse(meta.getKdfParams());
+            oldKeys = PasswordHasher.deriveKeys(oldMasterPassword, meta.getKdfSalt(), oldParams);
+            if (!oldKeys.matches(meta.getMasterHash(), oldParams.getVersion())) {
+                throw new RuntimeException("Invalid master password");
+            }
+
+            KdfParams newParams;
+            if (pending != null) {
+                newParams = pending.params;
+                newSalt = pending.salt.clone();
+                newKeys = PasswordHasher.deriveKeys(newMasterPassword, newSalt, newParams);
+                if (!MessageDigest.isEqual(newKeys.verifier(), pending.verifier)) {
+                    throw new RuntimeException("New master password does not match the interrupted change");
+                }
+            } else {
+                if (newKdfParamsJson != null) {
+                    newParams = KdfParams.parse(newKdfParamsJson).withVersion(KdfParams.CURRENT_VERSION);
+                } else {
+                    long target = newVaultKdfTargetMillis;
+                    newParams = target > 0 ? KdfParams.calibrated(target) : newVaultKdfParams;
+                }
+                newSalt = PasswordHasher.generateSalt(newParams.getSaltLength());
+                newKeys = PasswordHasher.deriveKeys(newMasterPassword, newSalt, newParams);
+                pending = new VaultRotator.Pending(newSalt.clone(), newParams, newKeys.verifier(), 0);
+                rotator.begin(pending);
+            }
+
+            lockVault();
+
+            RowCipher newCipher = newRowCipher(newKeys, RowCipher.ENC_VERSION_ENVELOPE);
+            RowCipher oldCipher = newRowCipher(oldKeys, RowCipher.ENC_VERSION_ENVELOPE);
+            try {
+                rotator.run(pending, oldCipher, newCipher.getMasterKey());
+
+                VaultMetadata rotated = new VaultMetadata(meta.getId(), newSalt.clone(), newParams.toJson(),
+                        newKeys.verifier(), RowCipher.ENC_VERSION_ENVELOPE, meta.getCreatedAt(), meta.getUpdatedAt());
+                metadataDao.update(rotated);
+                rotator.finish();
+
+                installRowCipher(newCipher);
+                newCipher = null;
+                this.cachedMetadata = rotated;
+            } finally {
+                oldCipher.destroy();
+                if (newCipher != null) newCipher.destroy();
+            }
+            startAutoLockTimer();
+            fire(unlockListeners);
+        } catch (RuntimeException e) {
+            throw e;
+        } catch (Exception e) {
+            throw new RuntimeException("Failed to change master password", e);
+        } finally {
+            if (oldKeys != null) oldKeys.wipe();
+            if (newKeys != null) newKeys.wipe();
+            if (newSalt != null) Arrays.fill(newSalt, (byte) 0);
+            PasswordHasher.wipe(oldMasterPassword);
+            PasswordHasher.wipe(newMasterPassword);
+        }
+    }
+
+    private void checkNoInterruptedRotation(VaultMetadata meta) {
+        VaultRotator.Pending pending = rotator.findPending();
+        if (pending == null) return;
+        if (MessageDigest.isEqual(pending.verifier, meta.getMasterHash())) {
+            rotator.finish();
+            return;
+        }
+        throw new RuntimeException("A master password change was interrupted; run it again with the same old and new passwords to finish.");
+    }
+
+    private void fire(List<Runnable> listeners) {
+        for (Runnable listener : listeners) {
+            try {
+                listener.run();
+            } catch (RuntimeException e) {
+                warning = "Vault listener failed: " + e.getMessage();
+            }
+        }
     }
 
     private synchronized void startAutoLockTimer() {
@@ -0,0 +1,20 @@
+package com.doof.passwordmanager.store;
+
+/**
+ * When {@link VaultStore} forces appended records to disk. Every policy survives a crash of the
+ * process, since the mapped pages are already in the OS page cache; they differ in what an OS crash
+ * or power loss can take with it.
+ */
+public enum FsyncPolicy {
+    /** Each write forces its own record before returning, holding the store's write lock. */
+    ALWAYS,
+    /**
+     * Each write is durable before it returns, but writers that arrive while a force is running are
+     * covered together by the next one, so concurrent writers share the cost of a single flush.
+     */
+    GROUP,
+    /** Writes return once applied; a background thread forces the log at a fixed interval. */
+    INTERVAL,
+    /** Nothing is forced until the store is closed or {@link VaultStore#sync()} is called. */
+    NEVER
+}
@@ -0,0 +1,98 @@
+package com.doof.passwordmanager.store;
+
+import java.lang.foreign.MemorySegment;
+import java.lang.foreign.ValueLayout;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.Arrays;
+
+/**
+ * Growable big-endian encoder for the body of one vault file record. Each entry is framed as
+ * {@code [int dataLength][byte type][data]}; the encodings match VaultStore's reader.
+ */
+final class RecordBuffer {
+
+    private byte[] bytes = new byte[256];
+    private int size;
+    private int entryStart = -1;
+
+    void beginEntry(byte type) {
+        ensure(5);
+        entryStart = size;
+        size += 4;
+        bytes[size++] = type;
+    }
+
+    void endEntry() {
+        writeInt(entryStart, size - entryStart - 5);
+        entryStart = -1;
+    }
+
+    void putInt(int v) {
+        ensure(4);
+        writeInt(size, v);
+        size += 4;
+    }
+
+    void putLong(long v) {
+        putInt((int) (v >>> 32));
+        putInt((int) v);
+    }
+
+    void putBytes(byte[] v) {
+        if (v == null) {
+            putInt(-1);
+            return;
+        }
+        putInt(v.length);
+        ensure(v.length);
+        System.arraycopy(v, 0, bytes, size, v.length);
+        size += v.length;
+    }
+
+    void putString(String v) {
+        putBytes(v == null ? null : v.getBytes(StandardCharsets.UTF_8));
+    }
+
+    void putTime(LocalDateTime v) {
+        if (v == null) {
+            putLong(Long.MIN_VALUE);
+            return;
+        }
+        putLong(v.toEpochSecond(ZoneOffset.UTC) * 1_000_000L + v.getNano() / 1000);
+    }
+
+    /** Copies an already framed entry verbatim, as compaction does with live rows. */
+    void putEntry(MemorySegment source, long offset, int length) {
+        ensure(length);
+        MemorySegment.copy(source, ValueLayout.JAVA_BYTE, offset, bytes, size, length);
+        size += length;
+    }
+
+    void clear() {
+        size = 0;
+        entryStart = -1;
+    }
+
+    byte[] bytes() {
+        return bytes;
+    }
+
+    int size() {
+        return size;
+    }
+
+    private void writeInt(int at, int v) {
+        bytes[at] = (byte) (v >>> 24);
+        bytes[at + 1] = (byte) (v >>> 16);
+        bytes[at + 2] = (byte) (v >>> 8);
+        bytes[at + 3] = (byte) v;
+    }
+
+    private void ensure(int extra) {
+        if (size + extra > bytes.length) {
+            bytes = Arrays.copyOf(bytes, Math.max(bytes.length * 2, size + extra));
+        }
+    }
+}
@@ -0,0 +1,1552 @@
+package com.doof.passwordmanager.store;
+
+import com.doof.passwordmanager.model.Account;
+import com.doof.passwordmanager.model.AccountTombstone;
+import com.doof.passwordmanager.model.Checkpoint;
+import com.doof.passwordmanager.model.DataKey;
+import com.doof.passwordmanager.model.VaultMetadata;
+import com.doof.passwordmanager.util.ValidationException;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.lang.foreign.Arena;
+import java.lang.foreign.MemorySegment;
+import java.lang.foreign.ValueLayout;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileLock;
+import java.nio.channels.OverlappingFileLockException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.function.Consumer;
+import java.util.zip.CRC32C;
+
+/**
+ * Single-file vault store for desktop use without a database server. The file is a write-ahead
+ * log: an append-only sequence of checksummed records, each holding one or more entries that are
+ * applied atomically; a batch of rows is one record, and an update or delete appends a new entry
+ * keyed by account id instead of rewriting the old one. The file is memory-mapped, and opening it
+ * replays every record to rebuild the in-memory indexes. Account rows are not kept on the heap; the
+ * id index maps each live account to the offset of its latest entry, and reads decode the row
+ * straight from the mapping.
+ *
+ * <p>When appended records reach the disk is set by the {@link FsyncPolicy}. Superseded entries
+ * and tombstones are reclaimed by compaction, which a background thread starts once enough of the
+ * file is garbage: the live entries are copied into a fresh snapshot file while writers carry on,
+ * the records appended in the meantime are copied after them, and the snapshot is renamed over the
+ * vault file. A crash at any point leaves either the old or the new file in place, and replaying
+ * its log recovers every record that was complete.
+ *
+ * <p>Deletes append a tombstone carrying the deletion time, which compaction keeps, so incremental
+ * backups can pick deletes up the way the account_deletions table provides them in MySQL.
+ *
+ * <p>Secrets are stored exactly as in MySQL: passwords and data keys are AES-GCM ciphertext, the
+ * vault metadata holds only the salt, KDF parameters and verifier. Email and website are plain
+ * text, as they are in the accounts table. Records carry a CRC32C, so a torn write at the tail is
+ * detected on the next open and discarded.
+ */
+public class VaultStore implements AutoCloseable {
+
+    private static final long MAGIC = 0x444F4F465641554CL; // "DOOFVAUL"
+    // Version 2 added ACCOUNT_TOMBSTONE; version 1 files are upgraded in place on open.
+    private static final int FORMAT_VERSION = 2;
+    private static final int FILE_HEADER_BYTES = 16;
+    private static final int RECORD_HEADER_BYTES = 8;
+    private static final int ENTRY_HEADER_BYTES = 5;
+    private static final long MAP_ALIGNMENT = 1L << 20;
+    private static final long MAX_MAP_GROWTH = 256L << 20;
+    private static final int STREAM_CHUNK = 256;
+    private static final int COMPACTION_CHUNK = 1024;
+    private static final int COMPACTION_RECORD_BYTES = 1 << 20;
+    private static final long COMPACTION_CHECK_MS = 10_000;
+    private static final long MAX_COMPACTION_BACKOFF_MS = 60 * 60 * 1000L;
+    private static final int COPY_BUFFER_BYTES = 64 * 1024;
+
+    // Fixed offsets inside an ACCOUNT_PUT entry: id, enc_version, created_at, updated_at, then
+    // the variable-length email, website, ciphertext and IV.
+    private static final int ACCOUNT_ENC_VERSION_OFFSET = 4;
+    private static final int ACCOUNT_CREATED_OFFSET = 8;
+    private static final int ACCOUNT_UPDATED_OFFSET = 16;
+    private static final int ACCOUNT_EMAIL_OFFSET = 24;
+
+    private static final byte ACCOUNT_PUT = 1;
+    private static final byte ACCOUNT_DELETE = 2;
+    private static final byte METADATA_PUT = 3;
+    private static final byte CHECKPOINT_PUT = 4;
+    private static final byte CHECKPOINT_DELETE = 5;
+    private static final byte DATA_KEY_PUT = 6;
+    private static final byte ACCOUNT_TOMBSTONE = 7;
+
+    private static final ValueLayout.OfInt INT = ValueLayout.JAVA_INT_UNALIGNED.withOrder(ByteOrder.BIG_ENDIAN);
+    private static final ValueLayout.OfLong LONG = ValueLayout.JAVA_LONG_UNALIGNED.withOrder(ByteOrder.BIG_ENDIAN);
+
+    private static final String DUPLICATE_MESSAGE = "An account with this email and website already exists.";
+
+    private final Path path;
+    private final FsyncPolicy fsyncPolicy;
+    private final ReentrantReadWriteLock lock = new ReentrantReadWriteLock();
+
+    // Replaced when a compaction swaps in the snapshot file; guarded by the write lock.
+    private FileChannel channel;
+    private FileLock fileLock;
+    private Arena mapArena;
+    private MemorySegment map;
+    private long appendPosition;
+    private boolean closed;
+    private volatile boolean closing;
+
+    // Log sequence numbers count appended bytes and keep growing across compactions, so a writer
+    // waiting for its record to be forced is not confused by the file shrinking underneath it.
+    // The LSN of a file position is lsnBase + position.
+    private long lsnBase;
+    private boolean appendedUnderLock;
+    private final ReentrantLock syncLock = new ReentrantLock();
+    private final Condition synced = syncLock.newCondition();
+    private boolean syncing;
+    private long durableLsn;
+
+    private final ScheduledExecutorService maintenance;
+    private final ReentrantLock compactionLock = new ReentrantLock();
+    private volatile long compactionMinBytes = 4L << 20;
+    private volatile double compactionGarbageRatio = 0.5;
+
+    private long liveAccountBytes;
+    private long appendedRecords;
+    private final LongAdder syncCount = new LongAdder();
+    private long compactionCount;
+    private long reclaimedBytes;
+    private long lastCompactionNanos;
+    private final LongAdder backgroundFailures = new LongAdder();
+    private volatile String syncError;
+    private volatile String compactionError;
+    // Touched only by the maintenance thread.
+    private int compactionFailuresInRow;
+    private long nextCompactionAttempt;
+
+    private final TreeMap<Integer, Long> accounts = new TreeMap<>();
+    private final Map<String, Integer> idsByKey = new HashMap<>();
+    private int nextAccountId = 1;
+    private final List<AccountTombstone> deletions = new ArrayList<>();
+    private VaultMetadata metadata;
+    private final Map<String, Checkpoint> checkpoints = new HashMap<>();
+    private final TreeMap<Integer, DataKey> dataKeys = new TreeMap<>();
+    private int nextDataKeyId = 1;
+
+    private VaultStore(Path path, FileChannel channel, FileLock fileLock, FsyncPolicy fsyncPolicy) {
+        this.path = path;
+        this.channel = channel;
+        this.fileLock = fileLock;
+        this.fsyncPolicy = fsyncPolicy;
+        this.maintenance = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread t = new Thread(r, "vault-store-maintenance");
+            t.setDaemon(true);
+            return t;
+        });
+    }
+
+    public static VaultStore open(Path path) {
+        return open(path, FsyncPolicy.GROUP, 1000);
+    }
+
+    /**
+     * Opens the vault file, creating it if needed, and replays its log. The file is locked for the
+     * lifetime of the store so a second process cannot append to it concurrently. syncIntervalMs
+     * only applies to {@link FsyncPolicy#INTERVAL}.
+     */
+    public static VaultStore open(Path path, FsyncPolicy fsyncPolicy, long syncIntervalMs) {
+        FileChannel channel = null;
+        try {
+            Path parent = path.toAbsolutePath().getParent();
+            if (parent != null) Files.createDirectories(parent);
+            channel = FileChannel.open(path, StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE);
+            FileLock fileLock;
+            try {
+                fileLock = channel.tryLock();
+            } catch (OverlappingFileLockException e) {
+                fileLock = null;
+            }
+            if (fileLock == null) {
+                throw new IllegalStateException("Vault file " + path + " is already open.");
+            }
+            // Left behind by a compaction that did not finish; the vault file itself is intact.
+            Files.deleteIfExists(compactionPath(path));
+            VaultStore store = new VaultStore(path, channel, fileLock, fsyncPolicy);
+            store.load(channel.size());
+            store.startMaintenance(syncIntervalMs);
+            return store;
+        } catch (IOException | UncheckedIOException e) {
+            closeQuietly(channel);
+            throw new RuntimeException("Error opening vault file " + path, e);
+        } catch (RuntimeException e) {
+            closeQuietly(channel);
+            throw e;
+        }
+    }
+
+    public Path getPath() {
+        return path;
+    }
+
+    public void addAccount(Account account) {
+        addAccounts(List.of(account));
+    }
+
+    /**
+     * Inserts the batch as one record: either every row is stored or none is.
+     */
+    public int[] addAccounts(List<Account> batch) {
+        int[] ids = new int[batch.size()];
+        if (batch.isEmpty()) return ids;
+        lock.writeLock().lock();
+        try {
+            checkOpen();
+            Set<String> keys = new HashSet<>();
+            for (Account a : batch) {
+                String key = keyOf(a.getEmail(), a.getWebsite());
+                if (idsByKey.containsKey(key) || !keys.add(key)) {
+                    throw new ValidationException(DUPLICATE_MESSAGE);
+                }
+            }
+            LocalDateTime now = now();
+            RecordBuffer record = new RecordBuffer();
+            for (int i = 0; i < batch.size(); i++) {
+                Account a = batch.get(i);
+                ids[i] = nextAccountId + i;
+                writeAccount(record, ids[i], a.getEmail(), a.getWebsite(), a.getPasswordEncrypted(), a.getIv(),
+                        a.getEncVersion(), now, now);
+            }
+            appendAndApply(record);
+            for (int i = 0; i < ids.length; i++) {
+                Account a = batch.get(i);
+                a.setId(ids[i]);
+                a.setCreatedAt(now);
+                a.setUpdatedAt(now);
+            }
+        } finally {
+            unlockWrite();
+        }
+        return ids;
+    }
+
+    public Account getAccountById(int id) {
+        lock.readLock().lock();
+        try {
+            checkOpen();
+            Long offset = accounts.get(id);
+            return offset == null ? null : readAccount(offset);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Case-insensitive, like the unique key under the accounts table's collation.
+     */
+    public Account findByEmailAndWebsite(String email, String website) {
+        lock.readLock().lock();
+        try {
+            checkOpen();
+            Integer id = idsByKey.get(keyOf(email, website));
+            return id == null ? null : readAccount(accounts.get(id));
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    public List<Account> getAccountsAfter(int afterId, int limit) {
+        lock.readLock().lock();
+        try {
+            checkOpen();
+            List<Account> page = new ArrayList<>(Math.min(limit, 1024));
+            for (long offset : accounts.tailMap(afterId, false).values()) {
+                if (page.size() >= limit) break;
+                page.add(readAccount(offset));
+            }
+            return page;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    public List<Account> getAccountsBelowEncVersion(int encVersion, int afterId, int limit) {
+        lock.readLock().lock();
+        try {
+            checkOpen();
+            List<Account> page = new ArrayList<>(Math.min(limit, 1024));
+            for (long offset : accounts.tailMap(afterId, false).values()) {
+                if (page.size() >= limit) break;
+                if (map.get(INT, offset + ACCOUNT_ENC_VERSION_OFFSET) < encVersion) page.add(readAccount(offset));
+            }
+            return page;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    public List<Account> getAllAccounts() {
+        List<Account> all = new ArrayList<>();
+        forEachAccount(all::add);
+        return all;
+    }
+
+    /**
+     * Streams accounts in id order. Rows are read in chunks and {@code action} runs without the
+     * store lock held, so it may write to the store.
+     */
+    public void forEachAccount(Consumer<Account> action) {
+        int afterId = 0;
+        while (true) {
+            List<Account> chunk = getAccountsAfter(afterId, STREAM_CHUNK);
+            for (Account a : chunk) action.accept(a);
+            if (chunk.size() < STREAM_CHUNK) return;
+            afterId = chunk.get(chunk.size() - 1).getId();
+        }
+    }
+
+    /**
+     * Streams, in id order, the accounts whose updated_at is at or after {@code since}. Like
+     * {@link #forEachAccount}, {@code action} runs without the store lock held.
+     */
+    public void forEachAccountUpdatedSince(LocalDateTime since, Consumer<Account> action) {
+        long sinceMicros = micros(since);
+        int afterId = 0;
+        while (true) {
+            List<Account> chunk = new ArrayList<>(STREAM_CHUNK);
+            boolean more = false;
+            lock.readLock().lock();
+            try {
+                checkOpen();
+                for (Map.Entry<Integer, Long> e : accounts.tailMap(afterId, false).entrySet()) {
+                    if (chunk.size() == STREAM_CHUNK) {
+                        more = true;
+                        break;
+                    }
+                    afterId = e.getKey();
+                    long offset = e.getValue();
+                    if (map.get(LONG, offset + ACCOUNT_UPDATED_OFFSET) >= sinceMicros) chunk.add(readAccount(offset));
+                }
+            } finally {
+                lock.readLock().unlock();
+            }
+            for (Account a : chunk) action.accept(a);
+            if (!more) return;
+        }
+    }
+
+    /**
+     * Streams the tombstones of accounts deleted at or after {@code since}, in deletion order.
+     */
+    public void forEachDeletionSince(LocalDateTime since, Consumer<AccountTombstone> action) {
+        List<AccountTombstone> found = new ArrayList<>();
+        lock.readLock().lock();
+        try {
+            checkOpen();
+            for (AccountTombstone t : deletions) {
+                if (!t.getDeletedAt().isBefore(since)) found.add(new AccountTombstone(t.getAccountId(), t.getDeletedAt()));
+            }
+        } finally {
+            lock.readLock().unlock();
+        }
+        found.forEach(action);
+    }
+
+    /**
+     * Inserts rows under the ids and timestamps they carry, as one record. A missing timestamp is
+     * set to now.
+     */
+    public void importAccounts(List<Account> batch) {
+        if (batch.isEmpty()) return;
+        lock.writeLock().lock();
+        try {
+            checkOpen();
+            Set<String> keys = new HashSet<>();
+            Set<Integer> ids = new HashSet<>();
+            for (Account a : batch) {
+                if (a.getId() <= 0 || accounts.containsKey(a.getId()) || !ids.add(a.getId())) {
+                    throw new RuntimeException("Import failed: account id " + a.getId() + " is invalid or already in use.");
+                }
+                String key = keyOf(a.getEmail(), a.getWebsite());
+                if (idsByKey.containsKey(key) || !keys.add(key)) {
+                    throw new ValidationException(DUPLICATE_MESSAGE);
+                }
+            }
+            LocalDateTime now = now();
+            RecordBuffer record = new RecordBuffer();
+            for (Account a : batch) {
+                LocalDateTime created = a.getCreatedAt() == null ? now : a.getCreatedAt();
+                writeAccount(record, a.getId(), a.getEmail(), a.getWebsite(), a.getPasswordEncrypted(), a.getIv(),
+                        a.getEncVersion(), created, a.getUpdatedAt() == null ? now : a.getUpdatedAt());
+            }
+            appendAndApply(record);
+        } finally {
+            unlockWrite();
+        }
+    }
+
+    /**
+     * Deletes the listed accounts that exist, as one record and without tombstones.
+     */
+    public void removeAccounts(int[] ids) {
+        if (ids.length == 0) return;
+        lock.writeLock().lock();
+        try {
+            checkOpen();
+            RecordBuffer record = new RecordBuffer();
+            for (int id : ids) {
+                if (!accounts.containsKey(id)) continue;
+                record.beginEntry(ACCOUNT_DELETE);
+                record.putInt(id);
+                record.endEntry();
+            }
+            if (record.size() > 0) appendAndApply(record);
+        } finally {
+            unlockWrite();
+        }
+    }
+
+    public void updateAccount(Account account) {
+        updateAccounts(List.of(account));
+    }
+
+    public void updateAccounts(List<Account> batch) {
+        if (batch.isEmpty()) return;
+        lock.writeLock().lock();
+        try {
+            checkOpen();
+            Map<String, Integer> claimed = new HashMap<>();
+            for (Account a : batch) {
+                if (!accounts.containsKey(a.getId())) {
+                    throw new RuntimeException("Update failed: account with id " + a.getId() + " does not exist.");
+                }
+                String key = keyOf(a.getEmail(), a.getWebsite());
+                Integer owner = idsByKey.get(key);
+                Integer batchOwner = claimed.put(key, a.getId());
+                if ((owner != null && owner != a.getId()) || (batchOwner != null && batchOwner != a.getId())) {
+                    throw new ValidationException(DUPLICATE_MESSAGE);
+                }
+            }
+            LocalDateTime now = now();
+            RecordBuffer record = new RecordBuffer();
+            LocalDateTime[] created = new LocalDateTime[batch.size()];
+            for (int i = 0; i < batch.size(); i++) {
+                Account a = batch.get(i);
+                long offset = accounts.get(a.getId());
+                created[i] = readTime(offset + ACCOUNT_CREATED_OFFSET);
+                writeAccount(record, a.getId(), a.getEmail(), a.getWebsite(), a.getPasswordEncrypted(), a.getIv(),
+                        a.getEncVersion(), created[i], now);
+            }
+            appendAndApply(record);
+            for (int i = 0; i < batch.size(); i++) {
+                batch.get(i).setCreatedAt(created[i]);
+                batch.get(i).setUpdatedAt(now);
+            }
+        } finally {
+            unlockWrite();
+        }
+    }
+
+    /**
+     * Rewrites ciphertext, IV and enc_version only for rows whose stored enc_version is still lower
+     * than the new one, and returns how many were upgraded.
+     */
+    public int upgradeEncryption(List<Account> batch) {
+        if (batch.isEmpty()) return 0;
+        lock.writeLock().lock();
+        try {
+            checkOpen();
+            LocalDateTime now = now();
+            RecordBuffer record = new RecordBuffer();
+            int upgraded = 0;
+            for (Account a : batch) {
+                Long offset = accounts.get(a.getId());
+                if (offset == null || map.get(INT, offset + ACCOUNT_ENC_VERSION_OFFSET) >= a.getEncVersion()) continue;
+                Account stored = readAccount(offset);
+                writeAccount(record, a.getId(), stored.getEmail(), stored.getWebsite(), a.getPasswordEncrypted(),
+                        a.getIv(), a.getEncVersion(), stored.getCreatedAt(), now);
+                upgraded++;
+            }
+            if (upgraded > 0) appendAndApply(record);
+            return upgraded;
+        } finally {
+            unlockWrite();
+        }
+    }
+
+    public void deleteAccount(int id) {
+        lock.writeLock().lock();
+        try {
+            checkOpen();
+            if (!accounts.containsKey(id)) {
+                throw new RuntimeException("Delete failed: account with id " + id + " does not exist.");
+            }
+            RecordBuffer record = new RecordBuffer();
+            writeTombstone(record, id, now());
+            appendAndApply(record);
+        } finally {
+            unlockWrite();
+        }
+    }
+
+    /**
+     * Substring match on email or website, ignoring case, in id order (the LIKE '%q%' query).
+     */
+    public List<Account> search(String query, int limit, int offset) {
+        return scanMatches(query, 0, offset, limit);
+    }
+
+    public List<Account> searchAfter(String query, int afterId, int limit) {
+        return scanMatches(query, afterId, 0, limit);
+    }
+
+    public int getAccountCount() {
+        lock.readLock().lock();
+        try {
+            return accounts.size();
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    public void insertMetadata(VaultMetadata m) {
+        lock.writeLock().lock();
+        try {
+            checkOpen();
+            if (metadata != null) {
+                throw new RuntimeException("Inserting vault metadata failed, the vault already exists.");
+            }
+            LocalDateTime now = now();
+            appendAndApply(metadataRecord(m, now, now));
+        } finally {
+            unlockWrite();
+        }
+    }
+
+    public VaultMetadata findMetadata() {
+        lock.readLock().lock();
+        try {
+            checkOpen();
+            return metadata == null ? null : copyOf(metadata);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    public void updateMetadata(VaultMetadata m) {
+        lock.writeLock().lock();
+        try {
+            checkOpen();
+            if (metadata == null) {
+                throw new RuntimeException("Updating vault metadata failed, no rows affected.");
+            }
+            appendAndApply(metadataRecord(m, metadata.getCreatedAt(), now()));
+        } finally {
+            unlockWrite();
+        }
+    }
+
+    public Checkpoint findCheckpoint(String name) {
+        lock.readLock().lock();
+        try {
+            checkOpen();
+            Checkpoint c = checkpoints.get(name);
+            return c == null ? null : copyOf(c);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    public void saveCheckpoint(Checkpoint checkpoint) {
+        lock.writeLock().lock();
+        try {
+            checkOpen();
+            RecordBuffer record = new RecordBuffer();
+            writeCheckpoint(record, checkpoint.getName(), checkpoint.getPosition(), checkpoint.getPayload(), now());
+            appendAndApply(record);
+        } finally {
+            unlockWrite();
+        }
+    }
+
+    public void deleteCheckpoint(String name) {
+        lock.writeLock().lock();
+        try {
+            checkOpen();
+            if (!checkpoints.containsKey(name)) return;
+            RecordBuffer record = new RecordBuffer();
+            record.beginEntry(CHECKPOINT_DELETE);
+            record.putString(name);
+            record.endEntry();
+            appendAndApply(record);
+        } finally {
+            unlockWrite();
+        }
+    }
+
+    public void insertDataKey(DataKey dataKey) {
+        int id;
+        lock.writeLock().lock();
+        try {
+            checkOpen();
+            id = nextDataKeyId;
+            RecordBuffer record = new RecordBuffer();
+            writeDataKey(record, id, dataKey.getWrappedKey(), dataKey.getIv(), now());
+            appendAndApply(record);
+        } finally {
+            unlockWrite();
+        }
+        dataKey.setId(id);
+    }
+
+    public DataKey findDataKey(int id) {
+        lock.readLock().lock();
+        try {
+            checkOpen();
+            DataKey k = dataKeys.get(id);
+            return k == null ? null : copyOf(k);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    public DataKey findLatestDataKey() {
+        lock.readLock().lock();
+        try {
+            checkOpen();
+            Map.Entry<Integer, DataKey> last = dataKeys.lastEntry();
+            return last == null ? null : copyOf(last.getValue());
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    public List<DataKey> findAllDataKeys() {
+        lock.readLock().lock();
+        try {
+            checkOpen();
+            List<DataKey> all = new ArrayList<>(dataKeys.size());
+            for (DataKey k : dataKeys.values()) all.add(copyOf(k));
+            return all;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Rewrites the wrapped key and IV of every listed data key in one record.
+     */
+    public void updateDataKeys(List<DataKey> batch) {
+        if (batch.isEmpty()) return;
+        lock.writeLock().lock();
+        try {
+            checkOpen();
+            RecordBuffer record = new RecordBuffer();
+            for (DataKey k : batch) {
+                DataKey stored = dataKeys.get(k.getId());
+                if (stored == null) {
+                    throw new RuntimeException("Update failed: data key with id " + k.getId() + " does not exist.");
+                }
+                writeDataKey(record, k.getId(), k.getWrappedKey(), k.getIv(), stored.getCreatedAt());
+            }
+            appendAndApply(record);
+        } finally {
+            unlockWrite();
+        }
+    }
+
+    /**
+     * Inserts data keys under the ids they carry, as one record.
+     */
+    public void importDataKeys(List<DataKey> batch) {
+        if (batch.isEmpty()) return;
+        lock.writeLock().lock();
+        try {
+            checkOpen();
+            Set<Integer> ids = new HashSet<>();
+            for (DataKey k : batch) {
+                if (k.getId() <= 0 || dataKeys.containsKey(k.getId()) || !ids.add(k.getId())) {
+                    throw new RuntimeException("Import failed: data key id " + k.getId() + " is invalid or already in use.");
+                }
+            }
+            LocalDateTime now = now();
+            RecordBuffer record = new RecordBuffer();
+            for (DataKey k : batch) {
+                writeDataKey(record, k.getId(), k.getWrappedKey(), k.getIv(),
+                        k.getCreatedAt() == null ? now : k.getCreatedAt());
+            }
+            appendAndApply(record);
+        } finally {
+            unlockWrite();
+        }
+    }
+
+    /**
+     * Forces everything appended so far to disk, whatever the fsync policy.
+     */
+    public void sync() {
+        long lsn;
+        lock.readLock().lock();
+        try {
+            checkOpen();
+            lsn = lsnBase + appendPosition;
+        } finally {
+            lock.readLock().unlock();
+        }
+        awaitDurable(lsn);
+    }
+
+    /**
+     * Starts background compaction once the file is at least minFileBytes long and at least
+     * garbageRatio of it is superseded entries. Long.MAX_VALUE turns it off.
+     */
+    public void setCompactionThreshold(long minFileBytes, double garbageRatio) {
+        if (garbageRatio <= 0 || garbageRatio >= 1) {
+            throw new IllegalArgumentException("garbageRatio must be between 0 and 1");
+        }
+        this.compactionMinBytes = minFileBytes;
+        this.compactionGarbageRatio = garbageRatio;
+    }
+
+    /**
+     * Rewrites the live entries into a fresh file and swaps it in. Readers and writers are only
+     * blocked while the records appended during the copy are carried over. Returns false if the
+     * store was closed before the compaction finished.
+     */
+    public boolean compact() {
+        compactionLock.lock();
+        try {
+            return compactLocked();
+        } finally {
+            compactionLock.unlock();
+        }
+    }
+
+    public VaultStoreStats getStats() {
+        lock.readLock().lock();
+        try {
+            return new VaultStoreStats(fsyncPolicy, appendPosition - FILE_HEADER_BYTES, liveBytes(),
+                    accounts.size(), appendedRecords, syncCount.sum(), compactionCount, reclaimedBytes,
+                    lastCompactionNanos, backgroundFailures.sum(), getBackgroundError());
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Waits for a running compaction, then unmaps the file and trims the unused space the mapping
+     * reserved past the last record.
+     */
+    @Override
+    public void close() {
+        closing = true;
+        maintenance.shutdown();
+        compactionLock.lock();
+        lock.writeLock().lock();
+        try {
+            if (closed) return;
+            closed = true;
+            if (mapArena != null) {
+                map.asSlice(0, appendPosition).force();
+                mapArena.close();
+                mapArena = null;
+                map = null;
+            }
+            try {
+                channel.truncate(appendPosition);
+                channel.force(true);
+            } catch (IOException e) {
+                throw new RuntimeException("Error closing vault file " + path, e);
+            } finally {
+                releaseQuietly(fileLock);
+                closeQuietly(channel);
+            }
+        } finally {
+            lock.writeLock().unlock();
+            compactionLock.unlock();
+        }
+    }
+
+    private void load(long fileSize) throws IOException {
+        if (fileSize == 0) {
+            ensureMapped(FILE_HEADER_BYTES);
+            map.set(LONG, 0, MAGIC);
+            map.set(INT, 8, FORMAT_VERSION);
+            map.asSlice(0, FILE_HEADER_BYTES).force();
+            appendPosition = FILE_HEADER_BYTES;
+            durableLsn = appendPosition;
+            return;
+        }
+        if (fileSize < FILE_HEADER_BYTES) {
+            throw new IOException("Not a vault file: " + path);
+        }
+        ensureMapped(fileSize);
+        if (map.get(LONG, 0) != MAGIC) {
+            throw new IOException("Not a vault file: " + path);
+        }
+        int version = map.get(INT, 8);
+        if (version != 1 && version != FORMAT_VERSION) {
+            throw new IOException("Unsupported vault file version " + version + ": " + path);
+        }
+        if (version != FORMAT_VERSION) {
+            // Tombstones are about to be written; an older build must refuse the file, not misread it.
+            map.set(INT, 8, FORMAT_VERSION);
+            map.asSlice(0, FILE_HEADER_BYTES).force();
+        }
+
+        long position = FILE_HEADER_BYTES;
+        while (position + RECORD_HEADER_BYTES <= fileSize) {
+            int length = map.get(INT, position);
+            long body = position + RECORD_HEADER_BYTES;
+            if (length <= 0 || body + length > fileSize || checksum(body, length) != map.get(INT, position + 4)) {
+                break;
+            }
+            apply(body, length);
+            position = body + length;
+        }
+        appendPosition = position;
+        durableLsn = appendPosition;
+
+        // Whatever follows the last good record is a torn write or reserved space. Zero it, so a
+        // stale record can never reappear behind a shorter one written later.
+        MemorySegment tail = map.asSlice(appendPosition);
+        if (!isZero(tail)) {
+            tail.fill((byte) 0);
+            tail.force();
+        }
+    }
+
+    /**
+     * Appends the record and applies it to the indexes; the caller holds the write lock. Under
+     * {@link FsyncPolicy#GROUP} the record is forced by {@link #unlockWrite} once the lock is
+     * released, so other writers can append in the meantime and share the force.
+     */
+    private void appendAndApply(RecordBuffer record) {
+        int length = record.size();
+        long start = appendPosition;
+        long body = start + RECORD_HEADER_BYTES;
+        try {
+            ensureMapped(body + length);
+            MemorySegment.copy(record.bytes(), 0, map, ValueLayout.JAVA_BYTE, body, length);
+            CRC32C crc = new CRC32C();
+            crc.update(record.bytes(), 0, length);
+            map.set(INT, start + 4, (int) crc.getValue());
+            map.set(INT, start, length);
+            if (fsyncPolicy == FsyncPolicy.ALWAYS) {
+                map.asSlice(start, RECORD_HEADER_BYTES + length).force();
+                syncCount.increment();
+            }
+        } catch (IOException | UncheckedIOException e) {
+            throw new RuntimeException("Error writing vault file " + path, e);
+        }
+        appendPosition = body + length;
+        if (fsyncPolicy == FsyncPolicy.ALWAYS) markDurable(lsnBase + appendPosition);
+        appendedRecords++;
+        appendedUnderLock = true;
+        apply(body, length);
+    }
+
+    private void unlockWrite() {
+        boolean wait = appendedUnderLock && fsyncPolicy == FsyncPolicy.GROUP;
+        long lsn = lsnBase + appendPosition;
+        appendedUnderLock = false;
+        lock.writeLock().unlock();
+        if (wait) awaitDurable(lsn);
+    }
+
+    /**
+     * Group commit. The first writer to find no force running becomes the leader and forces
+     * everything appended so far, covering every writer that appended before it started; the
+     * others wait for it and only force again if their record came in after that.
+     */
+    private void awaitDurable(long lsn) {
+        syncLock.lock();
+        try {
+            while (durableLsn < lsn) {
+                if (syncing) {
+                    synced.awaitUninterruptibly();
+                    continue;
+                }
+                syncing = true;
+                long from = durableLsn;
+                long forced = from;
+                syncLock.unlock();
+                try {
+                    forced = forceFrom(from);
+                } finally {
+                    syncLock.lock();
+                    syncing = false;
+                    durableLsn = Math.max(durableLsn, forced);
+                    synced.signalAll();
+                }
+            }
+        } finally {
+            syncLock.unlock();
+        }
+    }
+
+    /**
+     * Forces the log from the given LSN to the current end and returns the LSN it reached. Holds
+     * the read lock so the mapping cannot be replaced meanwhile; a closed store was forced by close.
+     */
+    private long forceFrom(long fromLsn) {
+        lock.readLock().lock();
+        try {
+            long end = lsnBase + appendPosition;
+            if (closed || end <= fromLsn) return end;
+            long from = Math.max(FILE_HEADER_BYTES, fromLsn - lsnBase);
+            map.asSlice(from, appendPosition - from).force();
+            syncCount.increment();
+            return end;
+        } catch (UncheckedIOException e) {
+            throw new RuntimeException("Error writing vault file " + path, e);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    private void markDurable(long lsn) {
+        syncLock.lock();
+        try {
+            durableLsn = Math.max(durableLsn, lsn);
+            synced.signalAll();
+        } finally {
+            syncLock.unlock();
+        }
+    }
+
+    private void startMaintenance(long syncIntervalMs) {
+        if (fsyncPolicy == FsyncPolicy.INTERVAL) {
+            maintenance.scheduleWithFixedDelay(this::backgroundSync, syncIntervalMs, syncIntervalMs, TimeUnit.MILLISECONDS);
+        }
+        maintenance.scheduleWithFixedDelay(this::backgroundCompact, COMPACTION_CHECK_MS, COMPACTION_CHECK_MS,
+                TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * Returns why the last interval sync or background compaction failed, or null once each has
+     * succeeded since. Background tasks have no caller to throw to, so this is how they report.
+     */
+    public String getBackgroundError() {
+        String error = compactionError;
+        return error != null ? error : syncError;
+    }
+
+    private void backgroundSync() {
+        try {
+            if (closing) return;
+            sync();
+            syncError = null;
+        } catch (RuntimeException e) {
+            backgroundFailures.increment();
+            syncError = "Vault sync failed: " + describe(e);
+        }
+    }
+
+    /**
+     * A failed compaction rewrites the whole file, so repeats are spaced out exponentially, up to an
+     * hour, instead of retried on every check.
+     */
+    private void backgroundCompact() {
+        long now = System.currentTimeMillis();
+        if (closing || now < nextCompactionAttempt) return;
+        try {
+            if (!shouldCompact()) return;
+            compact();
+            compactionFailuresInRow = 0;
+            compactionError = null;
+        } catch (RuntimeException e) {
+            backgroundFailures.increment();
+            compactionFailuresInRow++;
+            long backoff = Math.min(MAX_COMPACTION_BACKOFF_MS,
+                    COMPACTION_CHECK_MS << Math.min(compactionFailuresInRow, 20));
+            nextCompactionAttempt = now + backoff;
+            compactionError = "Vault compaction failed and is retried less often: " + describe(e);
+        }
+    }
+
+    private static String describe(RuntimeException e) {
+        return e.getCause() == null ? e.getMessage() : e.getMessage() + " (" + e.getCause() + ")";
+    }
+
+    private boolean shouldCompact() {
+        lock.readLock().lock();
+        try {
+            if (closed) return false;
+            long fileBytes = appendPosition - FILE_HEADER_BYTES;
+            return fileBytes >= compactionMinBytes && fileBytes - liveBytes() >= fileBytes * compactionGarbageRatio;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /** What a compaction would write, less its record headers. */
+    private long liveBytes() {
+        RecordBuffer state = new RecordBuffer();
+        writeState(state);
+        return liveAccountBytes + state.size();
+    }
+
+    private boolean compactLocked() {
+        Path snapshot = compactionPath(path);
+        FileChannel out = null;
+        FileLock outLock = null;
+        boolean swapped = false;
+        long started = System.nanoTime();
+        try {
+            out = FileChannel.open(snapshot, StandardOpenOption.CREATE_NEW, StandardOpenOption.READ,
+                    StandardOpenOption.WRITE);
+            outLock = out.tryLock();
+            ByteBuffer header = ByteBuffer.allocate(FILE_HEADER_BYTES).putLong(MAGIC).putInt(FORMAT_VERSION);
+            writeFully(out, header.clear(), 0);
+            long position = FILE_HEADER_BYTES;
+
+            // Everything appended after this point is carried over verbatim at the end, so the copy
+            // below may see any later state of a row: replaying the tail converges either way.
+            RecordBuffer record = new RecordBuffer();
+            long captured;
+            lock.readLock().lock();
+            try {
+                checkOpen();
+                captured = appendPosition;
+                writeState(record);
+            } finally {
+                lock.readLock().unlock();
+            }
+            if (record.size() > 0) position = writeRecord(out, position, record);
+
+            TreeMap<Integer, Long> offsets = new TreeMap<>();
+            long copiedBytes = 0;
+            int afterId = 0;
+            while (true) {
+                record.clear();
+                lock.readLock().lock();
+                try {
+                    if (closing) return false;
+                    checkOpen();
+                    int copied = 0;
+                    for (Map.Entry<Integer, Long> e : accounts.tailMap(afterId, false).entrySet()) {
+                        if (copied == COMPACTION_CHUNK || record.size() >= COMPACTION_RECORD_BYTES) break;
+                        long entry = e.getValue() - ENTRY_HEADER_BYTES;
+                        int entryLength = ENTRY_HEADER_BYTES + map.get(INT, entry);
+                        offsets.put(e.getKey(), position + RECORD_HEADER_BYTES + record.size() + ENTRY_HEADER_BYTES);
+                        record.putEntry(map, entry, entryLength);
+                        copiedBytes += entryLength;
+                        afterId = e.getKey();
+                        copied++;
+                    }
+                } finally {
+                    lock.readLock().unlock();
+                }
+                if (record.size() == 0) break;
+                position = writeRecord(out, position, record);
+            }
+
+            lock.writeLock().lock();
+            try {
+                if (closing) return false;
+                checkOpen();
+                long tailStart = position;
+                position = copyFromMap(out, position, captured, appendPosition);
+                out.force(true);
+                Files.move(snapshot, path, StandardCopyOption.ATOMIC_MOVE);
+                swapped = true;
+                forceDirectory();
+
+                long oldSize = appendPosition;
+                long endLsn = lsnBase + appendPosition;
+                mapArena.close();
+                mapArena = null;
+                map = null;
+                releaseQuietly(fileLock);
+                closeQuietly(channel);
+                channel = out;
+                fileLock = outLock;
+                try {
+                    ensureMapped(position);
+                } catch (IOException | RuntimeException e) {
+                    closed = true;
+                    throw e;
+                }
+                appendPosition = position;
+                accounts.clear();
+                accounts.putAll(offsets);
+                liveAccountBytes = copiedBytes;
+                reindexAccounts(tailStart, position);
+                lsnBase = endLsn - position;
+                markDurable(endLsn);
+
+                compactionCount++;
+                reclaimedBytes += oldSize - position;
+                lastCompactionNanos = System.nanoTime() - started;
+                return true;
+            } finally {
+                lock.writeLock().unlock();
+            }
+        } catch (IOException | UncheckedIOException e) {
+            throw new RuntimeException("Error compacting vault file " + path, e);
+        } finally {
+            if (!swapped) {
+                releaseQuietly(outLock);
+                closeQuietly(out);
+                try {
+                    Files.deleteIfExists(snapshot);
+                } catch (IOException ignored) {
+                }
+            }
+        }
+    }
+
+    /**
+     * Metadata, checkpoints, data keys and the deletion log as the entries a compaction starts
+     * with. A delete for the highest id ever used keeps a deleted id from being handed out again
+     * after a reopen.
+     */
+    private void writeState(RecordBuffer record) {
+        if (metadata != null) {
+            writeMetadata(record, metadata, metadata.getCreatedAt(), metadata.getUpdatedAt());
+        }
+        for (Checkpoint c : checkpoints.values()) {
+            writeCheckpoint(record, c.getName(), c.getPosition(), c.getPayload(), c.getUpdatedAt());
+        }
+        for (DataKey k : dataKeys.values()) {
+            writeDataKey(record, k.getId(), k.getWrappedKey(), k.getIv(), k.getCreatedAt());
+        }
+        for (AccountTombstone t : deletions) {
+            writeTombstone(record, t.getAccountId(), t.getDeletedAt());
+        }
+        int lastId = nextAccountId - 1;
+        if (lastId > 0 && !accounts.containsKey(lastId)) {
+            record.beginEntry(ACCOUNT_DELETE);
+            record.putInt(lastId);
+            record.endEntry();
+        }
+    }
+
+    /**
+     * Points the id index at the account entries in [from, to) of the new file. The key index and
+     * the other state already reflect those records, since they were applied when first written.
+     */
+    private void reindexAccounts(long from, long to) {
+        for (long position = from; position < to; ) {
+            long body = position + RECORD_HEADER_BYTES;
+            long end = body + map.get(INT, position);
+            for (long entry = body; entry < end; ) {
+                long data = entry + ENTRY_HEADER_BYTES;
+                byte type = map.get(ValueLayout.JAVA_BYTE, entry + 4);
+                if (type == ACCOUNT_PUT) {
+                    liveAccountBytes += entryBytes(data);
+                    Long previous = accounts.put(map.get(INT, data), data);
+                    if (previous != null) liveAccountBytes -= entryBytes(previous);
+                } else if (type == ACCOUNT_DELETE || type == ACCOUNT_TOMBSTONE) {
+                    Long previous = accounts.remove(map.get(INT, data));
+                    if (previous != null) liveAccountBytes -= entryBytes(previous);
+                }
+                entry = data + map.get(INT, entry);
+            }
+            position = end;
+        }
+    }
+
+    private long writeRecord(FileChannel out, long position, RecordBuffer record) throws IOException {
+        CRC32C crc = new CRC32C();
+        crc.update(record.bytes(), 0, record.size());
+        ByteBuffer header = ByteBuffer.allocate(RECORD_HEADER_BYTES).putInt(record.size()).putInt((int) crc.getValue());
+        writeFully(out, header.clear(), position);
+        writeFully(out, ByteBuffer.wrap(record.bytes(), 0, record.size()), position + RECORD_HEADER_BYTES);
+        return position + RECORD_HEADER_BYTES + record.size();
+    }
+
+    private long copyFromMap(FileChannel out, long position, long from, long to) throws IOException {
+        byte[] scratch = new byte[COPY_BUFFER_BYTES];
+        for (long done = from; done < to; ) {
+            int n = (int) Math.min(scratch.length, to - done);
+            MemorySegment.copy(map, ValueLayout.JAVA_BYTE, done, scratch, 0, n);
+            writeFully(out, ByteBuffer.wrap(scratch, 0, n), position);
+            position += n;
+            done += n;
+        }
+        return position;
+    }
+
+    private static void writeFully(FileChannel out, ByteBuffer buffer, long position) throws IOException {
+        while (buffer.hasRemaining()) {
+            position += out.write(buffer, position);
+        }
+    }
+
+    /** Makes the rename durable. Not every platform can open a directory; there it is skipped. */
+    private void forceDirectory() {
+        Path dir = path.toAbsolutePath().getParent();
+        if (dir == null) return;
+        try (FileChannel d = FileChannel.open(dir, StandardOpenOption.READ)) {
+            d.force(true);
+        } catch (IOException | RuntimeException ignored) {
+        }
+    }
+
+    private static Path compactionPath(Path path) {
+        return path.resolveSibling(path.getFileName() + ".compact");
+    }
+
+    private void apply(long body, int length) {
+        long position = body;
+        long end = body + length;
+        while (position < end) {
+            int dataLength = map.get(INT, position);
+            byte type = map.get(ValueLayout.JAVA_BYTE, position + 4);
+            long data = position + ENTRY_HEADER_BYTES;
+            switch (type) {
+                case ACCOUNT_PUT -> applyAccountPut(data);
+                case ACCOUNT_DELETE -> applyAccountDelete(map.get(INT, data));
+                case ACCOUNT_TOMBSTONE -> {
+                    int id = map.get(INT, data);
+                    applyAccountDelete(id);
+                    deletions.add(new AccountTombstone(id, readTime(data + 4)));
+                }
+                case METADATA_PUT -> metadata = readMetadata(data);
+                case CHECKPOINT_PUT -> {
+                    Reader r = new Reader(data);
+                    Checkpoint c = new Checkpoint(r.string(), r.getLong(), r.string());
+                    c.setUpdatedAt(r.time());
+                    checkpoints.put(c.getName(), c);
+                }
+                case CHECKPOINT_DELETE -> checkpoints.remove(new Reader(data).string());
+                case DATA_KEY_PUT -> {
+                    Reader r = new Reader(data);
+                    DataKey k = new DataKey();
+                    k.setId(r.getInt());
+                    k.setCreatedAt(r.time());
+                    k.setWrappedKey(r.bytes());
+                    k.setIv(r.bytes());
+                    dataKeys.put(k.getId(), k);
+                    nextDataKeyId = Math.max(nextDataKeyId, k.getId() + 1);
+                }
+                default -> throw new IllegalStateException("Unknown record type " + type + " in " + path);
+            }
+            position = data + dataLength;
+        }
+    }
+
+    private void applyAccountPut(long data) {
+        Reader r = new Reader(data);
+        int id = r.getInt();
+        r.skip(ACCOUNT_EMAIL_OFFSET - 4);
+        String key = keyOf(r.string(), r.string());
+        Long previous = accounts.put(id, data);
+        liveAccountBytes += entryBytes(data);
+        if (previous != null) {
+            liveAccountBytes -= entryBytes(previous);
+            Reader old = new Reader(previous + ACCOUNT_EMAIL_OFFSET);
+            idsByKey.remove(keyOf(old.string(), old.string()), id);
+        }
+        idsByKey.put(key, id);
+        nextAccountId = Math.max(nextAccountId, id + 1);
+    }
+
+    private void applyAccountDelete(int id) {
+        Long previous = accounts.remove(id);
+        if (previous != null) {
+            liveAccountBytes -= entryBytes(previous);
+            Reader old = new Reader(previous + ACCOUNT_EMAIL_OFFSET);
+            idsByKey.remove(keyOf(old.string(), old.string()), id);
+        }
+        // Like AUTO_INCREMENT, never hand a deleted id out again.
+        nextAccountId = Math.max(nextAccountId, id + 1);
+    }
+
+    private int entryBytes(long data) {
+        return ENTRY_HEADER_BYTES + map.get(INT, data - ENTRY_HEADER_BYTES);
+    }
+
+    private Account readAccount(long data) {
+        Reader r = new Reader(data);
+        Account a = new Account();
+        a.setId(r.getInt());
+        a.setEncVersion(r.getInt());
+        a.setCreatedAt(r.time());
+        a.setUpdatedAt(r.time());
+        a.setEmail(r.string());
+        a.setWebsite(r.string());
+        a.setPasswordEncrypted(r.bytes());
+        a.setIv(r.bytes());
+        return a;
+    }
+
+    private LocalDateTime readTime(long offset) {
+        return new Reader(offset).time();
+    }
+
+    private VaultMetadata readMetadata(long data) {
+        Reader r = new Reader(data);
+        VaultMetadata m = new VaultMetadata();
+        m.setId(r.getInt());
+        m.setEncVersion(r.getInt());
+        m.setCreatedAt(r.time());
+        m.setUpdatedAt(r.time());
+        m.setKdfSalt(r.bytes());
+        m.setKdfParams(r.string());
+        m.setMasterHash(r.bytes());
+        return m;
+    }
+
+    private static void writeAccount(RecordBuffer record, int id, String email, String website, byte[] passwordEncrypted,
+                                     byte[] iv, int encVersion, LocalDateTime createdAt, LocalDateTime updatedAt) {
+        record.beginEntry(ACCOUNT_PUT);
+        record.putInt(id);
+        record.putInt(encVersion);
+        record.putTime(createdAt);
+        record.putTime(updatedAt);
+        record.putString(email);
+        record.putString(website);
+        record.putBytes(passwordEncrypted);
+        record.putBytes(iv);
+        record.endEntry();
+    }
+
+    private static void writeTombstone(RecordBuffer record, int id, LocalDateTime deletedAt) {
+        record.beginEntry(ACCOUNT_TOMBSTONE);
+        record.putInt(id);
+        record.putTime(deletedAt);
+        record.endEntry();
+    }
+
+    private static void writeDataKey(RecordBuffer record, int id, byte[] wrappedKey, byte[] iv, LocalDateTime createdAt) {
+        record.beginEntry(DATA_KEY_PUT);
+        record.putInt(id);
+        record.putTime(createdAt);
+        record.putBytes(wrappedKey);
+        record.putBytes(iv);
+        record.endEntry();
+    }
+
+    private static RecordBuffer metadataRecord(VaultMetadata m, LocalDateTime createdAt, LocalDateTime updatedAt) {
+        RecordBuffer record = new RecordBuffer();
+        writeMetadata(record, m, createdAt, updatedAt);
+        return record;
+    }
+
+    private static void writeMetadata(RecordBuffer record, VaultMetadata m, LocalDateTime createdAt,
+                                      LocalDateTime updatedAt) {
+        record.beginEntry(METADATA_PUT);
+        record.putInt(1);
+        record.putInt(m.getEncVersion());
+        record.putTime(createdAt);
+        record.putTime(updatedAt);
+        record.putBytes(m.getKdfSalt());
+        record.putString(m.getKdfParams());
+        record.putBytes(m.getMasterHash());
+        record.endEntry();
+    }
+
+    private static void writeCheckpoint(RecordBuffer record, String name, long position, String payload,
+                                        LocalDateTime updatedAt) {
+        record.beginEntry(CHECKPOINT_PUT);
+        record.putString(name);
+        record.putLong(position);
+        record.putString(payload);
+        record.putTime(updatedAt);
+        record.endEntry();
+    }
+
+    private List<Account> scanMatches(String query, int afterId, int skip, int limit) {
+        String q = query == null ? "" : query;
+        List<Account> out = new ArrayList<>(Math.min(limit, 64));
+        lock.readLock().lock();
+        try {
+            checkOpen();
+            int skipped = 0;
+            for (long offset : accounts.tailMap(afterId, false).values()) {
+                if (out.size() >= limit) break;
+                Reader r = new Reader(offset + ACCOUNT_EMAIL_OFFSET);
+                if (containsIgnoreCase(r.string(), q) || containsIgnoreCase(r.string(), q)) {
+                    if (skipped++ < skip) continue;
+                    out.add(readAccount(offset));
+                }
+            }
+            return out;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    private void ensureMapped(long required) throws IOException {
+        long current = map == null ? 0 : map.byteSize();
+        if (required <= current) return;
+        long size = Math.max(required, current + Math.min(Math.max(current, MAP_ALIGNMENT), MAX_MAP_GROWTH));
+        size = (size + MAP_ALIGNMENT - 1) / MAP_ALIGNMENT * MAP_ALIGNMENT;
+        Arena arena = Arena.ofShared();
+        MemorySegment mapped;
+        try {
+            mapped = channel.map(FileChannel.MapMode.READ_WRITE, 0, size, arena);
+        } catch (IOException | RuntimeException e) {
+            arena.close();
+            throw e;
+        }
+        if (mapArena != null) mapArena.close();
+        mapArena = arena;
+        map = mapped;
+    }
+
+    /**
+     * CRC32C refuses buffers backed by a closeable shared arena, so the bytes go through a heap
+     * scratch array.
+     */
+    private int checksum(long offset, int length) {
+        CRC32C crc = new CRC32C();
+        byte[] scratch = new byte[Math.min(length, 64 * 1024)];
+        for (long done = 0; done < length; ) {
+            int n = (int) Math.min(scratch.length, length - done);
+            MemorySegment.copy(map, ValueLayout.JAVA_BYTE, offset + done, scratch, 0, n);
+            crc.update(scratch, 0, n);
+            done += n;
+        }
+        return (int) crc.getValue();
+    }
+
+    private static boolean isZero(MemorySegment segment) {
+        long size = segment.byteSize();
+        long i = 0;
+        for (; i + 8 <= size; i += 8) {
+            if (segment.get(LONG, i) != 0) return false;
+        }
+        for (; i < size; i++) {
+            if (segment.get(ValueLayout.JAVA_BYTE, i) != 0) return false;
+        }
+        return true;
+    }
+
+    private void checkOpen() {
+        if (closed) throw new IllegalStateException("Vault store " + path + " is closed.");
+    }
+
+    private static String keyOf(String email, String website) {
+        return (email == null ? "" : email.trim().toLowerCase(Locale.ROOT)) + '\n'
+                + (website == null ? "" : website.trim().toLowerCase(Locale.ROOT));
+    }
+
+    private static boolean containsIgnoreCase(String haystack, String needle) {
+        if (haystack == null) return false;
+        int last = haystack.length() - needle.length();
+        for (int start = 0; start <= last; start++) {
+            if (haystack.regionMatches(true, start, needle, 0, needle.length())) return true;
+        }
+        return false;
+    }
+
+    /** MySQL TIMESTAMP keeps microseconds at most; match it so values round-trip unchanged. */
+    private static LocalDateTime now() {
+        return LocalDateTime.now().truncatedTo(ChronoUnit.MICROS);
+    }
+
+    /** The stored form of a timestamp, as written by RecordBuffer.putTime. */
+    private static long micros(LocalDateTime time) {
+        return time.toEpochSecond(ZoneOffset.UTC) * 1_000_000L + time.getNano() / 1000;
+    }
+
+    private static VaultMetadata copyOf(VaultMetadata m) {
+        return new VaultMetadata(m.getId(),
+                m.getKdfSalt() == null ? null : m.getKdfSalt().clone(),
+                m.getKdfParams(),
+                m.getMasterHash() == null ? null : m.getMasterHash().clone(),
+                m.getEncVersion(), m.getCreatedAt(), m.getUpdatedAt());
+    }
+
+    private static Checkpoint copyOf(Checkpoint c) {
+        Checkpoint copy = new Checkpoint(c.getName(), c.getPosition(), c.getPayload());
+        copy.setUpdatedAt(c.getUpdatedAt());
+        return copy;
+    }
+
+    private static DataKey copyOf(DataKey k) {
+        return new DataKey(k.getId(),
+                k.getWrappedKey() == null ? null : k.getWrappedKey().clone(),
+                k.getIv() == null ? null : k.getIv().clone(),
+                k.getCreatedAt());
+    }
+
+    private static void releaseQuietly(FileLock fileLock) {
+        if (fileLock == null) return;
+        try {
+            fileLock.release();
+        } catch (IOException ignored) {
+        }
+    }
+
+    private static void closeQuietly(FileChannel channel) {
+        if (channel == null) return;
+        try {
+            channel.close();
+        } catch (IOException ignored) {
+        }
+    }
+
+    /**
+     * Sequential decoder over the mapping. Strings and byte arrays are length-prefixed, with -1
+     * for null; timestamps are UTC epoch microseconds, with Long.MIN_VALUE for null.
+     */
+    private final class Reader {
+        private long position;
+
+        Reader(long position) {
+            this.position = position;
+        }
+
+        int getInt() {
+            int v = map.get(INT, position);
+            position += 4;
+            return v;
+        }
+
+        long getLong() {
+            long v = map.get(LONG, position);
+            position += 8;
+            return v;
+        }
+
+        void skip(int bytes) {
+            position += bytes;
+        }
+
+        byte[] bytes() {
+            int length = getInt();
+            if (length < 0) return null;
+            byte[] out = new byte[length];
+            MemorySegment.copy(map, ValueLayout.JAVA_BYTE, position, out, 0, length);
+            position += length;
+            return out;
+        }
+
+        String string() {
+            byte[] utf8 = bytes();
+            return utf8 == null ? null : new String(utf8, StandardCharsets.UTF_8);
+        }
+
+        LocalDateTime time() {
+            long micros = getLong();
+            if (micros == Long.MIN_VALUE) return null;
+            return LocalDateTime.ofEpochSecond(Math.floorDiv(micros, 1_000_000L),
+                    (int) Math.floorMod(micros, 1_000_000L) * 1000, ZoneOffset.UTC);
+        }
+    }
+}
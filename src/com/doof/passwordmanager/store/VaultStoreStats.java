@@ -0,0 +1,65 @@
+package com.doof.passwordmanager.store;
+
+import java.util.concurrent.TimeUnit;
+
+public final class VaultStoreStats {
+    private final FsyncPolicy fsyncPolicy;
+    private final long fileBytes;
+    private final long liveBytes;
+    private final int accountCount;
+    private final long appendedRecords;
+    private final long syncCount;
+    private final long compactionCount;
+    private final long reclaimedBytes;
+    private final long lastCompactionNanos;
+    private final long backgroundFailures;
+    private final String lastBackgroundError;
+
+    VaultStoreStats(FsyncPolicy fsyncPolicy, long fileBytes, long liveBytes, int accountCount, long appendedRecords,
+                    long syncCount, long compactionCount, long reclaimedBytes, long lastCompactionNanos,
+                    long backgroundFailures, String lastBackgroundError) {
+        this.fsyncPolicy = fsyncPolicy;
+        this.fileBytes = fileBytes;
+        this.liveBytes = liveBytes;
+        this.accountCount = accountCount;
+        this.appendedRecords = appendedRecords;
+        this.syncCount = syncCount;
+        this.compactionCount = compactionCount;
+        this.reclaimedBytes = reclaimedBytes;
+        this.lastCompactionNanos = lastCompactionNanos;
+        this.backgroundFailures = backgroundFailures;
+        this.lastBackgroundError = lastBackgroundError;
+    }
+
+    public FsyncPolicy getFsyncPolicy() { return fsyncPolicy; }
+    public long getFileBytes() { return fileBytes; }
+    public long getLiveBytes() { return liveBytes; }
+    public int getAccountCount() { return accountCount; }
+    public long getAppendedRecords() { return appendedRecords; }
+    public long getSyncCount() { return syncCount; }
+    public long getCompactionCount() { return compactionCount; }
+    public long getReclaimedBytes() { return reclaimedBytes; }
+    public long getLastCompactionNanos() { return lastCompactionNanos; }
+    /** Failed interval syncs and background compactions since the store was opened. */
+    public long getBackgroundFailures() { return backgroundFailures; }
+    /** See {@link VaultStore#getBackgroundError()}. */
+    public String getLastBackgroundError() { return lastBackgroundError; }
+
+    /** Share of the log that a compaction would drop: superseded rows, tombstones and record headers. */
+    public double getGarbageRatio() {
+        return fileBytes == 0 ? 0 : (double) (fileBytes - liveBytes) / fileBytes;
+    }
+
+    @Override
+    public String toString() {
+        return String.format(
+                "VaultStoreStats{fsync=%s, fileBytes=%d, liveBytes=%d, garbage=%.1f%%, accounts=%d, records=%d, " +
+                        "syncs=%d, recordsPerSync=%.1f, compactions=%d, reclaimedBytes=%d, lastCompactionMs=%d, " +
+                        "backgroundFailures=%d, lastBackgroundError=%s}",
+                fsyncPolicy, fileBytes, liveBytes, getGarbageRatio() * 100, accountCount, appendedRecords,
+                syncCount, syncCount == 0 ? 0.0 : (double) appendedRecords / syncCount, compactionCount,
+                reclaimedBytes, TimeUnit.NANOSECONDS.toMillis(lastCompactionNanos), backgroundFailures,
+                lastBackgroundError
+        );
+    }
+}
@@ -0,0 +1,75 @@
+package com.doof.passwordmanager.util;
+
+import java.util.concurrent.Callable;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.Semaphore;
+
+/**
+ * Runs each task on its own virtual thread, but lets at most {@code maxConcurrent} of them run
+ * the task body at once. Callers can submit as much as they like without tying up platform
+ * threads; the extra tasks park cheaply on the semaphore instead of queueing for a pooled
+ * connection and timing out there.
+ */
+public final class BoundedAsyncExecutor implements AutoCloseable {
+
+    private final ExecutorService executor;
+    private final Semaphore permits;
+    private final int maxConcurrent;
+
+    public BoundedAsyncExecutor(String threadNamePrefix, int maxConcurrent) {
+        if (maxConcurrent <= 0) {
+            throw new IllegalArgumentException("maxConcurrent must be positive");
+        }
+        this.maxConcurrent = maxConcurrent;
+        this.permits = new Semaphore(maxConcurrent, true);
+        this.executor = Executors.newThreadPerTaskExecutor(Thread.ofVirtual().name(threadNamePrefix + "-", 0).factory());
+    }
+
+    public <T> CompletableFuture<T> submit(Callable<T> task) {
+        CompletableFuture<T> future = new CompletableFuture<>();
+        try {
+            executor.execute(() -> {
+                if (future.isDone()) return;
+                try {
+                    permits.acquire();
+                } catch (InterruptedException e) {
+                    future.completeExceptionally(e);
+                    return;
+                }
+                try {
+                    if (!future.isDone()) future.complete(task.call());
+                } catch (Throwable t) {
+                    future.completeExceptionally(t);
+                } finally {
+                    permits.release();
+                }
+            });
+        } catch (RejectedExecutionException e) {
+            future.completeExceptionally(e);
+        }
+        return future;
+    }
+
+    public int getMaxConcurrent() {
+        return maxConcurrent;
+    }
+
+    public int getRunning() {
+        return maxConcurrent - permits.availablePermits();
+    }
+
+    public int getWaiting() {
+        return permits.getQueueLength();
+    }
+
+    /**
+     * Stops accepting tasks; tasks already submitted still run to completion.
+     */
+    @Override
+    public void close() {
+        executor.shutdown();
+    }
+}
@@ -0,0 +1,56 @@
+package com.doof.passwordmanager.util;
+
+import java.util.Arrays;
+
+/**
+ * Everything one PBKDF2 run over the master password yields: the raw output, plus the verifier and
+ * encryption key HKDF splits off it. Call {@link #wipe()} once the keys have been handed out.
+ */
+public final class DerivedKeys {
+
+    private final byte[] master;
+    private final byte[] verifier;
+    private final byte[] encryptionKey;
+
+    DerivedKeys(byte[] master, byte[] verifier, byte[] encryptionKey) {
+        this.master = master;
+        this.verifier = verifier;
+        this.encryptionKey = encryptionKey;
+    }
+
+    /**
+     * Checks a stored master_hash against the verifier for the given KDF version, in constant time.
+     */
+    public boolean matches(byte[] storedHash, int kdfVersion) {
+        byte[] expected = kdfVersion == KdfParams.VERSION_LEGACY ? master : verifier;
+        return PasswordHasher.constantTimeEquals(expected, storedHash);
+    }
+
+    /**
+     * Copy of the verifier to store as master_hash for a version 2 vault.
+     */
+    public byte[] verifier() {
+        return verifier.clone();
+    }
+
+    /**
+     * Off-heap copy of the master encryption key; the caller destroys it.
+     */
+    public OffHeapSecretKey encryptionKey() {
+        return OffHeapSecretKey.copyOf(encryptionKey, "AES");
+    }
+
+    /**
+     * Key that rows written under KDF version 1 (enc_version 1) were encrypted with: the raw
+     * PBKDF2 output.
+     */
+    public OffHeapSecretKey legacyKey() {
+        return OffHeapSecretKey.copyOf(master, "AES");
+    }
+
+    public void wipe() {
+        Arrays.fill(master, (byte) 0);
+        Arrays.fill(verifier, (byte) 0);
+        Arrays.fill(encryptionKey, (byte) 0);
+    }
+}
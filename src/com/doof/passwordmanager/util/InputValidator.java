@@ -3,60 +3,180 @@ package com.doof.passwordmanager.util;
 import com.doof.passwordmanager.dao.AccountDao;
 import com.doof.passwordmanager.model.Account;
 
-import java.net.MalformedURLException;
-import java.net.URL;
-import java.util.List;
-import java.util.regex.Pattern;
-
+/**
+ * Field validators. The {@code is*} and {@link #checkAccount} methods make one pass over the
+ * characters and allocate nothing, so passwords are checked in place without a String copy. The
+ * {@code validate*} methods throw {@link ValidationException} with the message for the first rule
+ * that fails. Leading and trailing whitespace is ignored, matching {@link #sanitize}.
+ */
 public final class InputValidator {
 
-    private static final Pattern EMAIL_PATTERN =
-            Pattern.compile("^[A-Za-z0-9+_.-]+@[A-Za-z0-9.-]+\\.[A-Za-z]{2,}$");
+    public static final String EMAIL_EMPTY = "Email cannot be empty.";
+    public static final String EMAIL_INVALID = "Invalid email format.";
+    public static final String PASSWORD_EMPTY = "Password cannot be empty.";
+    public static final String PASSWORD_WEAK = "Password must be at least 8 characters long, with uppercase, lowercase, and a number.";
+    public static final String WEBSITE_EMPTY = "Website cannot be empty.";
+    public static final String WEBSITE_INVALID = "Invalid website format.";
 
-    private static final Pattern PASSWORD_PATTERN =
-            Pattern.compile("^(?=.*[a-z])(?=.*[A-Z])(?=.*\\d).{8,}$");
+    private static final int MIN_PASSWORD_LENGTH = 8;
+    private static final int MAX_PORT = 65_535;
 
     private InputValidator() {}
 
     public static void validateEmail(String email) {
-        if (email == null || email.trim().isEmpty()) {
-            throw new ValidationException("Email cannot be empty.");
-        }
-        email = email.trim();
-        if (!EMAIL_PATTERN.matcher(email).matches()) {
-            throw new ValidationException("Invalid email format.");
-        }
+        String error = checkEmail(email);
+        if (error != null) throw new ValidationException(error);
     }
 
     public static void validatePassword(char[] password) {
-        if (password == null || password.length == 0) {
-            throw new ValidationException("Password cannot be empty.");
+        String error = checkPassword(password);
+        if (error != null) throw new ValidationException(error);
+    }
+
+    public static void validateWebsite(String website) {
+        String error = checkWebsite(website);
+        if (error != null) throw new ValidationException(error);
+    }
+
+    /**
+     * Returns the message for the first invalid field, checking email, website and password in that
+     * order, or null when all three are valid. Intended for bulk imports, where collecting per-row
+     * errors is cheaper than throwing.
+     */
+    public static String checkAccount(CharSequence email, CharSequence website, char[] password) {
+        String error = checkEmail(email);
+        if (error == null) error = checkWebsite(website);
+        if (error == null) error = checkPassword(password);
+        return error;
+    }
+
+    public static String checkEmail(CharSequence email) {
+        if (isBlank(email)) return EMAIL_EMPTY;
+        return isValidEmail(email) ? null : EMAIL_INVALID;
+    }
+
+    public static String checkPassword(char[] password) {
+        if (password == null || password.length == 0) return PASSWORD_EMPTY;
+        return isValidPassword(password) ? null : PASSWORD_WEAK;
+    }
+
+    public static String checkWebsite(CharSequence website) {
+        if (isBlank(website)) return WEBSITE_EMPTY;
+        return isValidWebsite(website) ? null : WEBSITE_INVALID;
+    }
+
+    /**
+     * {@code local@domain.tld}: the local part is one or more of {@code [A-Za-z0-9+_.-]}, the domain
+     * one or more of {@code [A-Za-z0-9.-]}, and the text after the domain's last dot at least two
+     * ASCII letters.
+     */
+    public static boolean isValidEmail(CharSequence email) {
+        if (email == null) return false;
+        int start = firstNonBlank(email);
+        int end = lastNonBlank(email);
+        int at = -1;
+        int lastDot = -1;
+        boolean tldLetters = true;
+        for (int i = start; i < end; i++) {
+            char c = email.charAt(i);
+            if (at < 0) {
+                if (c == '@') {
+                    if (i == start) return false;
+                    at = i;
+                } else if (!isAsciiAlphanumeric(c) && c != '+' && c != '_' && c != '.' && c != '-') {
+                    return false;
+                }
+            } else if (c == '.') {
+                lastDot = i;
+                tldLetters = true;
+            } else if (isAsciiLetter(c)) {
+                // still a candidate top-level domain
+            } else if (isAsciiDigit(c) || c == '-') {
+                tldLetters = false;
+            } else {
+                return false;
+            }
         }
-        String pass = new String(password);
-        if (!PASSWORD_PATTERN.matcher(pass).matches()) {
-            throw new ValidationException("Password must be at least 8 characters long, with uppercase, lowercase, and a number.");
+        return at >= 0 && lastDot > at + 1 && end - lastDot > 2 && tldLetters;
+    }
+
+    /**
+     * At least eight characters (code points) with a lowercase letter, an uppercase letter and a
+     * digit (the ASCII classes the old regex used) and no line terminators.
+     */
+    public static boolean isValidPassword(char[] password) {
+        if (password == null) return false;
+        boolean lower = false;
+        boolean upper = false;
+        boolean digit = false;
+        int codePoints = 0;
+        for (int i = 0; i < password.length; i++) {
+            char c = password[i];
+            if (c >= 'a' && c <= 'z') {
+                lower = true;
+            } else if (c >= 'A' && c <= 'Z') {
+                upper = true;
+            } else if (isAsciiDigit(c)) {
+                digit = true;
+            } else if (c == '\n' || c == '\r' || c == '\u0085' || c == '\u2028' || c == '\u2029') {
+                return false;
+            } else if (Character.isLowSurrogate(c) && i > 0 && Character.isHighSurrogate(password[i - 1])) {
+                continue;
+            }
+            codePoints++;
         }
-        pass = null;
+        return lower && upper && digit && codePoints >= MIN_PASSWORD_LENGTH;
     }
 
-    public static void validateWebsite(String website) {
-        if (website == null || website.trim().isEmpty()) {
-            throw new ValidationException("Website cannot be empty.");
+    /**
+     * An optional {@code http://} or {@code https://} prefix, a host of letters, digits, dots,
+     * hyphens and underscores (non-ASCII letters are allowed for IDNs) with no empty labels, an
+     * optional numeric port, then an optional path, query or fragment. Whitespace and control
+     * characters are rejected anywhere.
+     */
+    public static boolean isValidWebsite(CharSequence website) {
+        if (website == null) return false;
+        int end = lastNonBlank(website);
+        int i = firstNonBlank(website);
+        i += schemeLength(website, i, end);
+
+        int hostStart = i;
+        char prev = '.';
+        for (; i < end; i++) {
+            char c = website.charAt(i);
+            if (c == ':' || c == '/' || c == '?' || c == '#') break;
+            if (c == '.') {
+                if (prev == '.') return false;
+            } else if (!isAsciiAlphanumeric(c) && c != '-' && c != '_' && !(c > 0x7f && Character.isLetterOrDigit(c))) {
+                return false;
+            }
+            prev = c;
         }
-        website = website.trim();
-        try {
-            new URL("https://" + website);
-        } catch (MalformedURLException e) {
-            throw new ValidationException("Invalid website format.");
+        if (i == hostStart || prev == '.') return false;
+
+        if (i < end && website.charAt(i) == ':') {
+            int port = 0;
+            int digits = 0;
+            for (i++; i < end; i++) {
+                char c = website.charAt(i);
+                if (!isAsciiDigit(c)) break;
+                port = port * 10 + (c - '0');
+                if (++digits > 5 || port > MAX_PORT) return false;
+            }
+            if (digits == 0) return false;
+            if (i < end && website.charAt(i) != '/' && website.charAt(i) != '?' && website.charAt(i) != '#') return false;
+        }
+
+        for (; i < end; i++) {
+            char c = website.charAt(i);
+            if (Character.isWhitespace(c) || Character.isISOControl(c)) return false;
         }
+        return true;
     }
 
     public static void checkDuplicate(AccountDao accountDao, String email, String website) {
-        List<Account> existing = accountDao.search(email, 1, 0);
-        boolean duplicate = existing.stream()
-                .anyMatch(acc -> acc.getEmail().equalsIgnoreCase(email.trim())
-                        && acc.getWebsite().equalsIgnoreCase(website.trim()));
-        if (duplicate) {
+        Account existing = accountDao.findByEmailAndWebsite(email.trim(), website.trim());
+        if (existing != null) {
             throw new ValidationException("An account with this email and website already exists.");
         }
     }
@@ -64,4 +184,47 @@ public final class InputValidator {
     public static String sanitize(String input) {
         return input == null ? null : input.trim();
     }
+
+    private static int schemeLength(CharSequence s, int from, int end) {
+        if (regionMatchesIgnoreCase(s, from, end, "https://")) return 8;
+        if (regionMatchesIgnoreCase(s, from, end, "http://")) return 7;
+        return 0;
+    }
+
+    private static boolean regionMatchesIgnoreCase(CharSequence s, int from, int end, String prefix) {
+        if (end - from < prefix.length()) return false;
+        for (int k = 0; k < prefix.length(); k++) {
+            if (Character.toLowerCase(s.charAt(from + k)) != prefix.charAt(k)) return false;
+        }
+        return true;
+    }
+
+    private static boolean isBlank(CharSequence s) {
+        return s == null || firstNonBlank(s) == s.length();
+    }
+
+    /** Same notion of whitespace as {@link String#trim()}. */
+    private static int firstNonBlank(CharSequence s) {
+        int i = 0;
+        while (i < s.length() && s.charAt(i) <= ' ') i++;
+        return i;
+    }
+
+    private static int lastNonBlank(CharSequence s) {
+        int end = s.length();
+        while (end > 0 && s.charAt(end - 1) <= ' ') end--;
+        return end;
+    }
+
+    private static boolean isAsciiLetter(char c) {
+        return (c >= 'a' && c <= 'z') || (c >= 'A' && c <= 'Z');
+    }
+
+    private static boolean isAsciiDigit(char c) {
+        return c >= '0' && c <= '9';
+    }
+
+    private static boolean isAsciiAlphanumeric(char c) {
+        return isAsciiLetter(c) || isAsciiDigit(c);
+    }
 }
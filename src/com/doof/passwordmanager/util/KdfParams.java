@@ -0,0 +1,120 @@
+package com.doof.passwordmanager.util;
+
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Parsed form of the vault's {@code kdf_params} column. The version says how the PBKDF2 output is
+ * used: version 1 (no "version" field) stores it directly as both verifier and encryption key;
+ * version 2 splits it with HKDF-SHA256 into a separate verifier and key.
+ */
+public final class KdfParams {
+
+    public static final int VERSION_LEGACY = 1;
+    public static final int VERSION_HKDF = 2;
+    public static final int CURRENT_VERSION = VERSION_HKDF;
+
+    static final String DEFAULT_ALGORITHM = "PBKDF2WithHmacSHA256";
+    static final int DEFAULT_ITERATIONS = 100_000;
+    static final int DEFAULT_SALT_LENGTH = 16;
+    static final int DEFAULT_KEY_LENGTH = 32;
+
+    /**
+     * Accepted iteration counts: never fewer than the old fixed default, nor absurdly many. Parsed
+     * kdf_params are held to the same range, so a tampered row cannot weaken the derivation.
+     */
+    public static final int MIN_ITERATIONS = DEFAULT_ITERATIONS;
+    public static final int MAX_ITERATIONS = 10_000_000;
+
+    private static final Pattern FIELD = Pattern.compile("\"(\\w+)\"\\s*:\\s*(\"[^\"]*\"|-?\\d+)");
+
+    private final int version;
+    private final String algorithm;
+    private final int iterations;
+    private final int saltLength;
+    private final int keyLength;
+
+    public KdfParams(int version, String algorithm, int iterations, int saltLength, int keyLength) {
+        if (version != VERSION_LEGACY && version != VERSION_HKDF) {
+            throw new IllegalArgumentException("Unsupported KDF version: " + version);
+        }
+        if (iterations < MIN_ITERATIONS || iterations > MAX_ITERATIONS) {
+            throw new IllegalArgumentException("KDF iterations must be in " + MIN_ITERATIONS + ".." + MAX_ITERATIONS
+                    + ", got " + iterations);
+        }
+        if (saltLength <= 0 || keyLength <= 0) {
+            throw new IllegalArgumentException("KDF salt and key length must be positive");
+        }
+        this.version = version;
+        this.algorithm = algorithm;
+        this.iterations = iterations;
+        this.saltLength = saltLength;
+        this.keyLength = keyLength;
+    }
+
+    public static KdfParams defaults() {
+        return new KdfParams(CURRENT_VERSION, DEFAULT_ALGORITHM, DEFAULT_ITERATIONS, DEFAULT_SALT_LENGTH, DEFAULT_KEY_LENGTH);
+    }
+
+    public static KdfParams parse(String json) {
+        if (json == null || json.isBlank()) {
+            throw new IllegalArgumentException("kdf_params is empty");
+        }
+        int version = VERSION_LEGACY;
+        String algorithm = DEFAULT_ALGORITHM;
+        int iterations = DEFAULT_ITERATIONS;
+        int saltLength = DEFAULT_SALT_LENGTH;
+        int keyLength = DEFAULT_KEY_LENGTH;
+
+        Matcher m = FIELD.matcher(json);
+        while (m.find()) {
+            String value = m.group(2);
+            switch (m.group(1)) {
+                case "version" -> version = Integer.parseInt(value);
+                case "algorithm" -> algorithm = value.substring(1, value.length() - 1);
+                case "iterations" -> iterations = Integer.parseInt(value);
+                case "saltLength" -> saltLength = Integer.parseInt(value);
+                case "keyLength" -> keyLength = Integer.parseInt(value);
+                default -> { }
+            }
+        }
+        return new KdfParams(version, algorithm, iterations, saltLength, keyLength);
+    }
+
+    public String toJson() {
+        if (version == VERSION_LEGACY) {
+            return String.format("{\"algorithm\":\"%s\",\"iterations\":%d,\"saltLength\":%d,\"keyLength\":%d}",
+                    algorithm, iterations, saltLength, keyLength);
+        }
+        return String.format("{\"version\":%d,\"algorithm\":\"%s\",\"iterations\":%d,\"saltLength\":%d,\"keyLength\":%d,\"split\":\"HKDF-SHA256\"}",
+                version, algorithm, iterations, saltLength, keyLength);
+    }
+
+    public KdfParams withVersion(int newVersion) {
+        return new KdfParams(newVersion, algorithm, iterations, saltLength, keyLength);
+    }
+
+    public KdfParams withIterations(int newIterations) {
+        return new KdfParams(version, algorithm, newIterations, saltLength, keyLength);
+    }
+
+    /**
+     * Current-version parameters whose iteration count makes one derivation on this machine take
+     * about {@code targetMillis}.
+     */
+    public static KdfParams calibrated(long targetMillis) {
+        KdfParams d = defaults();
+        return d.withIterations(PasswordHasher.calibrateIterations(d.getAlgorithm(), d.getKeyLength(), targetMillis));
+    }
+
+    public int getVersion() { return version; }
+    public String getAlgorithm() { return algorithm; }
+    public int getIterations() { return iterations; }
+    public int getSaltLength() { return saltLength; }
+    public int getKeyLength() { return keyLength; }
+
+    @Override
+    public String toString() {
+        return toJson();
+    }
+}
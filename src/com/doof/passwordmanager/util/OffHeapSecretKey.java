@@ -0,0 +1,57 @@
+package com.doof.passwordmanager.util;
+
+import javax.crypto.SecretKey;
+import java.io.NotSerializableException;
+import java.io.ObjectOutputStream;
+
+/**
+ * SecretKey whose bytes live in a shared {@link SecretBuffer} rather than in a heap array, and are
+ * zeroed by {@link #destroy()}. JCE providers still take a short-lived heap copy through
+ * {@link #getEncoded()} when a Cipher is initialised.
+ */
+public final class OffHeapSecretKey implements SecretKey {
+
+    private final String algorithm;
+    private final transient SecretBuffer buffer;
+
+    private OffHeapSecretKey(SecretBuffer buffer, String algorithm) {
+        this.buffer = buffer;
+        this.algorithm = algorithm;
+    }
+
+    /**
+     * Copies {@code raw} off-heap; the caller still wipes its own array.
+     */
+    public static OffHeapSecretKey copyOf(byte[] raw, String algorithm) {
+        return new OffHeapSecretKey(SecretBuffer.sharedCopyOf(raw), algorithm);
+    }
+
+    @Override
+    public String getAlgorithm() {
+        return algorithm;
+    }
+
+    @Override
+    public String getFormat() {
+        return "RAW";
+    }
+
+    @Override
+    public byte[] getEncoded() {
+        return buffer.toByteArray();
+    }
+
+    @Override
+    public void destroy() {
+        buffer.close();
+    }
+
+    @Override
+    public boolean isDestroyed() {
+        return buffer.isClosed();
+    }
+
+    private void writeObject(ObjectOutputStream out) throws NotSerializableException {
+        throw new NotSerializableException("OffHeapSecretKey");
+    }
+}
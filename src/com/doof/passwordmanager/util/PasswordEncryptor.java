@@ -3,15 +3,32 @@ package com.doof.passwordmanager.util;
 import javax.crypto.Cipher;
 import javax.crypto.SecretKey;
 import javax.crypto.spec.GCMParameterSpec;
+import javax.crypto.spec.SecretKeySpec;
+import java.nio.ByteBuffer;
+import java.security.GeneralSecurityException;
 import java.security.SecureRandom;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.List;
 
+/**
+ * AES-GCM over a shared pool of Cipher instances, so calls skip {@code Cipher.getInstance} without
+ * tying a Cipher to a thread. An initialized Cipher holds the expanded key, so
+ * {@link #clearCipherPool()} re-initializes every pooled one with a throwaway key and drops it;
+ * the vault calls it on lock. Ciphers in use at that moment are scrubbed when they come back.
+ */
 public class PasswordEncryptor {
 
     private static final String AES_ALGORITHM = "AES/GCM/NoPadding";
     private static final int GCM_TAG_LENGTH = 128;
     private static final int IV_LENGTH = 12;
     private static final SecureRandom secureRandom = new SecureRandom();
+    private static final int MAX_POOLED_CIPHERS = Math.max(4, Runtime.getRuntime().availableProcessors() * 2);
+    private static final SecretKey SCRUB_KEY = new SecretKeySpec(new byte[32], "AES");
+
+    private static final ArrayDeque<Cipher> POOL = new ArrayDeque<>();
+    private static long poolGeneration;
 
     public static byte[] generateIV() {
         byte[] iv = new byte[IV_LENGTH];
@@ -19,12 +36,25 @@ public class PasswordEncryptor {
         return iv;
     }
 
+    public static Cipher newCipher() {
+        try {
+            return Cipher.getInstance(AES_ALGORITHM);
+        } catch (Exception e) {
+            throw new RuntimeException("AES-GCM is not available", e);
+        }
+    }
+
+    public static int ciphertextLength(int plaintextLength) {
+        return plaintextLength + GCM_TAG_LENGTH / 8;
+    }
+
+    public static int plaintextLength(int ciphertextLength) {
+        return Math.max(0, ciphertextLength - GCM_TAG_LENGTH / 8);
+    }
+
     public static byte[] encrypt(byte[] plaintext, SecretKey key, byte[] iv) {
         try {
-            Cipher cipher = Cipher.getInstance(AES_ALGORITHM);
-            GCMParameterSpec spec = new GCMParameterSpec(GCM_TAG_LENGTH, iv);
-            cipher.init(Cipher.ENCRYPT_MODE, key, spec);
-            return cipher.doFinal(plaintext);
+            return withCipher(Cipher.ENCRYPT_MODE, key, iv, cipher -> cipher.doFinal(plaintext));
         } catch (Exception e) {
             throw new RuntimeException("Error encrypting data", e);
         } finally {
@@ -34,15 +64,118 @@ public class PasswordEncryptor {
 
     public static byte[] decrypt(byte[] ciphertext, SecretKey key, byte[] iv) {
         try {
-            Cipher cipher = Cipher.getInstance(AES_ALGORITHM);
-            GCMParameterSpec spec = new GCMParameterSpec(GCM_TAG_LENGTH, iv);
-            cipher.init(Cipher.DECRYPT_MODE, key, spec);
-            return cipher.doFinal(ciphertext);
+            return withCipher(Cipher.DECRYPT_MODE, key, iv, cipher -> cipher.doFinal(ciphertext));
+        } catch (Exception e) {
+            throw new RuntimeException("Error decrypting data — possibly wrong key or corrupted data", e);
+        }
+    }
+
+    /**
+     * Encrypts the remaining bytes of {@code plaintext} into {@code output} and returns the number of
+     * bytes written. Both buffers belong to the caller; {@code output} needs
+     * {@link #ciphertextLength(int)} bytes of room.
+     */
+    public static int encrypt(ByteBuffer plaintext, ByteBuffer output, SecretKey key, byte[] iv) {
+        try {
+            return withCipher(Cipher.ENCRYPT_MODE, key, iv, cipher -> cipher.doFinal(plaintext, output));
+        } catch (Exception e) {
+            throw new RuntimeException("Error encrypting data", e);
+        }
+    }
+
+    /**
+     * Decrypts the remaining bytes of {@code ciphertext} into {@code output} and returns the number of
+     * bytes written. GCM only releases plaintext once the tag verifies, so {@code output} is untouched
+     * on failure.
+     */
+    public static int decrypt(ByteBuffer ciphertext, ByteBuffer output, SecretKey key, byte[] iv) {
+        try {
+            return withCipher(Cipher.DECRYPT_MODE, key, iv, cipher -> cipher.doFinal(ciphertext, output));
         } catch (Exception e) {
             throw new RuntimeException("Error decrypting data — possibly wrong key or corrupted data", e);
         }
     }
 
+    /**
+     * Decrypts {@code ciphertext[offset, offset + length)} straight into a new confined
+     * {@link SecretBuffer}, so the plaintext never lands in a heap array. The caller closes it.
+     */
+    public static SecretBuffer decryptToBuffer(byte[] ciphertext, int offset, int length, SecretKey key, byte[] iv) {
+        SecretBuffer plaintext = SecretBuffer.allocate(plaintextLength(length));
+        try {
+            decrypt(ByteBuffer.wrap(ciphertext, offset, length), plaintext.asByteBuffer(), key, iv);
+            return plaintext;
+        } catch (RuntimeException e) {
+            plaintext.close();
+            throw e;
+        }
+    }
+
+    public static SecretBuffer decryptToBuffer(byte[] ciphertext, SecretKey key, byte[] iv) {
+        return decryptToBuffer(ciphertext, 0, ciphertext.length, key, iv);
+    }
+
+    /**
+     * Encrypts the contents of {@code plaintext} without copying them onto the heap. The buffer is
+     * left open.
+     */
+    public static byte[] encrypt(SecretBuffer plaintext, SecretKey key, byte[] iv) {
+        byte[] ciphertext = new byte[ciphertextLength(plaintext.length())];
+        encrypt(plaintext.asByteBuffer(), ByteBuffer.wrap(ciphertext), key, iv);
+        return ciphertext;
+    }
+
+    /**
+     * Scrubs and drops every pooled Cipher, so none of them still holds a key schedule.
+     */
+    public static void clearCipherPool() {
+        List<Cipher> drained;
+        synchronized (POOL) {
+            poolGeneration++;
+            drained = new ArrayList<>(POOL);
+            POOL.clear();
+        }
+        for (Cipher cipher : drained) scrub(cipher);
+    }
+
+    private static <T> T withCipher(int mode, SecretKey key, byte[] iv, CipherOp<T> op) throws GeneralSecurityException {
+        long generation;
+        Cipher cipher;
+        synchronized (POOL) {
+            generation = poolGeneration;
+            cipher = POOL.pollFirst();
+        }
+        if (cipher == null) cipher = newCipher();
+        try {
+            cipher.init(mode, key, new GCMParameterSpec(GCM_TAG_LENGTH, iv));
+            return op.apply(cipher);
+        } finally {
+            release(cipher, generation);
+        }
+    }
+
+    private static void release(Cipher cipher, long generation) {
+        synchronized (POOL) {
+            if (generation == poolGeneration && POOL.size() < MAX_POOLED_CIPHERS) {
+                POOL.addFirst(cipher);
+                return;
+            }
+        }
+        scrub(cipher);
+    }
+
+    private static void scrub(Cipher cipher) {
+        try {
+            cipher.init(Cipher.ENCRYPT_MODE, SCRUB_KEY, new GCMParameterSpec(GCM_TAG_LENGTH, generateIV()));
+        } catch (GeneralSecurityException ignored) {
+            // The Cipher is being dropped either way.
+        }
+    }
+
+    private interface CipherOp<T> {
+        T apply(Cipher cipher) throws GeneralSecurityException;
+    }
+
     public static void wipe(byte[] array) {
         if (array != null) Arrays.fill(array, (byte) 0);
     }
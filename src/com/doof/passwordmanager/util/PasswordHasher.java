@@ -1,9 +1,12 @@
 package com.doof.passwordmanager.util;
 
+import javax.crypto.Mac;
 import javax.crypto.SecretKey;
 import javax.crypto.SecretKeyFactory;
 import javax.crypto.spec.PBEKeySpec;
 import javax.crypto.spec.SecretKeySpec;
+import java.nio.charset.StandardCharsets;
+import java.security.InvalidKeyException;
 import java.security.NoSuchAlgorithmException;
 import java.security.SecureRandom;
 import java.security.spec.InvalidKeySpecException;
@@ -18,11 +21,18 @@ public class PasswordHasher {
     private static final int HASH_LENGTH = 32;
     private static final int KEY_LENGTH = 32;
     private static final int ITERATIONS = 100_000;
+    private static final String HMAC_ALGORITHM = "HmacSHA256";
+    private static final byte[] VERIFIER_INFO = "doof-vault/v2/verifier".getBytes(StandardCharsets.US_ASCII);
+    private static final byte[] ENCRYPTION_KEY_INFO = "doof-vault/v2/aes-gcm-key".getBytes(StandardCharsets.US_ASCII);
 
     private static final SecureRandom secureRandom = new SecureRandom();
 
     public static byte[] generateSalt() {
-        byte[] salt = new byte[SALT_LENGTH];
+        return generateSalt(SALT_LENGTH);
+    }
+
+    public static byte[] generateSalt(int length) {
+        byte[] salt = new byte[length];
         secureRandom.nextBytes(salt);
         return salt;
     }
@@ -45,17 +55,115 @@ public class PasswordHasher {
         return secretKey;
     }
 
+    /**
+     * Runs PBKDF2 once with the vault's parameters and splits the output with HKDF-SHA256 into a
+     * verifier and an encryption key, so unlocking costs one derivation instead of two.
+     */
+    public static DerivedKeys deriveKeys(char[] password, byte[] salt, KdfParams params) {
+        byte[] master = pbkdf2(params.getAlgorithm(), password, salt, params.getIterations(), params.getKeyLength());
+        byte[] prk = null;
+        try {
+            prk = hkdfExtract(salt, master);
+            return new DerivedKeys(master,
+                    hkdfExpand(prk, VERIFIER_INFO, HASH_LENGTH),
+                    hkdfExpand(prk, ENCRYPTION_KEY_INFO, KEY_LENGTH));
+        } finally {
+            wipe(prk);
+        }
+    }
+
+    /**
+     * Times PBKDF2 on this machine and returns the iteration count, rounded to a thousand and
+     * clamped to {@link KdfParams#MIN_ITERATIONS}..{@link KdfParams#MAX_ITERATIONS}, for which one
+     * derivation takes about {@code targetMillis}. Probes for at least a second and until the best
+     * time stops improving (at most three seconds), so neither a cold JIT nor a busy moment talks
+     * it into a weaker setting than the hardware can afford.
+     */
+    public static int calibrateIterations(String algorithm, int keyLength, long targetMillis) {
+        if (targetMillis <= 0) {
+            throw new IllegalArgumentException("targetMillis must be positive");
+        }
+        final int probeIterations = 10_000;
+        final long minBudget = 1_000_000_000L;
+        final long maxBudget = 3_000_000_000L;
+        char[] probePassword = "calibration-probe".toCharArray();
+        byte[] probeSalt = generateSalt();
+        long best = Long.MAX_VALUE;
+        int sinceImprovement = 0;
+        long calibrationStart = System.nanoTime();
+        while (true) {
+            long spent = System.nanoTime() - calibrationStart;
+            if (spent >= maxBudget || (spent >= minBudget && sinceImprovement >= 5)) break;
+            long start = System.nanoTime();
+            wipe(pbkdf2(algorithm, probePassword, probeSalt, probeIterations, keyLength));
+            long elapsed = System.nanoTime() - start;
+            if (elapsed < best * 0.95) {
+                sinceImprovement = 0;
+            } else {
+                sinceImprovement++;
+            }
+            best = Math.min(best, elapsed);
+        }
+        double nanosPerIteration = (double) best / probeIterations;
+        double wanted = targetMillis * 1_000_000.0 / nanosPerIteration;
+        long rounded = Math.round(wanted / 1000.0) * 1000L;
+        return (int) Math.max(KdfParams.MIN_ITERATIONS, Math.min(KdfParams.MAX_ITERATIONS, rounded));
+    }
+
+    static byte[] hkdfExtract(byte[] salt, byte[] inputKeyMaterial) {
+        byte[] s = salt == null || salt.length == 0 ? new byte[32] : salt;
+        return hmac(s, inputKeyMaterial);
+    }
+
+    static byte[] hkdfExpand(byte[] prk, byte[] info, int length) {
+        try {
+            Mac mac = Mac.getInstance(HMAC_ALGORITHM);
+            mac.init(new SecretKeySpec(prk, HMAC_ALGORITHM));
+            byte[] out = new byte[length];
+            byte[] block = new byte[0];
+            int written = 0;
+            for (int counter = 1; written < length; counter++) {
+                mac.update(block);
+                mac.update(info);
+                mac.update((byte) counter);
+                wipe(block);
+                block = mac.doFinal();
+                int n = Math.min(block.length, length - written);
+                System.arraycopy(block, 0, out, written, n);
+                written += n;
+            }
+            wipe(block);
+            return out;
+        } catch (NoSuchAlgorithmException | InvalidKeyException e) {
+            throw new RuntimeException("HKDF expansion failed", e);
+        }
+    }
+
+    private static byte[] hmac(byte[] key, byte[] data) {
+        try {
+            Mac mac = Mac.getInstance(HMAC_ALGORITHM);
+            mac.init(new SecretKeySpec(key, HMAC_ALGORITHM));
+            return mac.doFinal(data);
+        } catch (NoSuchAlgorithmException | InvalidKeyException e) {
+            throw new RuntimeException("HMAC failed", e);
+        }
+    }
+
     private static byte[] pbkdf2(char[] password, byte[] salt, int iterations, int keyLength) {
+        return pbkdf2(PBKDF2_ALGORITHM, password, salt, iterations, keyLength);
+    }
+
+    private static byte[] pbkdf2(String algorithm, char[] password, byte[] salt, int iterations, int keyLength) {
         try {
             PBEKeySpec spec = new PBEKeySpec(password, salt, iterations, keyLength * 8);
-            SecretKeyFactory skf = SecretKeyFactory.getInstance(PBKDF2_ALGORITHM);
+            SecretKeyFactory skf = SecretKeyFactory.getInstance(algorithm);
             return skf.generateSecret(spec).getEncoded();
         } catch (NoSuchAlgorithmException | InvalidKeySpecException e) {
             throw new RuntimeException("PBKDF2 key derivation failed", e);
         }
     }
 
-    private static boolean constantTimeEquals(byte[] a, byte[] b) {
+    static boolean constantTimeEquals(byte[] a, byte[] b) {
         if (a == null || b == null || a.length != b.length) {
             return false;
         }
@@ -79,8 +187,7 @@ public class PasswordHasher {
     }
 
     public static String getDefaultKdfParamsJson() {
-        return String.format("{\"algorithm\":\"%s\",\"iterations\":%d,\"saltLength\":%d,\"keyLength\":%d}",
-                PBKDF2_ALGORITHM, ITERATIONS, SALT_LENGTH, KEY_LENGTH);
+        return KdfParams.defaults().toJson();
     }
 
 }
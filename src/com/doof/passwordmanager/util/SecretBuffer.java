@@ -0,0 +1,177 @@
+package com.doof.passwordmanager.util;
+
+import java.lang.foreign.Arena;
+import java.lang.foreign.MemorySegment;
+import java.lang.foreign.ValueLayout;
+import java.lang.ref.Cleaner;
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.nio.charset.CharsetDecoder;
+import java.nio.charset.CharsetEncoder;
+import java.nio.charset.CoderResult;
+import java.nio.charset.CodingErrorAction;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+
+/**
+ * Secret bytes held off the Java heap, where the collector cannot copy them, and zeroed as soon as
+ * the buffer is closed.
+ *
+ * <p>{@link #allocate(int)} gives a confined buffer for short-lived plaintext: it must be used and
+ * closed by the thread that allocated it, and costs one malloc/free. {@link #allocateShared(int)}
+ * gives a buffer any thread may read, for long-lived secrets such as keys; if one is never closed
+ * it is zeroed and freed once it becomes unreachable.
+ */
+public final class SecretBuffer implements AutoCloseable {
+
+    private static final Cleaner CLEANER = Cleaner.create();
+
+    private final State state;
+    private final Cleaner.Cleanable cleanable;
+    private int length;
+
+    private SecretBuffer(Arena arena, int capacity, boolean shared) {
+        this.state = new State(arena, arena.allocate(Math.max(1, capacity)));
+        this.cleanable = shared ? CLEANER.register(this, state) : null;
+        this.length = capacity;
+    }
+
+    public static SecretBuffer allocate(int length) {
+        return new SecretBuffer(Arena.ofConfined(), length, false);
+    }
+
+    public static SecretBuffer allocateShared(int length) {
+        return new SecretBuffer(Arena.ofShared(), length, true);
+    }
+
+    /**
+     * Shared copy of {@code bytes}; the source array is left for the caller to wipe.
+     */
+    public static SecretBuffer sharedCopyOf(byte[] bytes) {
+        SecretBuffer buffer = allocateShared(bytes.length);
+        MemorySegment.copy(bytes, 0, buffer.state.segment, ValueLayout.JAVA_BYTE, 0, bytes.length);
+        return buffer;
+    }
+
+    /**
+     * Confined buffer holding the UTF-8 encoding of {@code chars}, written straight off-heap
+     * without an intermediate String or byte[].
+     */
+    public static SecretBuffer encode(char[] chars) {
+        SecretBuffer buffer = allocate(chars.length * 3);
+        try {
+            ByteBuffer out = buffer.state.segment.asByteBuffer();
+            CharsetEncoder encoder = StandardCharsets.UTF_8.newEncoder()
+                    .onMalformedInput(CodingErrorAction.REPLACE)
+                    .onUnmappableCharacter(CodingErrorAction.REPLACE);
+            check(encoder.encode(CharBuffer.wrap(chars), out, true));
+            check(encoder.flush(out));
+            buffer.length = out.position();
+            return buffer;
+        } catch (RuntimeException e) {
+            buffer.close();
+            throw e;
+        }
+    }
+
+    public int length() {
+        return length;
+    }
+
+    /**
+     * Direct view of the first {@link #length()} bytes. The view is only valid until close.
+     */
+    public ByteBuffer asByteBuffer() {
+        ensureOpen();
+        return state.segment.asSlice(0, length).asByteBuffer();
+    }
+
+    /**
+     * Heap copy of the contents, for APIs that insist on a byte[]. The caller wipes it.
+     */
+    public byte[] toByteArray() {
+        ensureOpen();
+        return state.segment.asSlice(0, length).toArray(ValueLayout.JAVA_BYTE);
+    }
+
+    /**
+     * Decodes the contents as UTF-8 into a new char[], which the caller wipes.
+     */
+    public char[] toChars() {
+        ensureOpen();
+        char[] chars = new char[length];
+        MemorySegment segment = state.segment;
+        for (int i = 0; i < length; i++) {
+            byte b = segment.get(ValueLayout.JAVA_BYTE, i);
+            if (b < 0) {
+                Arrays.fill(chars, 0, i, '\0');
+                return decodeUtf8();
+            }
+            chars[i] = (char) b;
+        }
+        return chars;
+    }
+
+    private char[] decodeUtf8() {
+        CharsetDecoder decoder = StandardCharsets.UTF_8.newDecoder()
+                .onMalformedInput(CodingErrorAction.REPLACE)
+                .onUnmappableCharacter(CodingErrorAction.REPLACE);
+        char[] chars = new char[length];
+        CharBuffer out = CharBuffer.wrap(chars);
+        check(decoder.decode(asByteBuffer(), out, true));
+        check(decoder.flush(out));
+        if (out.position() == chars.length) {
+            return chars;
+        }
+        char[] exact = Arrays.copyOf(chars, out.position());
+        Arrays.fill(chars, '\0');
+        return exact;
+    }
+
+    public boolean isClosed() {
+        return state.closed;
+    }
+
+    /**
+     * Zeroes and frees the memory. Safe to call more than once.
+     */
+    @Override
+    public void close() {
+        if (cleanable != null) {
+            cleanable.clean();
+        } else {
+            state.run();
+        }
+    }
+
+    private void ensureOpen() {
+        if (state.closed) {
+            throw new IllegalStateException("SecretBuffer is closed");
+        }
+    }
+
+    private static void check(CoderResult result) {
+        if (!result.isUnderflow()) {
+            throw new IllegalStateException("Secret does not fit its buffer: " + result);
+        }
+    }
+
+    private static final class State implements Runnable {
+        final Arena arena;
+        final MemorySegment segment;
+        volatile boolean closed;
+
+        State(Arena arena, MemorySegment segment) {
+            this.arena = arena;
+            this.segment = segment;
+        }
+
+        @Override
+        public synchronized void run() {
+            if (closed) return;
+            closed = true;
+            segment.fill((byte) 0);
+            arena.close();
+        }
+    }
+}